@@ -2,8 +2,10 @@ package daw2a.gestion_alimentos_api_rest;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class GestionAlimentosApiRestApplication {
 
     public static void main(String[] args) {
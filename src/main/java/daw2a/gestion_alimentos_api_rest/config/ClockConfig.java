@@ -0,0 +1,25 @@
+package daw2a.gestion_alimentos_api_rest.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Configuración del reloj de la aplicación.
+ * <p>Los servicios obtienen la fecha actual de este {@link Clock} en lugar de llamar a {@code LocalDate.now()},
+ * lo que permite sustituirlo por un reloj fijo en las pruebas.</p>
+ */
+@Configuration
+public class ClockConfig {
+
+    /**
+     * Reloj del sistema con la zona horaria por defecto.
+     *
+     * @return un bean de tipo Clock.
+     */
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+}
@@ -0,0 +1,72 @@
+package daw2a.gestion_alimentos_api_rest.config;
+
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Configuración de los datos de ejemplo del perfil de desarrollo.
+ * <p>Los datos no forman parte de las migraciones: se cargan al terminar cada migración de Flyway, solo con el
+ * perfil {@code dev} y solo si la base de datos no tiene alimentos ni ubicaciones. Así, una misma base de datos se
+ * puede arrancar con el perfil y sin él sin que cambie su historial de migraciones.</p>
+ */
+@Configuration
+@Profile("dev")
+public class DatosDemoConfig {
+
+    private static final String SCRIPT = "db/demo/datos_demo.sql";
+
+    /**
+     * Callback de Flyway que carga los datos de ejemplo en una base de datos vacía.
+     *
+     * @return un bean de tipo Callback, que Spring Boot registra en Flyway.
+     */
+    @Bean
+    public Callback datosDemo() {
+        return new Callback() {
+            @Override
+            public boolean supports(Event event, Context context) {
+                return event == Event.AFTER_MIGRATE;
+            }
+
+            @Override
+            public boolean canHandleInTransaction(Event event, Context context) {
+                return true;
+            }
+
+            @Override
+            public void handle(Event event, Context context) {
+                try {
+                    if (estaVacia(context)) {
+                        ScriptUtils.executeSqlScript(context.getConnection(), new ClassPathResource(SCRIPT));
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException("No se han podido cargar los datos de ejemplo", e);
+                }
+            }
+
+            @Override
+            public String getCallbackName() {
+                return "datosDemo";
+            }
+        };
+    }
+
+    private static boolean estaVacia(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement();
+             ResultSet resultado = statement.executeQuery(
+                     "SELECT (SELECT COUNT(*) FROM alimento) + (SELECT COUNT(*) FROM ubicacion)")) {
+            resultado.next();
+            return resultado.getLong(1) == 0;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package daw2a.gestion_alimentos_api_rest.controllers;
 
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
 import daw2a.gestion_alimentos_api_rest.dto.alimento.AlimentoDTO;
 import daw2a.gestion_alimentos_api_rest.dto.alimento.CrearAlimentoDTO;
 import daw2a.gestion_alimentos_api_rest.dto.alimento.ModificarAlimentoDTO;
+import daw2a.gestion_alimentos_api_rest.dto.alimento.SugerenciaAlimentoDTO;
+import daw2a.gestion_alimentos_api_rest.enums.ModoTotal;
 import daw2a.gestion_alimentos_api_rest.services.AlimentoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,7 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Controlador para gestionar alimentos en el sistema.
@@ -33,24 +36,54 @@ public class AlimentoController {
 
     /**
      * Listar todos los alimentos o por nombre
-     * <p>Este endpoint devuelve una lista de alimentos, con la opción de filtrar por nombre.</p>
+     * <p>Este endpoint devuelve una lista de alimentos, con la opción de filtrar por nombre. Con {@code total=NINGUNO}
+     * o {@code total=APROXIMADO} se devuelve una página compacta que no cuenta el total de alimentos.</p>
      *
      * @param nombre Nombre del alimento a buscar (opcional)
+     * @param total Modo de cálculo del total (por defecto, exacto)
      * @param pageable Parámetros de paginación
      * @return Listado de alimentos encontrados
      */
     @Operation(summary = "Listar alimentos",
-            description = "Obtiene un listado de los alimentos o filtra por nombre si se proporciona")
+            description = "Obtiene un listado de los alimentos o filtra por nombre si se proporciona. "
+                    + "Con total=NINGUNO o total=APROXIMADO no se calcula el total exacto")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Listado de alimentos obtenido correctamente",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class)))
     })
     @GetMapping
-    public ResponseEntity<Page<?>> listarAlimentos(@RequestParam(required = false) String nombre, Pageable pageable) {
+    public ResponseEntity<?> listarAlimentos(@RequestParam(required = false) String nombre,
+                                             @RequestParam(defaultValue = "EXACTO") ModoTotal total, Pageable pageable) {
+        if (total != ModoTotal.EXACTO) {
+            return ResponseEntity.ok(alimentoService.listarAlimentosSinTotal(nombre, total, pageable));
+        }
         Page<?> alimentos = alimentoService.listarAlimentos(nombre, pageable);
         return ResponseEntity.ok(alimentos);
     }
 
+    /**
+     * Listar los alimentos mediante paginación por cursor
+     * <p>Este endpoint se utiliza cuando se envía el parámetro {@code after}. Devuelve los alimentos siguientes al
+     * cursor y el cursor de la página siguiente, sin recorrer las páginas anteriores ni contar el total.</p>
+     *
+     * @param nombre Nombre del alimento a buscar (opcional)
+     * @param after Cursor de la página anterior, vacío para la primera página
+     * @param pageable Tamaño de página y orden ({@code id} o {@code nombre})
+     * @return Página de alimentos y cursor de la siguiente
+     */
+    @Operation(summary = "Listar alimentos por cursor",
+            description = "Obtiene los alimentos siguientes al cursor indicado en 'after'. Admite ordenar por id o nombre")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de alimentos obtenida correctamente",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginaCursorDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor u orden no válidos")
+    })
+    @GetMapping(params = "after")
+    public ResponseEntity<PaginaCursorDTO<AlimentoDTO>> listarAlimentosPorCursor(@RequestParam(required = false) String nombre,
+                                                                                @RequestParam String after, Pageable pageable) {
+        return ResponseEntity.ok(alimentoService.listarAlimentosPorCursor(nombre, after, pageable));
+    }
+
     /**
      * Listar alimentos próximos a caducar.
      * <p>Este endpoint devuelve los alimentos que caducan en la próxima semana.</p>
@@ -65,10 +98,32 @@ public class AlimentoController {
     })
     @GetMapping("/caducan")
     public ResponseEntity<Page<AlimentoDTO>> listarAlimentosCaducan(Pageable pageable) {
-        Page<AlimentoDTO> alimentosCaducan = alimentoService.listarEntreFechasCaducidad(LocalDate.now(),LocalDate.now().plusWeeks(1), pageable);
+        Page<AlimentoDTO> alimentosCaducan = alimentoService.listarAlimentosCaducan(pageable);
         return ResponseEntity.ok(alimentosCaducan);
     }
 
+    /**
+     * Sugerir alimentos mientras se escribe su nombre.
+     * <p>Este endpoint devuelve los alimentos cuyo nombre empieza por el texto escrito, tiene una palabra que empieza
+     * por él, lo contiene o se le parece. No distingue mayúsculas ni tildes y no consulta la base de datos.</p>
+     *
+     * @param q Texto escrito.
+     * @param limite Número máximo de sugerencias (por defecto, 10).
+     * @return Las sugerencias encontradas.
+     */
+    @Operation(summary = "Sugerir alimentos por nombre", description = "Devuelve sugerencias de alimentos para el texto escrito, a partir de un índice de nombres en memoria.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sugerencias de alimentos",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "400", description = "Límite no válido",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @GetMapping("/sugerencias")
+    public ResponseEntity<List<SugerenciaAlimentoDTO>> sugerirAlimentos(@RequestParam(defaultValue = "") String q,
+                                                                        @RequestParam(defaultValue = "10") int limite) {
+        return ResponseEntity.ok(alimentoService.sugerirAlimentos(q, limite));
+    }
+
     /**
      * Obtener los detalles de un alimento.
      * <p>Este endpoint devuelve los detalles de un alimento a partir de su identificador.</p>
@@ -1,6 +1,9 @@
 package daw2a.gestion_alimentos_api_rest.controllers;
 
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
 import daw2a.gestion_alimentos_api_rest.dto.existencia.*;
+import daw2a.gestion_alimentos_api_rest.enums.ModoTotal;
+import daw2a.gestion_alimentos_api_rest.enums.PoliticaConsumo;
 import daw2a.gestion_alimentos_api_rest.services.ExistenciaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -11,7 +14,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Controlador REST para gestionar las existencias de alimentos en el sistema.
@@ -32,42 +35,92 @@ public class ExistenciaController {
 
     /**
      * Endpoint para listar todas las existencias, con posibilidad de filtrado por alimento y/o ubicación.
+     * <p>Con {@code total=NINGUNO} o {@code total=APROXIMADO} se devuelve una página compacta sin total exacto.</p>
      *
      * @param idAlimento Identificador del alimento.
      * @param idUbicacion Identificador de la ubicación.
+     * @param total Modo de cálculo del total (por defecto, exacto).
      * @param pageable Configuración de paginación.
      * @return Lista de existencias paginadas.
      */
     @Operation(summary = "Listar existencias",
-            description = "Recupera una lista de existencias con soporte para filtrado por alimento, ubicación y paginación.",
+            description = "Recupera una lista de existencias con soporte para filtrado por alimento, ubicación y paginación. "
+                    + "Con total=NINGUNO o total=APROXIMADO no se calcula el total exacto.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Lista de existencias obtenida exitosamente"),
                     @ApiResponse(responseCode = "400", description = "Petición incorrecta")
             })
     @GetMapping
-    public ResponseEntity<Page<ExistenciaDTO>> listarExistencias(@RequestParam(required = false) Long idAlimento, @RequestParam(required = false) Long idUbicacion, Pageable pageable) {
+    public ResponseEntity<?> listarExistencias(@RequestParam(required = false) Long idAlimento, @RequestParam(required = false) Long idUbicacion,
+                                               @RequestParam(defaultValue = "EXACTO") ModoTotal total, Pageable pageable) {
+        if (total != ModoTotal.EXACTO) {
+            return ResponseEntity.ok(existenciaService.listarExistenciasSinTotal(idAlimento, idUbicacion, total, pageable));
+        }
         Page<ExistenciaDTO> existencias = existenciaService.listarExistencias(idAlimento, idUbicacion, pageable);
         return ResponseEntity.ok(existencias);
     }
 
     /**
-     * Endpoint para listar las existencias próximas a caducar, agrupadas por ubicación.
+     * Endpoint para listar las existencias mediante paginación por cursor, con posibilidad de filtrado por alimento
+     * y/o ubicación.
+     * <p>Se utiliza cuando se envía el parámetro {@code after}. Cada página continúa a partir de la anterior sin
+     * recorrer las filas ya devueltas, por lo que permite sincronizar todo el inventario con un coste constante por página.</p>
+     *
+     * @param idAlimento Identificador del alimento.
+     * @param idUbicacion Identificador de la ubicación.
+     * @param after Cursor de la página anterior, vacío para la primera página.
+     * @param pageable Tamaño de página y orden ({@code id} o {@code fechaEntrada}).
+     * @return Página de existencias y cursor de la siguiente.
+     */
+    @Operation(summary = "Listar existencias por cursor",
+            description = "Recupera las existencias siguientes al cursor indicado en 'after'. Admite ordenar por id o fechaEntrada.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Página de existencias obtenida exitosamente"),
+                    @ApiResponse(responseCode = "400", description = "Cursor u orden no válidos")
+            })
+    @GetMapping(params = "after")
+    public ResponseEntity<PaginaCursorDTO<ExistenciaDTO>> listarExistenciasPorCursor(@RequestParam(required = false) Long idAlimento,
+                                                                                     @RequestParam(required = false) Long idUbicacion,
+                                                                                     @RequestParam String after, Pageable pageable) {
+        return ResponseEntity.ok(existenciaService.listarExistenciasPorCursor(idAlimento, idUbicacion, after, pageable));
+    }
+
+    /**
+     * Endpoint para listar las existencias próximas a caducar, ordenadas por tipo de ubicación.
      *
      * @param size Número de existencias por página.
      * @return Listado de existencias próximas a caducar.
      */
     @Operation(summary = "Listar existencias próximas a caducar",
-            description = "Recupera una lista de existencias próximas a caducar, agrupadas por ubicación.",
+            description = "Recupera una página de existencias próximas a caducar, ordenadas por tipo de ubicación.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Lista de existencias próximas a caducar obtenida exitosamente"),
                     @ApiResponse(responseCode = "400", description = "Petición incorrecta")
             })
     @GetMapping("/caducan/{size}")
     public ResponseEntity<Page<ExistenciaDetallesDTO>> listarCaducanPorUbicacion(@PathVariable int size) {
-        Page<ExistenciaDetallesDTO> existencias = existenciaService.listadoCaducanPorUbicacion(size, LocalDate.now(), LocalDate.now().plusWeeks(2));
+        Page<ExistenciaDetallesDTO> existencias = existenciaService.listarCaducanPorUbicacion(size);
         return ResponseEntity.ok(existencias);
     }
 
+    /**
+     * Endpoint para obtener el informe de existencias próximas a caducar agrupado por ubicación.
+     * <p>Para cada ubicación devuelve las existencias que caducan antes en las próximas dos semanas.</p>
+     *
+     * @param limite Número máximo de existencias por ubicación.
+     * @return Grupos de existencias próximas a caducar, uno por ubicación.
+     */
+    @Operation(summary = "Informe de existencias próximas a caducar por ubicación",
+            description = "Recupera, para cada ubicación, las existencias que caducan antes en las próximas dos semanas.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Informe obtenido exitosamente"),
+                    @ApiResponse(responseCode = "400", description = "Límite no válido")
+            })
+    @GetMapping("/caducan/por-ubicacion")
+    public ResponseEntity<List<CaducidadUbicacionDTO>> listarCaducanAgrupadasPorUbicacion(@RequestParam(defaultValue = "5") int limite) {
+        return ResponseEntity.ok(existenciaService.listarCaducanAgrupadasPorUbicacion(limite));
+    }
+
     /**
      * Endpoint para obtener los detalles de una existencia específica.
      *
@@ -144,22 +197,46 @@ public class ExistenciaController {
 
     /**
      * Endpoint para consumir una cantidad de un alimento en una ubicación.
+     * <p>La cantidad se descuenta de tantas existencias como sean necesarias, en el orden de la política indicada.</p>
      *
      * @param idAlimento Identificador del alimento.
      * @param idUbicacion Identificador de la ubicación.
      * @param cantidad Cantidad del alimento a consumir.
-     * @return Existencia actualizada.
+     * @param politica Orden de consumo de las existencias: FIFO (por fecha de entrada) o FEFO (por fecha de caducidad).
+     * @return Resultado del consumo con las existencias afectadas.
      */
     @Operation(summary = "Consumir existencia",
-            description = "Permite consumir una cantidad específica de un alimento en una ubicación.",
+            description = "Permite consumir una cantidad específica de un alimento en una ubicación, repartida entre sus existencias según la política FIFO o FEFO.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Existencia consumida exitosamente"),
-                    @ApiResponse(responseCode = "404", description = "Existencia no encontrada")
+                    @ApiResponse(responseCode = "404", description = "Existencia no encontrada"),
+                    @ApiResponse(responseCode = "409", description = "Cantidad insuficiente en la ubicación")
             })
     @PostMapping("/consumir")
-    public ResponseEntity<ExistenciaDTO> consumirExistencia(@RequestParam Long idAlimento, @RequestParam Long idUbicacion, @RequestParam Long cantidad) {
-        ExistenciaDTO existenciaActualizada = existenciaService.consumirExistencia(idAlimento, idUbicacion, cantidad);
-        return ResponseEntity.ok(existenciaActualizada);
+    public ResponseEntity<ConsumoDTO> consumirExistencia(@RequestParam Long idAlimento, @RequestParam Long idUbicacion, @RequestParam Long cantidad,
+                                                         @RequestParam(defaultValue = "FIFO") PoliticaConsumo politica) {
+        ConsumoDTO consumo = existenciaService.consumirExistencia(idAlimento, idUbicacion, cantidad, politica);
+        return ResponseEntity.ok(consumo);
+    }
+
+    /**
+     * Endpoint para aplicar varias operaciones sobre existencias en una única petición y transacción.
+     *
+     * @param lote Modo del lote y operaciones a aplicar (crear, actualizar, mover o eliminar).
+     * @return Resultado de cada operación del lote.
+     */
+    @Operation(summary = "Aplicar lote de operaciones",
+            description = "Aplica una lista de operaciones sobre existencias en una única transacción, completa o nada (TODO_O_NADA) o informando del resultado de cada una (POR_ELEMENTO).",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Lote aplicado"),
+                    @ApiResponse(responseCode = "400", description = "Datos del lote no válidos"),
+                    @ApiResponse(responseCode = "404", description = "Lote rechazado: existencia, alimento o ubicación no encontrados"),
+                    @ApiResponse(responseCode = "409", description = "Lote rechazado: ubicación llena")
+            })
+    @PostMapping("/batch")
+    public ResponseEntity<ResultadoLoteDTO> procesarLote(@Valid @RequestBody LoteOperacionesDTO lote) {
+        ResultadoLoteDTO resultado = existenciaService.procesarLote(lote);
+        return ResponseEntity.ok(resultado);
     }
 
     /**
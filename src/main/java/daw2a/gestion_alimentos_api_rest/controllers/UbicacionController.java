@@ -1,9 +1,11 @@
 package daw2a.gestion_alimentos_api_rest.controllers;
 
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
 import daw2a.gestion_alimentos_api_rest.dto.ubicacion.CrearUbicacionDTO;
 import daw2a.gestion_alimentos_api_rest.dto.ubicacion.ModificarUbicacionDTO;
 import daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionDTO;
 import daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionEspacioDTO;
+import daw2a.gestion_alimentos_api_rest.enums.ModoTotal;
 import daw2a.gestion_alimentos_api_rest.services.UbicacionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,6 +16,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * Controlador REST para gestionar las ubicaciones dentro del sistema.
  * Este controlador expone los endpoints para crear, modificar, listar y obtener detalles de las ubicaciones.
@@ -34,22 +38,56 @@ public class UbicacionController {
     /**
      * Endpoint para listar todas las ubicaciones o las que sean de un tipo específico.
      *
+     * <p>Con {@code total=NINGUNO} o {@code total=APROXIMADO} se devuelve una página compacta sin total exacto. Con
+     * {@code ocupacion=true} cada ubicación incluye su espacio ocupado, su espacio disponible y su número de
+     * existencias.</p>
+     *
      * @param tipoUbicacion Tipo de ubicación (por ejemplo: alacena, nevera, congelador).
+     * @param total Modo de cálculo del total (por defecto, exacto).
+     * @param ocupacion Indica si se incluye la ocupación de cada ubicación (por defecto, no).
      * @param pageable Configuración de paginación.
      * @return Lista paginada de ubicaciones.
      */
     @Operation(summary = "Listar ubicaciones",
-            description = "Recupera una lista de ubicaciones con soporte para filtrado por tipo y paginación.",
+            description = "Recupera una lista de ubicaciones con soporte para filtrado por tipo y paginación. "
+                    + "Con total=NINGUNO o total=APROXIMADO no se calcula el total exacto. "
+                    + "Con ocupacion=true se incluye el espacio ocupado, el disponible y el número de existencias de cada ubicación.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Lista de ubicaciones obtenida exitosamente"),
                     @ApiResponse(responseCode = "400", description = "Petición incorrecta")
             })
     @GetMapping
-    public ResponseEntity<Page<?>> listarUbicaciones(@RequestParam(required = false) String tipoUbicacion, Pageable pageable) {
-        Page<?> ubicaciones = ubicacionService.listarUbicaciones(tipoUbicacion, pageable);
+    public ResponseEntity<?> listarUbicaciones(@RequestParam(required = false) String tipoUbicacion,
+                                               @RequestParam(defaultValue = "EXACTO") ModoTotal total,
+                                               @RequestParam(defaultValue = "false") boolean ocupacion, Pageable pageable) {
+        if (total != ModoTotal.EXACTO) {
+            return ResponseEntity.ok(ubicacionService.listarUbicacionesSinTotal(tipoUbicacion, total, ocupacion, pageable));
+        }
+        Page<?> ubicaciones = ubicacionService.listarUbicaciones(tipoUbicacion, ocupacion, pageable);
         return ResponseEntity.ok(ubicaciones);
     }
 
+    /**
+     * Endpoint para listar las ubicaciones mediante paginación por cursor.
+     * <p>Se utiliza cuando se envía el parámetro {@code after}, y ordena las ubicaciones por id.</p>
+     *
+     * @param tipoUbicacion Tipo de ubicación (opcional).
+     * @param after Cursor de la página anterior, vacío para la primera página.
+     * @param pageable Tamaño de página.
+     * @return Página de ubicaciones y cursor de la siguiente.
+     */
+    @Operation(summary = "Listar ubicaciones por cursor",
+            description = "Recupera las ubicaciones siguientes al cursor indicado en 'after', ordenadas por id.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Página de ubicaciones obtenida exitosamente"),
+                    @ApiResponse(responseCode = "400", description = "Cursor u orden no válidos")
+            })
+    @GetMapping(params = "after")
+    public ResponseEntity<PaginaCursorDTO<UbicacionDTO>> listarUbicacionesPorCursor(@RequestParam(required = false) String tipoUbicacion,
+                                                                                    @RequestParam String after, Pageable pageable) {
+        return ResponseEntity.ok(ubicacionService.listarUbicacionesPorCursor(tipoUbicacion, after, pageable));
+    }
+
     /**
      * Endpoint para obtener los detalles de una ubicación específica.
      *
@@ -68,6 +106,21 @@ public class UbicacionController {
         return ResponseEntity.ok(ubicacion);
     }
 
+    /**
+     * Endpoint para obtener un informe sobre el espacio disponible y ocupado de todos los tipos de ubicación.
+     *
+     * @return Espacio total, ocupado y disponible de cada tipo de ubicación.
+     */
+    @Operation(summary = "Obtener espacio de todos los tipos de ubicación",
+            description = "Recupera la capacidad total, ocupada y disponible de cada tipo de ubicación en una sola consulta.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Espacio de los tipos de ubicación obtenido exitosamente")
+            })
+    @GetMapping("/espacio")
+    public ResponseEntity<List<UbicacionEspacioDTO>> obtenerEspacioPorTiposUbicacion() {
+        return ResponseEntity.ok(ubicacionService.obtenerEspacioPorTiposUbicacion());
+    }
+
     /**
      * Endpoint para obtener un informe sobre el espacio disponible y ocupado de un tipo de ubicación.
      *
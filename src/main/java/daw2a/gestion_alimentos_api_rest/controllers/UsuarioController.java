@@ -1,9 +1,11 @@
 package daw2a.gestion_alimentos_api_rest.controllers;
 
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
 import daw2a.gestion_alimentos_api_rest.dto.usuario.CrearUsuarioDTO;
 import daw2a.gestion_alimentos_api_rest.dto.usuario.ModificarUsuarioDTO;
 import daw2a.gestion_alimentos_api_rest.dto.usuario.UsuarioDTO;
 import daw2a.gestion_alimentos_api_rest.dto.usuario.UsuarioDetallesDTO;
+import daw2a.gestion_alimentos_api_rest.enums.ModoTotal;
 import daw2a.gestion_alimentos_api_rest.services.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -35,23 +37,53 @@ public class UsuarioController {
     /**
      * Endpoint para obtener una lista de usuarios con soporte de paginación y filtrado opcional por nombre.
      *
+     * <p>Con {@code total=NINGUNO} o {@code total=APROXIMADO} se devuelve una página compacta sin total exacto.</p>
+     *
      * @param nombre Filtrado opcional por el nombre del usuario.
+     * @param total Modo de cálculo del total (por defecto, exacto).
      * @param pageable Configuración de paginación.
      * @return Página de usuarios en formato DTO.
      */
     @Operation(summary = "Obtener lista de usuarios",
-            description = "Recupera una lista de usuarios con soporte para filtrado por nombre y paginación.",
+            description = "Recupera una lista de usuarios con soporte para filtrado por nombre y paginación. "
+                    + "Con total=NINGUNO o total=APROXIMADO no se calcula el total exacto.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente"),
                     @ApiResponse(responseCode = "400", description = "Petición incorrecta")
             })
     @GetMapping
     @PreAuthorize("hasRole('ADMINISTRADOR')")
-    public ResponseEntity<Page<UsuarioDTO>> listarUsuarios(@RequestParam(required = false) String nombre, Pageable pageable) {
+    public ResponseEntity<?> listarUsuarios(@RequestParam(required = false) String nombre,
+                                            @RequestParam(defaultValue = "EXACTO") ModoTotal total, Pageable pageable) {
+        if (total != ModoTotal.EXACTO) {
+            return ResponseEntity.ok(usuarioService.listarUsuariosSinTotal(nombre, total, pageable));
+        }
         Page<UsuarioDTO> usuarios = usuarioService.listarUsuarios(nombre, pageable);
         return ResponseEntity.ok(usuarios);
     }
 
+    /**
+     * Endpoint para obtener la lista de usuarios mediante paginación por cursor.
+     * <p>Se utiliza cuando se envía el parámetro {@code after}, y ordena los usuarios por id.</p>
+     *
+     * @param nombre Filtrado opcional por el nombre del usuario.
+     * @param after Cursor de la página anterior, vacío para la primera página.
+     * @param pageable Tamaño de página.
+     * @return Página de usuarios y cursor de la siguiente.
+     */
+    @Operation(summary = "Obtener lista de usuarios por cursor",
+            description = "Recupera los usuarios siguientes al cursor indicado en 'after', ordenados por id.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Página de usuarios obtenida exitosamente"),
+                    @ApiResponse(responseCode = "400", description = "Cursor u orden no válidos")
+            })
+    @GetMapping(params = "after")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<PaginaCursorDTO<UsuarioDTO>> listarUsuariosPorCursor(@RequestParam(required = false) String nombre,
+                                                                               @RequestParam String after, Pageable pageable) {
+        return ResponseEntity.ok(usuarioService.listarUsuariosPorCursor(nombre, after, pageable));
+    }
+
     /**
      * Endpoint para obtener los detalles de un usuario por su identificador.
      *
@@ -0,0 +1,35 @@
+package daw2a.gestion_alimentos_api_rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) para una página de resultados obtenida mediante paginación por cursor.
+ * <p>En lugar de un número de página, cada respuesta incluye un cursor opaco que se envía en el parámetro
+ * {@code after} para obtener la página siguiente. No se calcula el total de elementos.</p>
+ *
+ * @param <T> Tipo de los elementos de la página.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCursorDTO<T> {
+
+    /**
+     * Elementos de la página, en el orden solicitado.
+     */
+    private List<T> contenido;
+
+    /**
+     * Número máximo de elementos por página.
+     */
+    private int tamano;
+
+    /**
+     * Cursor de la página siguiente, o {@code null} si esta es la última.
+     */
+    private String siguiente;
+}
@@ -0,0 +1,59 @@
+package daw2a.gestion_alimentos_api_rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) para una página de resultados sin total exacto.
+ * <p>Es una alternativa compacta a la página de Spring: no incluye la configuración de paginación ni de orden, y
+ * en lugar del total indica si existe una página siguiente, por lo que no requiere una consulta de recuento.</p>
+ *
+ * @param <T> Tipo de los elementos de la página.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+
+    /**
+     * Elementos de la página.
+     */
+    private List<T> contenido;
+
+    /**
+     * Número de la página, empezando en 0.
+     */
+    private int pagina;
+
+    /**
+     * Número máximo de elementos por página.
+     */
+    private int tamano;
+
+    /**
+     * Indica si hay una página siguiente.
+     */
+    private boolean haySiguiente;
+
+    /**
+     * Número aproximado de elementos, solo si se ha solicitado y está disponible.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalAproximado;
+
+    /**
+     * Crea la página a partir de un {@link Slice} obtenido del repositorio.
+     *
+     * @param slice Los elementos de la página.
+     * @param totalAproximado Número aproximado de elementos, o {@code null}.
+     * @return La página.
+     */
+    public static <T> PaginaDTO<T> desde(Slice<T> slice, Long totalAproximado) {
+        return new PaginaDTO<>(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext(), totalAproximado);
+    }
+}
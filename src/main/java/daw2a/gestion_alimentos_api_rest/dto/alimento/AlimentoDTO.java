@@ -1,6 +1,10 @@
 package daw2a.gestion_alimentos_api_rest.dto.alimento;
 
+import daw2a.gestion_alimentos_api_rest.enums.EstadoAlimento;
+import daw2a.gestion_alimentos_api_rest.enums.TipoAlimento;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 
@@ -13,6 +17,8 @@ import java.time.LocalDate;
  * y fecha de caducidad.</p>
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class AlimentoDTO {
 
     /**
@@ -32,14 +38,14 @@ public class AlimentoDTO {
      * <p>Indica si el alimento es perecedero o no perecedero.</p>
      * <p>Ejemplo de valores: "Perecedero", "No perecedero".</p>
      */
-    private String tipo;
+    private TipoAlimento tipo;
 
     /**
      * Estado del alimento.
      * <p>Describe si el alimento está abierto o cerrado.</p>
      * <p>Ejemplo de valores: "Abierto", "Cerrado".</p>
      */
-    private String estado;
+    private EstadoAlimento estado;
 
     /**
      * Fecha de caducidad del alimento.
@@ -0,0 +1,26 @@
+package daw2a.gestion_alimentos_api_rest.dto.alimento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) que representa una sugerencia de la búsqueda de alimentos por nombre.
+ * <p>Contiene solo los datos necesarios para mostrar la sugerencia y, al seleccionarla, consultar el alimento.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SugerenciaAlimentoDTO {
+
+    /**
+     * Identificador único del alimento.
+     */
+    private Long id;
+
+    /**
+     * Nombre del alimento, tal y como está guardado.
+     */
+    private String nombre;
+
+}
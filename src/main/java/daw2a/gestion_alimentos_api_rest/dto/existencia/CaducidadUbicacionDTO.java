@@ -0,0 +1,35 @@
+package daw2a.gestion_alimentos_api_rest.dto.existencia;
+
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) que representa un grupo del informe de existencias próximas a caducar.
+ * <p>Contiene una ubicación y sus existencias que caducan antes, ordenadas por fecha de caducidad.</p>
+ */
+@Data
+public class CaducidadUbicacionDTO {
+
+    /**
+     * Identificador de la ubicación.
+     */
+    private Long idUbicacion;
+
+    /**
+     * Descripción de la ubicación.
+     */
+    private String descripcionUbicacion;
+
+    /**
+     * Tipo de la ubicación.
+     */
+    private TipoUbicacion tipoUbicacion;
+
+    /**
+     * Existencias de la ubicación que caducan antes, de la más próxima a la más lejana.
+     */
+    private List<ExistenciaDetallesDTO> existencias = new ArrayList<>();
+}
@@ -0,0 +1,39 @@
+package daw2a.gestion_alimentos_api_rest.dto.existencia;
+
+import daw2a.gestion_alimentos_api_rest.enums.PoliticaConsumo;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) con el resultado de consumir un alimento en una ubicación.
+ * <p>Incluye las existencias afectadas, en el orden en que se han consumido según la política aplicada.</p>
+ */
+@Data
+public class ConsumoDTO {
+
+    /**
+     * Identificador del alimento consumido.
+     */
+    private Long idAlimento;
+
+    /**
+     * Identificador de la ubicación en la que se ha consumido el alimento.
+     */
+    private Long idUbicacion;
+
+    /**
+     * Política con la que se han elegido las existencias a consumir.
+     */
+    private PoliticaConsumo politica;
+
+    /**
+     * Cantidad total consumida.
+     */
+    private Long cantidadConsumida;
+
+    /**
+     * Existencias afectadas por el consumo.
+     */
+    private List<LoteConsumidoDTO> lotes;
+}
@@ -1,6 +1,8 @@
 package daw2a.gestion_alimentos_api_rest.dto.existencia;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 
@@ -11,6 +13,8 @@ import java.time.LocalDate;
  * y la fecha de entrada.</p>
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ExistenciaDTO {
 
     /**
@@ -1,6 +1,9 @@
 package daw2a.gestion_alimentos_api_rest.dto.existencia;
 
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 
 /**
@@ -9,6 +12,8 @@ import java.time.LocalDate;
  * la ubicación donde se encuentra, la cantidad disponible y fechas relevantes (caducidad y entrada).</p>
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ExistenciaDetallesDTO {
 
     /**
@@ -51,7 +56,7 @@ public class ExistenciaDetallesDTO {
      * Tipo de la ubicación donde se encuentra el alimento.
      * <p>Este campo indica el tipo de almacenamiento de la ubicación (por ejemplo, "alacena", "nevera", "congelador").</p>
      */
-    private String tipoUbicacion;
+    private TipoUbicacion tipoUbicacion;
 
     /**
      * Cantidad de alimentos disponibles en la ubicación especificada.
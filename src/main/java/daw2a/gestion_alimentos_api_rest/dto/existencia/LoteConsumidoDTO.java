@@ -0,0 +1,39 @@
+package daw2a.gestion_alimentos_api_rest.dto.existencia;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Data Transfer Object (DTO) que describe una existencia afectada por un consumo.
+ * <p>Indica cuánto se ha consumido de la existencia y cuánto queda en ella tras el consumo.</p>
+ */
+@Data
+public class LoteConsumidoDTO {
+
+    /**
+     * Identificador de la existencia consumida.
+     */
+    private Long idExistencia;
+
+    /**
+     * Fecha en la que la existencia fue colocada en la ubicación.
+     */
+    private LocalDate fechaEntrada;
+
+    /**
+     * Fecha de caducidad del alimento de la existencia.
+     */
+    private LocalDate fechaCaducidad;
+
+    /**
+     * Cantidad consumida de esta existencia.
+     */
+    private Long cantidadConsumida;
+
+    /**
+     * Cantidad que queda en la existencia tras el consumo.
+     * <p>Si es 0, la existencia se ha agotado y ha sido eliminada.</p>
+     */
+    private Long cantidadRestante;
+}
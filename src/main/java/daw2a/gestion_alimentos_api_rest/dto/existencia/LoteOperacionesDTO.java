@@ -0,0 +1,32 @@
+package daw2a.gestion_alimentos_api_rest.dto.existencia;
+
+import daw2a.gestion_alimentos_api_rest.enums.ModoLote;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) para aplicar varias operaciones sobre existencias en una única petición.
+ * <p>Las operaciones se aplican en orden y en una única transacción.</p>
+ */
+@Data
+public class LoteOperacionesDTO {
+
+    /**
+     * Modo en el que se aplica el lote cuando alguna operación falla.
+     * <p>Por defecto, el lote se aplica completo o no se aplica.</p>
+     */
+    @NotNull(message = "El modo del lote no puede estar vacío")
+    private ModoLote modo = ModoLote.TODO_O_NADA;
+
+    /**
+     * Operaciones a aplicar, en orden.
+     */
+    @NotEmpty(message = "El lote debe contener al menos una operación")
+    @Size(max = 1000, message = "El lote no puede contener más de 1000 operaciones")
+    private List<@Valid @NotNull OperacionExistenciaDTO> operaciones;
+}
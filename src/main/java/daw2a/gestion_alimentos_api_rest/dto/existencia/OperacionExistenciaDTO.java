@@ -0,0 +1,45 @@
+package daw2a.gestion_alimentos_api_rest.dto.existencia;
+
+import daw2a.gestion_alimentos_api_rest.enums.TipoOperacionExistencia;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) que representa una operación dentro de un lote de operaciones sobre existencias.
+ * <p>Los campos necesarios dependen del tipo de operación: crear requiere alimento, ubicación y cantidad;
+ * actualizar requiere la existencia y la cantidad; mover requiere la existencia y la ubicación de destino;
+ * eliminar solo requiere la existencia.</p>
+ */
+@Data
+public class OperacionExistenciaDTO {
+
+    /**
+     * Tipo de operación a realizar.
+     */
+    @NotNull(message = "El tipo de operación no puede estar vacío")
+    private TipoOperacionExistencia tipo;
+
+    /**
+     * Identificador de la existencia sobre la que se opera.
+     * <p>Obligatorio para actualizar, mover y eliminar.</p>
+     */
+    private Long id;
+
+    /**
+     * Identificador del alimento de la nueva existencia.
+     * <p>Obligatorio para crear.</p>
+     */
+    private Long idAlimento;
+
+    /**
+     * Identificador de la ubicación de la nueva existencia o de destino.
+     * <p>Obligatorio para crear y mover.</p>
+     */
+    private Long idUbicacion;
+
+    /**
+     * Cantidad de la nueva existencia o nueva cantidad de la existencia.
+     * <p>Obligatoria para crear y actualizar, y debe ser un número positivo.</p>
+     */
+    private Long cantidad;
+}
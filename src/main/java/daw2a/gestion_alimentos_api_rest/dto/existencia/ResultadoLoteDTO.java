@@ -0,0 +1,33 @@
+package daw2a.gestion_alimentos_api_rest.dto.existencia;
+
+import daw2a.gestion_alimentos_api_rest.enums.ModoLote;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) con el resultado de aplicar un lote de operaciones sobre existencias.
+ */
+@Data
+public class ResultadoLoteDTO {
+
+    /**
+     * Modo con el que se ha aplicado el lote.
+     */
+    private ModoLote modo;
+
+    /**
+     * Número de operaciones aplicadas.
+     */
+    private int aplicadas;
+
+    /**
+     * Número de operaciones que han fallado.
+     */
+    private int fallidas;
+
+    /**
+     * Resultado de cada operación, en el orden del lote.
+     */
+    private List<ResultadoOperacionDTO> resultados;
+}
@@ -0,0 +1,38 @@
+package daw2a.gestion_alimentos_api_rest.dto.existencia;
+
+import daw2a.gestion_alimentos_api_rest.enums.TipoOperacionExistencia;
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) con el resultado de una operación de un lote.
+ */
+@Data
+public class ResultadoOperacionDTO {
+
+    /**
+     * Posición de la operación en el lote, empezando en 0.
+     */
+    private int indice;
+
+    /**
+     * Tipo de la operación.
+     */
+    private TipoOperacionExistencia tipo;
+
+    /**
+     * Identificador de la existencia afectada.
+     * <p>En las operaciones de creación, es el id de la nueva existencia.</p>
+     */
+    private Long id;
+
+    /**
+     * Código de estado HTTP equivalente al resultado de la operación.
+     * <p>Por ejemplo: 200 si se ha aplicado, 404 si no existe la existencia o 409 si la ubicación está llena.</p>
+     */
+    private int estado;
+
+    /**
+     * Mensaje de error si la operación no se ha aplicado.
+     */
+    private String mensaje;
+}
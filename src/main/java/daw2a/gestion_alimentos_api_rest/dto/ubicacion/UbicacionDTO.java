@@ -1,12 +1,17 @@
 package daw2a.gestion_alimentos_api_rest.dto.ubicacion;
 
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * Data Transfer Object (DTO) que representa la información de una ubicación en el sistema.
  * <p>Este DTO contiene los detalles de la ubicación, como su descripción, tipo y capacidad de almacenamiento.</p>
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class UbicacionDTO {
 
     /**
@@ -25,7 +30,7 @@ public class UbicacionDTO {
      * Tipo de la ubicación.
      * <p>Este campo indica el tipo de la ubicación, como "alacena", "nevera", "congelador", etc.</p>
      */
-    private String tipoUbicacion;
+    private TipoUbicacion tipoUbicacion;
 
     /**
      * Capacidad máxima de almacenamiento de la ubicación.
@@ -1,19 +1,24 @@
 package daw2a.gestion_alimentos_api_rest.dto.ubicacion;
 
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * Data Transfer Object (DTO) que representa la información de espacio disponible y ocupado en una ubicación.
  * <p>Este DTO se utiliza para mostrar el espacio total, ocupado y disponible en una ubicación específica.</p>
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class UbicacionEspacioDTO {
 
     /**
      * Tipo de ubicación (por ejemplo, "ALACENA", "NEVERA", "CONGELADOR").
      * <p>Este campo describe el tipo de la ubicación para la cual se reporta el espacio.</p>
      */
-    private String tipoUbicacion;
+    private TipoUbicacion tipoUbicacion;
 
     /**
      * Espacio disponible en la ubicación.
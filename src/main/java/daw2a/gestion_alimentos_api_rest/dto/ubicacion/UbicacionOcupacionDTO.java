@@ -0,0 +1,54 @@
+package daw2a.gestion_alimentos_api_rest.dto.ubicacion;
+
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) que representa una ubicación junto con su ocupación.
+ * <p>Además de los datos de {@link UbicacionDTO}, incluye el espacio ocupado, el espacio disponible y el número de
+ * existencias guardadas, para que un listado pueda mostrar el grado de llenado de cada ubicación sin más peticiones.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UbicacionOcupacionDTO {
+
+    /**
+     * Identificador único de la ubicación.
+     */
+    private Long id;
+
+    /**
+     * Descripción detallada de la ubicación.
+     * <p>Por ejemplo: "balda superior en la alacena" o "cajón inferior en la nevera".</p>
+     */
+    private String descripcion;
+
+    /**
+     * Tipo de la ubicación, como "alacena", "nevera" o "congelador".
+     */
+    private TipoUbicacion tipoUbicacion;
+
+    /**
+     * Capacidad máxima de almacenamiento de la ubicación.
+     */
+    private Long capacidad;
+
+    /**
+     * Espacio ocupado por las existencias guardadas en la ubicación.
+     */
+    private Long espacioOcupado;
+
+    /**
+     * Espacio que queda libre en la ubicación.
+     */
+    private Long espacioDisponible;
+
+    /**
+     * Número de existencias (lotes) guardadas en la ubicación.
+     */
+    private Long numeroExistencias;
+
+}
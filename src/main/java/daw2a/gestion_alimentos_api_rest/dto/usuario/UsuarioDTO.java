@@ -1,12 +1,16 @@
 package daw2a.gestion_alimentos_api_rest.dto.usuario;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * Data Transfer Object (DTO) utilizado para representar un usuario en el sistema.
  * <p>Este DTO contiene información básica del usuario, como su ID, nombre y correo electrónico.</p>
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class UsuarioDTO {
 
     /**
@@ -1,6 +1,8 @@
 package daw2a.gestion_alimentos_api_rest.entities;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import daw2a.gestion_alimentos_api_rest.enums.EstadoAlimento;
+import daw2a.gestion_alimentos_api_rest.enums.TipoAlimento;
 import jakarta.persistence.*;
 import lombok.*;
 import jakarta.validation.constraints.*;
@@ -21,6 +23,10 @@ import java.util.List;
 @AllArgsConstructor
 @ToString
 @Builder
+@Table(indexes = {
+        @Index(name = "idx_alimento_nombre_id", columnList = "nombre, id"),
+        @Index(name = "idx_alimento_fecha_caducidad", columnList = "fecha_caducidad")
+})
 public class Alimento {
 
     /**
@@ -41,17 +47,21 @@ public class Alimento {
 
     /**
      * Indica si el alimento es perecedero o no.
-     * <p>Este campo almacena el tipo de alimento, como "Perecedero" o "No perecedero".</p>
+     * <p>Este campo almacena el tipo de alimento, definido por la enumeración {@link TipoAlimento}.</p>
      */
-    @NotBlank(message = "El tipo de alimento no puede estar vacío")
-    private String tipo;
+    @NotNull(message = "El tipo de alimento no puede estar vacío")
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private TipoAlimento tipo;
 
     /**
      * Estado del alimento.
-     * <p>Indica si el alimento está abierto o cerrado.</p>
+     * <p>Indica si el alimento está abierto, cerrado o congelado, según la enumeración {@link EstadoAlimento}.</p>
      */
-    @NotBlank(message = "El estado del alimento no puede estar vacío")
-    private String estado;
+    @NotNull(message = "El estado del alimento no puede estar vacío")
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EstadoAlimento estado;
 
     /**
      * Fecha de caducidad del alimento.
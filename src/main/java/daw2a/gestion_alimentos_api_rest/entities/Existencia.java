@@ -23,14 +23,21 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @ToString
 @Builder
+@Table(indexes = {
+        @Index(name = "idx_existencia_fecha_entrada_id", columnList = "fecha_entrada, id"),
+        @Index(name = "idx_existencia_alimento_ubicacion_fecha_entrada", columnList = "alimento_id, ubicacion_id, fecha_entrada"),
+        @Index(name = "idx_existencia_ubicacion", columnList = "ubicacion_id")
+})
 public class Existencia {
 
     /**
      * Identificador único de la existencia.
-     * <p>Este campo se genera automáticamente y sirve como clave primaria.</p>
+     * <p>Este campo se genera automáticamente y sirve como clave primaria. Se obtiene de una secuencia que
+     * reserva los ids en bloques, lo que permite a Hibernate agrupar las inserciones en lotes JDBC.</p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "existencia_seq")
+    @SequenceGenerator(name = "existencia_seq", sequenceName = "existencia_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -39,13 +46,16 @@ public class Existencia {
      * tener múltiples existencias en diferentes ubicaciones.</p>
      *
      * <ul>
+     *   <li><b>LAZY:</b> El alimento solo se carga si se accede a él; las consultas que lo necesitan lo traen
+     *   en la misma sentencia con un grafo de entidad.</li>
      *   <li><b>JoinColumn:</b> Define la clave foránea `alimento_id` en esta tabla.</li>
      *   <li><b>JsonBackReference:</b> Evita bucles en la serialización JSON.</li>
      * </ul>
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "alimento_id")
     @JsonBackReference
+    @ToString.Exclude
     private Alimento alimento;
 
     /**
@@ -54,13 +64,16 @@ public class Existencia {
      * tener múltiples existencias que representen diferentes alimentos almacenados.</p>
      *
      * <ul>
+     *   <li><b>LAZY:</b> La ubicación solo se carga si se accede a ella; las consultas que la necesitan la traen
+     *   en la misma sentencia con un grafo de entidad.</li>
      *   <li><b>JoinColumn:</b> Define la clave foránea `ubicacion_id` en esta tabla.</li>
      *   <li><b>JsonBackReference:</b> Evita bucles en la serialización JSON.</li>
      * </ul>
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ubicacion_id")
     @JsonBackReference
+    @ToString.Exclude
     private Ubicacion ubicacion;
 
     /**
@@ -0,0 +1,77 @@
+package daw2a.gestion_alimentos_api_rest.entities;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Representa un token de refresco emitido a un usuario.
+ * <p>Un token de refresco permite obtener nuevos tokens de acceso de corta duración sin volver a
+ * introducir la contraseña. Solo se almacena el resumen SHA-256 del token, nunca su valor.</p>
+ *
+ * <p>Los tokens de refresco rotan en cada uso: cada token pertenece a una familia que comparten todos
+ * los tokens obtenidos a partir del mismo inicio de sesión. Si se reutiliza un token ya usado, se
+ * revoca la familia completa.</p>
+ */
+@Entity
+@Getter @Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Builder
+@Table(indexes = {
+        @Index(name = "idx_refresh_token_familia", columnList = "familia"),
+        @Index(name = "idx_refresh_token_usuario", columnList = "usuario_id")
+})
+public class RefreshToken {
+
+    /**
+     * Identificador único del token de refresco.
+     * <p>Este campo se genera automáticamente y sirve como clave primaria.</p>
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Resumen SHA-256 del token, codificado en Base64.
+     * <p>Es único y permite localizar el token sin almacenar su valor.</p>
+     */
+    @NotNull
+    @Column(nullable = false, unique = true, length = 44)
+    private String hash;
+
+    /**
+     * Identificador de la familia de rotación a la que pertenece el token.
+     */
+    @NotNull
+    @Column(nullable = false, length = 36)
+    private String familia;
+
+    /**
+     * Usuario al que se emitió el token.
+     */
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    @ToString.Exclude
+    private Usuario usuario;
+
+    /**
+     * Instante a partir del cual el token deja de ser válido.
+     */
+    @NotNull
+    @Column(nullable = false)
+    private Instant expiracion;
+
+    /**
+     * Indica si el token ya se ha utilizado para obtener un nuevo par de tokens.
+     */
+    private boolean usado;
+
+    /**
+     * Indica si el token ha sido revocado, por cierre de sesión o por reutilización.
+     */
+    private boolean revocado;
+}
@@ -0,0 +1,59 @@
+package daw2a.gestion_alimentos_api_rest.entities;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Representa un token JWT revocado antes de su expiración, por ejemplo al cerrar sesión, o la revocación de todos
+ * los tokens de un usuario al cambiar su rol o sus credenciales o al eliminarlo.
+ * <p>La tabla es compartida por todas las instancias de la API: cada instancia consulta periódicamente las
+ * revocaciones nuevas, en orden de su identificador, y las añade a su índice local en memoria.</p>
+ */
+@Entity
+@Getter @Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Builder
+@Table(indexes = @Index(name = "idx_token_revocado_expiracion", columnList = "expiracion"))
+public class TokenRevocado {
+
+    /**
+     * Identificador único de la revocación.
+     * <p>Se genera de forma creciente y sirve como número de secuencia para la propagación de cambios.</p>
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Identificador ({@code jti}) del token revocado, o {@code null} si se revocan los tokens de un usuario.
+     */
+    @Column(unique = true)
+    private UUID jti;
+
+    /**
+     * Identificador del usuario cuyos tokens se revocan, o {@code null} si se revoca un único token.
+     */
+    @Column(name = "usuario_id")
+    private Long idUsuario;
+
+    /**
+     * Instante de expiración del token, o de los tokens del usuario, a partir del cual la revocación puede
+     * descartarse.
+     */
+    @NotNull
+    @Column(nullable = false)
+    private Instant expiracion;
+
+    /**
+     * Instante en el que se revocó el token.
+     */
+    @NotNull
+    @Column(nullable = false)
+    private Instant revocadoEn;
+}
@@ -1,11 +1,13 @@
 package daw2a.gestion_alimentos_api_rest.entities;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -25,6 +27,7 @@ import java.util.List;
 @AllArgsConstructor
 @ToString
 @Builder
+@Table(indexes = @Index(name = "idx_ubicacion_tipo_ubicacion", columnList = "tipo_ubicacion"))
 public class Ubicacion {
 
     /**
@@ -45,11 +48,13 @@ public class Ubicacion {
 
     /**
      * Tipo de ubicación.
-     * <p>Indica la categoría general del lugar donde se almacenan productos.
-     * Los valores incluyen "Alacena", "Nevera" o "Congelador".</p>
+     * <p>Indica la categoría general del lugar donde se almacenan productos, definida por la enumeración
+     * {@link TipoUbicacion}.</p>
      */
-    @NotBlank(message = "El tipo de ubicación no puede estar vacío")
-    private String tipoUbicacion;
+    @NotNull(message = "El tipo de ubicación no puede estar vacío")
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private TipoUbicacion tipoUbicacion;
 
     /**
      * Capacidad máxima de almacenamiento.
@@ -60,6 +65,17 @@ public class Ubicacion {
     @NotBlank(message = "La cantidad no puede estar vacía")
     private Long capacidad;
 
+    /**
+     * Capacidad ocupada por las existencias de esta ubicación.
+     * <p>Es un contador que se mantiene con sentencias de actualización condicionales en el repositorio,
+     * de modo que comprobar y reservar capacidad se hace en una única sentencia. Por eso no se actualiza
+     * al guardar la entidad, y puede reconstruirse a partir de las existencias.</p>
+     */
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long ocupado = 0L;
+
     /**
      * Lista de existencias asociadas a esta ubicación.
      * <p>Representa los productos almacenados en esta ubicación. Cada existencia está asociada
@@ -74,4 +74,14 @@ public class Usuario {
     @NotNull(message = "El rol del usuario no puede ser nulo")
     @Enumerated(EnumType.STRING)
     private Rol rol;
+
+    /**
+     * Versión de los tokens del usuario.
+     * <p>Se incluye en cada token JWT emitido y se incrementa cuando cambian el email, la contraseña o el rol
+     * del usuario, de forma que los tokens emitidos con una versión anterior dejan de ser válidos.</p>
+     */
+    @NotNull
+    @Column(nullable = false)
+    @Builder.Default
+    private Long versionToken = 0L;
 }
@@ -0,0 +1,50 @@
+package daw2a.gestion_alimentos_api_rest.enums;
+
+import java.util.Locale;
+
+/**
+ * Enum que define el estado en el que se encuentra un alimento.
+ *
+ * <p><b>Estados disponibles:</b></p>
+ * <ul>
+ *   <li><b>CERRADO:</b> El envase no se ha abierto. Es el estado de los alimentos nuevos.</li>
+ *   <li><b>ABIERTO:</b> El envase se ha abierto.</li>
+ *   <li><b>CONGELADO:</b> El alimento se ha congelado.</li>
+ * </ul>
+ */
+public enum EstadoAlimento {
+
+    /**
+     * El envase del alimento no se ha abierto.
+     */
+    CERRADO,
+
+    /**
+     * El envase del alimento se ha abierto.
+     */
+    ABIERTO,
+
+    /**
+     * El alimento se ha congelado.
+     */
+    CONGELADO;
+
+    /**
+     * Obtiene el estado a partir de su nombre, sin distinguir entre mayúsculas y minúsculas.
+     *
+     * @param valor El nombre del estado.
+     * @return El estado, o {@code null} si el valor es nulo o está vacío.
+     * @throws IllegalArgumentException Si el valor no corresponde a ningún estado.
+     */
+    public static EstadoAlimento desde(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        for (EstadoAlimento estado : values()) {
+            if (estado.name().equals(valor.trim().toUpperCase(Locale.ROOT))) {
+                return estado;
+            }
+        }
+        throw new IllegalArgumentException("El estado del alimento debe ser 'CERRADO', 'ABIERTO' o 'CONGELADO'.");
+    }
+}
@@ -0,0 +1,25 @@
+package daw2a.gestion_alimentos_api_rest.enums;
+
+/**
+ * Enum que define cómo se aplica un lote de operaciones cuando alguna de ellas falla.
+ *
+ * <p><b>Modos disponibles:</b></p>
+ * <ul>
+ *   <li><b>TODO_O_NADA:</b> Si una operación falla, no se aplica ninguna.</li>
+ *   <li><b>POR_ELEMENTO:</b> Se aplican las operaciones válidas y se informa del resultado de cada una.</li>
+ * </ul>
+ */
+public enum ModoLote {
+
+    /**
+     * El lote se aplica completo o no se aplica.
+     * <p>La primera operación que falla rechaza el lote entero.</p>
+     */
+    TODO_O_NADA,
+
+    /**
+     * Cada operación se aplica de forma independiente.
+     * <p>Las operaciones que fallan se omiten y su error se devuelve en el resultado.</p>
+     */
+    POR_ELEMENTO
+}
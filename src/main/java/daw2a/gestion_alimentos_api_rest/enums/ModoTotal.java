@@ -0,0 +1,32 @@
+package daw2a.gestion_alimentos_api_rest.enums;
+
+/**
+ * Enum que define cómo se calcula el total de elementos de un listado paginado.
+ *
+ * <p><b>Modos disponibles:</b></p>
+ * <ul>
+ *   <li><b>EXACTO:</b> Se cuenta el total de elementos con una consulta adicional.</li>
+ *   <li><b>NINGUNO:</b> No se cuenta el total; solo se indica si hay una página siguiente.</li>
+ *   <li><b>APROXIMADO:</b> Como NINGUNO, incluyendo una estimación del total tomada de las estadísticas de la base de datos.</li>
+ * </ul>
+ */
+public enum ModoTotal {
+
+    /**
+     * Se devuelve la página completa de Spring con el total exacto.
+     * <p>Es el modo por defecto, y ejecuta un {@code count} junto a la consulta de la página.</p>
+     */
+    EXACTO,
+
+    /**
+     * Se devuelve una página compacta sin total.
+     * <p>Se consulta un elemento más del tamaño de página para saber si hay página siguiente.</p>
+     */
+    NINGUNO,
+
+    /**
+     * Se devuelve una página compacta con el número aproximado de filas de la tabla.
+     * <p>La estimación procede de las estadísticas del planificador y solo se incluye en los listados sin filtros.</p>
+     */
+    APROXIMADO
+}
@@ -0,0 +1,26 @@
+package daw2a.gestion_alimentos_api_rest.enums;
+
+/**
+ * Enum que define el orden en el que se consumen las existencias de un alimento.
+ *
+ * <p><b>Políticas disponibles:</b></p>
+ * <ul>
+ *   <li><b>FIFO:</b> Se consumen primero las existencias que entraron antes en la ubicación.</li>
+ *   <li><b>FEFO:</b> Se consumen primero las existencias que caducan antes.</li>
+ * </ul>
+ */
+public enum PoliticaConsumo {
+
+    /**
+     * Primero en entrar, primero en salir.
+     * <p>Las existencias se consumen por fecha de entrada ascendente.</p>
+     */
+    FIFO,
+
+    /**
+     * Primero en caducar, primero en salir.
+     * <p>Las existencias se consumen por fecha de caducidad del alimento ascendente y, a igualdad de fecha,
+     * por fecha de entrada.</p>
+     */
+    FEFO
+}
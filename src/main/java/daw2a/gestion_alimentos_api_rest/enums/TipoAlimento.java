@@ -0,0 +1,66 @@
+package daw2a.gestion_alimentos_api_rest.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Locale;
+
+/**
+ * Enum que define si un alimento es perecedero o no.
+ * <p>En la API cada tipo se representa con su etiqueta ("PERECEDERO" o "NO PERECEDERO"), y en la base de datos con
+ * el nombre de la constante.</p>
+ *
+ * <p><b>Tipos disponibles:</b></p>
+ * <ul>
+ *   <li><b>PERECEDERO:</b> Alimento que se estropea en poco tiempo.</li>
+ *   <li><b>NO_PERECEDERO:</b> Alimento que se conserva durante mucho tiempo.</li>
+ * </ul>
+ */
+public enum TipoAlimento {
+
+    /**
+     * Alimento que se estropea en poco tiempo.
+     */
+    PERECEDERO("PERECEDERO"),
+
+    /**
+     * Alimento que se conserva durante mucho tiempo.
+     */
+    NO_PERECEDERO("NO PERECEDERO");
+
+    private final String etiqueta;
+
+    TipoAlimento(String etiqueta) {
+        this.etiqueta = etiqueta;
+    }
+
+    /**
+     * Devuelve la etiqueta con la que se representa el tipo en la API.
+     *
+     * @return La etiqueta del tipo.
+     */
+    @JsonValue
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    /**
+     * Obtiene el tipo de alimento a partir de su etiqueta o del nombre de la constante, sin distinguir entre
+     * mayúsculas y minúsculas.
+     *
+     * @param valor La etiqueta o el nombre del tipo.
+     * @return El tipo de alimento, o {@code null} si el valor es nulo o está vacío.
+     * @throws IllegalArgumentException Si el valor no corresponde a ningún tipo de alimento.
+     */
+    public static TipoAlimento desde(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        String normalizado = valor.trim().toUpperCase(Locale.ROOT).replace('_', ' ');
+        for (TipoAlimento tipo : values()) {
+            if (tipo.etiqueta.equals(normalizado)) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("El tipo de alimento debe ser 'PERECEDERO' o 'NO PERECEDERO'.");
+    }
+}
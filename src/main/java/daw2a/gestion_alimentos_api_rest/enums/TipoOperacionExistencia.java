@@ -0,0 +1,39 @@
+package daw2a.gestion_alimentos_api_rest.enums;
+
+/**
+ * Enum que define las operaciones que pueden incluirse en un lote de operaciones sobre existencias.
+ *
+ * <p><b>Operaciones disponibles:</b></p>
+ * <ul>
+ *   <li><b>CREAR:</b> Registra una nueva existencia de un alimento en una ubicación.</li>
+ *   <li><b>ACTUALIZAR:</b> Modifica la cantidad de una existencia.</li>
+ *   <li><b>MOVER:</b> Cambia una existencia de ubicación.</li>
+ *   <li><b>ELIMINAR:</b> Elimina una existencia.</li>
+ * </ul>
+ */
+public enum TipoOperacionExistencia {
+
+    /**
+     * Registra una nueva existencia.
+     * <p>Requiere el id del alimento, el id de la ubicación y la cantidad.</p>
+     */
+    CREAR,
+
+    /**
+     * Modifica la cantidad de una existencia.
+     * <p>Requiere el id de la existencia y la nueva cantidad.</p>
+     */
+    ACTUALIZAR,
+
+    /**
+     * Cambia una existencia de ubicación.
+     * <p>Requiere el id de la existencia y el id de la ubicación de destino.</p>
+     */
+    MOVER,
+
+    /**
+     * Elimina una existencia.
+     * <p>Requiere el id de la existencia.</p>
+     */
+    ELIMINAR
+}
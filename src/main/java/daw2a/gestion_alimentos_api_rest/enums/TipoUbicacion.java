@@ -0,0 +1,50 @@
+package daw2a.gestion_alimentos_api_rest.enums;
+
+import java.util.Locale;
+
+/**
+ * Enum que define los tipos de ubicación en los que se guardan las existencias.
+ *
+ * <p><b>Tipos disponibles:</b></p>
+ * <ul>
+ *   <li><b>ALACENA:</b> Baldas y estantes a temperatura ambiente.</li>
+ *   <li><b>NEVERA:</b> Bandejas y compartimentos refrigerados.</li>
+ *   <li><b>CONGELADOR:</b> Cajones y compartimentos de congelación.</li>
+ * </ul>
+ */
+public enum TipoUbicacion {
+
+    /**
+     * Ubicación a temperatura ambiente.
+     */
+    ALACENA,
+
+    /**
+     * Ubicación refrigerada.
+     */
+    NEVERA,
+
+    /**
+     * Ubicación de congelación.
+     */
+    CONGELADOR;
+
+    /**
+     * Obtiene el tipo de ubicación a partir de su nombre, sin distinguir entre mayúsculas y minúsculas.
+     *
+     * @param valor El nombre del tipo de ubicación.
+     * @return El tipo de ubicación, o {@code null} si el valor es nulo o está vacío.
+     * @throws IllegalArgumentException Si el valor no corresponde a ningún tipo de ubicación.
+     */
+    public static TipoUbicacion desde(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        for (TipoUbicacion tipo : values()) {
+            if (tipo.name().equals(valor.trim().toUpperCase(Locale.ROOT))) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("El tipo de ubicación debe ser 'ALACENA', 'NEVERA' o 'CONGELADOR'.");
+    }
+}
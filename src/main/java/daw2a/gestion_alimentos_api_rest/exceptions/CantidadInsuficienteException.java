@@ -0,0 +1,18 @@
+package daw2a.gestion_alimentos_api_rest.exceptions;
+
+/**
+ * Excepción personalizada que se lanza cuando no hay cantidad suficiente de un alimento para atender un consumo.
+ * Puede usarse cuando la suma de las existencias de un alimento en una ubicación es menor que la cantidad solicitada.
+ * Extiende de {@link RuntimeException}.
+ */
+public class CantidadInsuficienteException extends RuntimeException {
+
+    /**
+     * Constructor que crea una nueva instancia de la excepción con un mensaje específico.
+     *
+     * @param message El mensaje de error que describe la causa de la excepción.
+     */
+    public CantidadInsuficienteException(String message) {
+        super(message);
+    }
+}
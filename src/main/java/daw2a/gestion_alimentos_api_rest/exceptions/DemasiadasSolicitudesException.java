@@ -0,0 +1,28 @@
+package daw2a.gestion_alimentos_api_rest.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Excepción personalizada que se lanza cuando un cliente o una cuenta supera el número de intentos permitidos.
+ * Puede usarse para limitar los intentos de inicio de sesión repetidos desde un mismo cliente o sobre un mismo email.
+ * Extiende de {@link RuntimeException}.
+ */
+@Getter
+public class DemasiadasSolicitudesException extends RuntimeException {
+
+    /**
+     * Segundos que el cliente debe esperar antes de volver a intentarlo.
+     */
+    private final long segundosEspera;
+
+    /**
+     * Constructor que crea una nueva instancia de la excepción con un mensaje específico.
+     *
+     * @param message El mensaje de error que describe la causa de la excepción.
+     * @param segundosEspera Segundos que el cliente debe esperar antes de volver a intentarlo.
+     */
+    public DemasiadasSolicitudesException(String message, long segundosEspera) {
+        super(message);
+        this.segundosEspera = segundosEspera;
+    }
+}
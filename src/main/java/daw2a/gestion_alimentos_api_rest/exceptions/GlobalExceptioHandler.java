@@ -1,11 +1,13 @@
 package daw2a.gestion_alimentos_api_rest.exceptions;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -68,6 +70,70 @@ public class GlobalExceptioHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
     }
 
+    /**
+     * Manejador para errores de consumo cuando no hay cantidad suficiente de un alimento.
+     * @param ex Excepción lanzada cuando las existencias no cubren la cantidad solicitada
+     * @return Respuesta con el mensaje de error, con código HTTP 409 (Conflict)
+     */
+    @ExceptionHandler(CantidadInsuficienteException.class)
+    public ResponseEntity<String> handleCantidadInsuficienteException(CantidadInsuficienteException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    /**
+     * Manejador para lotes de operaciones rechazados porque una de sus operaciones ha fallado.
+     * @param ex Excepción lanzada cuando falla una operación de un lote aplicado en modo todo o nada
+     * @return Respuesta con el mensaje de error, con el código HTTP correspondiente al error de la operación
+     */
+    @ExceptionHandler(LoteRechazadoException.class)
+    public ResponseEntity<String> handleLoteRechazadoException(LoteRechazadoException ex) {
+        return ResponseEntity.status(ex.getEstado()).body(ex.getMessage());
+    }
+
+    /**
+     * Manejador para errores de tokens JWT no válidos.
+     * @param ex Excepción lanzada cuando el token está mal formado, tiene una firma no válida o ha expirado
+     * @return Respuesta con el mensaje de error, con código HTTP 401 (Unauthorized)
+     */
+    @ExceptionHandler(TokenInvalidoException.class)
+    public ResponseEntity<String> handleTokenInvalidoException(TokenInvalidoException ex) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ex.getMessage());
+    }
+
+    /**
+     * Manejador para errores de tokens de refresco no válidos.
+     * @param ex Excepción lanzada cuando el token de refresco no existe, ha expirado, ha sido revocado o se ha reutilizado
+     * @return Respuesta con el mensaje de error, con código HTTP 401 (Unauthorized)
+     */
+    @ExceptionHandler(TokenRefrescoInvalidoException.class)
+    public ResponseEntity<String> handleTokenRefrescoInvalidoException(TokenRefrescoInvalidoException ex) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ex.getMessage());
+    }
+
+    /**
+     * Manejador para errores de exceso de solicitudes.
+     * @param ex Excepción lanzada cuando se supera el límite de intentos permitidos
+     * @return Respuesta con el mensaje de error y la cabecera Retry-After, con código HTTP 429 (Too Many Requests)
+     */
+    @ExceptionHandler(DemasiadasSolicitudesException.class)
+    public ResponseEntity<String> handleDemasiadasSolicitudesException(DemasiadasSolicitudesException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getSegundosEspera()))
+                .body(ex.getMessage());
+    }
+
+    /**
+     * Manejador para errores de servicio saturado.
+     * @param ex Excepción lanzada cuando el servicio no puede atender más solicitudes
+     * @return Respuesta con el mensaje de error, con código HTTP 503 (Service Unavailable)
+     */
+    @ExceptionHandler(ServicioSaturadoException.class)
+    public ResponseEntity<String> handleServicioSaturadoException(ServicioSaturadoException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
     /**
      * Manejador para errores de elementos no encontrados (como en el caso de NoSuchElementException).
      * @param ex Excepción lanzada cuando no se encuentra el elemento solicitado
@@ -88,6 +154,18 @@ public class GlobalExceptioHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    /**
+     * Manejador para parámetros de la petición que no se pueden convertir al tipo esperado, como un valor
+     * desconocido de un enum.
+     * @param ex Excepción lanzada cuando un parámetro no tiene el formato esperado
+     * @return Respuesta con el mensaje de error, con código HTTP 400 (Bad Request)
+     */
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<String> handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Valor no válido para el parámetro '" + ex.getName() + "': " + ex.getValue());
+    }
+
     /**
      * Manejador para errores generales no especificados.
      * @param ex Excepción general que no ha sido manejada específicamente por otros métodos
@@ -0,0 +1,37 @@
+package daw2a.gestion_alimentos_api_rest.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Excepción personalizada que se lanza cuando una operación de un lote aplicado en modo todo o nada falla,
+ * por lo que no se aplica ninguna operación del lote.
+ * Indica la posición de la operación que ha fallado y el estado HTTP correspondiente a su error.
+ * Extiende de {@link RuntimeException}.
+ */
+@Getter
+public class LoteRechazadoException extends RuntimeException {
+
+    /**
+     * Posición en el lote de la operación que ha fallado.
+     */
+    private final int indice;
+
+    /**
+     * Estado HTTP correspondiente al error de la operación.
+     */
+    private final HttpStatus estado;
+
+    /**
+     * Constructor que crea una nueva instancia de la excepción con un mensaje específico.
+     *
+     * @param indice Posición en el lote de la operación que ha fallado.
+     * @param estado Estado HTTP correspondiente al error de la operación.
+     * @param message El mensaje de error que describe la causa de la excepción.
+     */
+    public LoteRechazadoException(int indice, HttpStatus estado, String message) {
+        super("Operación " + indice + " rechazada, no se ha aplicado el lote: " + message);
+        this.indice = indice;
+        this.estado = estado;
+    }
+}
@@ -0,0 +1,18 @@
+package daw2a.gestion_alimentos_api_rest.exceptions;
+
+/**
+ * Excepción personalizada que se lanza cuando un servicio no puede atender la solicitud por estar saturado.
+ * Puede usarse cuando la cola de inicios de sesión está llena o la espera supera el tiempo máximo permitido.
+ * Extiende de {@link RuntimeException}.
+ */
+public class ServicioSaturadoException extends RuntimeException {
+
+    /**
+     * Constructor que crea una nueva instancia de la excepción con un mensaje específico.
+     *
+     * @param message El mensaje de error que describe la causa de la excepción.
+     */
+    public ServicioSaturadoException(String message) {
+        super(message);
+    }
+}
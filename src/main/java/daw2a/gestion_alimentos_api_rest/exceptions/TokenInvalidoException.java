@@ -0,0 +1,29 @@
+package daw2a.gestion_alimentos_api_rest.exceptions;
+
+/**
+ * Excepción personalizada que se lanza cuando un token JWT está mal formado, tiene una firma no válida o ha expirado.
+ * <p>No captura la traza de la pila, ya que rechazar un token es un caso esperado y frecuente (por ejemplo, bots que
+ * reenvían tokens basura), y se reutilizan instancias compartidas para que el rechazo no reserve memoria.</p>
+ * Extiende de {@link RuntimeException}.
+ */
+public class TokenInvalidoException extends RuntimeException {
+
+    /**
+     * Token cuya estructura no corresponde a un JWS compacto.
+     */
+    public static final TokenInvalidoException MAL_FORMADO = new TokenInvalidoException("Token mal formado");
+
+    /**
+     * Token con una firma no válida, expirado o rechazado anteriormente.
+     */
+    public static final TokenInvalidoException NO_VALIDO = new TokenInvalidoException("Token inválido o expirado");
+
+    /**
+     * Constructor que crea una nueva instancia de la excepción con un mensaje específico, sin traza de la pila.
+     *
+     * @param message El mensaje de error que describe la causa de la excepción.
+     */
+    public TokenInvalidoException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,18 @@
+package daw2a.gestion_alimentos_api_rest.exceptions;
+
+/**
+ * Excepción personalizada que se lanza cuando un token de refresco no existe, ha expirado, ha sido revocado
+ * o se intenta reutilizar.
+ * Extiende de {@link RuntimeException}.
+ */
+public class TokenRefrescoInvalidoException extends RuntimeException {
+
+    /**
+     * Constructor que crea una nueva instancia de la excepción con un mensaje específico.
+     *
+     * @param message El mensaje de error que describe la causa de la excepción.
+     */
+    public TokenRefrescoInvalidoException(String message) {
+        super(message);
+    }
+}
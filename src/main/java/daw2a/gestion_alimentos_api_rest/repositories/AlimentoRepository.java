@@ -1,11 +1,15 @@
 package daw2a.gestion_alimentos_api_rest.repositories;
 
+import daw2a.gestion_alimentos_api_rest.dto.alimento.AlimentoDTO;
 import daw2a.gestion_alimentos_api_rest.entities.Alimento;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Repositorio para gestionar las operaciones CRUD relacionadas con la entidad {@link Alimento}.
@@ -14,15 +18,44 @@ import java.time.LocalDate;
  */
 public interface AlimentoRepository extends JpaRepository<Alimento, Long> {
 
+    String SELECT_DTO = "select new daw2a.gestion_alimentos_api_rest.dto.alimento.AlimentoDTO("
+            + "a.id, a.nombre, a.tipo, a.estado, a.fechaCaducidad) ";
+
+    /**
+     * Lista todos los alimentos de forma paginada, seleccionando directamente los campos de {@link AlimentoDTO}.
+     * <p>Las consultas de listado no cargan entidades, por lo que no pasan por la caché de primer nivel ni por la
+     * comprobación de cambios de la sesión.</p>
+     *
+     * @param pageable Los parámetros de paginación.
+     * @return Una página de alimentos.
+     */
+    @Query(value = SELECT_DTO + "from Alimento a",
+            countQuery = "select count(a) from Alimento a")
+    Page<AlimentoDTO> listarAlimentos(Pageable pageable);
+
     /**
      * Busca alimentos cuyo nombre contenga una cadena de texto, sin distinguir entre mayúsculas y minúsculas.
      * <p>Este método permite realizar búsquedas parciales por el nombre del alimento en el sistema.</p>
      *
-     * @param name El nombre del alimento que se busca (puede ser parcial).
+     * @param nombre El nombre del alimento que se busca (puede ser parcial).
      * @param pageable Los parámetros de paginación.
      * @return Una página de alimentos cuyo nombre contenga la cadena proporcionada.
      */
-    Page<Alimento> findByNombreContainingIgnoreCase(String name, Pageable pageable);
+    @Query(value = SELECT_DTO + "from Alimento a where lower(a.nombre) like lower(concat('%', :nombre, '%'))",
+            countQuery = "select count(a) from Alimento a where lower(a.nombre) like lower(concat('%', :nombre, '%'))")
+    Page<AlimentoDTO> listarPorNombre(String nombre, Pageable pageable);
+
+    /**
+     * Lista los alimentos cuyo nombre contenga una cadena sin calcular el total de resultados.
+     * <p>Al devolver un {@link Slice} no se ejecuta la consulta de recuento: se obtiene un alimento más del tamaño
+     * de página para saber si existe una página siguiente.</p>
+     *
+     * @param nombre La cadena que debe contener el nombre (vacía para no filtrar).
+     * @param pageable Los parámetros de paginación.
+     * @return Los alimentos de la página solicitada.
+     */
+    @Query(SELECT_DTO + "from Alimento a where lower(a.nombre) like lower(concat('%', :nombre, '%'))")
+    Slice<AlimentoDTO> listarSinTotal(String nombre, Pageable pageable);
 
     /**
      * Busca alimentos cuya fecha de caducidad esté dentro de un rango de fechas.
@@ -33,5 +66,54 @@ public interface AlimentoRepository extends JpaRepository<Alimento, Long> {
      * @param pageable Los parámetros de paginación.
      * @return Una página de alimentos cuya fecha de caducidad esté dentro del rango especificado.
      */
-    Page<Alimento> findByFechaCaducidadBetween(LocalDate fechaInicio,  LocalDate fechaFin, Pageable pageable);
+    @Query(value = SELECT_DTO + "from Alimento a where a.fechaCaducidad between :fechaInicio and :fechaFin",
+            countQuery = "select count(a) from Alimento a where a.fechaCaducidad between :fechaInicio and :fechaFin")
+    Page<AlimentoDTO> listarPorFechaCaducidad(LocalDate fechaInicio, LocalDate fechaFin, Pageable pageable);
+
+    /**
+     * Lista los alimentos cuyo nombre contenga una cadena, ordenados por id, a continuación del id indicado.
+     * <p>Se utiliza en la paginación por cursor: la condición sobre el id se resuelve con un recorrido de la clave
+     * primaria desde el último alimento devuelto, sin descartar las filas de las páginas anteriores.</p>
+     *
+     * @param nombre La cadena que debe contener el nombre (vacía para no filtrar).
+     * @param id El id del último alimento de la página anterior.
+     * @param pageable El número máximo de alimentos a obtener.
+     * @return Los alimentos siguientes.
+     */
+    @Query(SELECT_DTO + "from Alimento a where a.id > :id and lower(a.nombre) like lower(concat('%', :nombre, '%')) "
+            + "order by a.id")
+    List<AlimentoDTO> listarPorCursorId(String nombre, Long id, Pageable pageable);
+
+    /**
+     * Lista los alimentos cuyo nombre contenga una cadena, ordenados por nombre e id, a continuación del nombre e id
+     * indicados.
+     * <p>Se utiliza en la paginación por cursor, apoyándose en el índice sobre el nombre y el id.</p>
+     *
+     * @param nombre La cadena que debe contener el nombre (vacía para no filtrar).
+     * @param nombreCursor El nombre del último alimento de la página anterior.
+     * @param id El id del último alimento de la página anterior.
+     * @param pageable El número máximo de alimentos a obtener.
+     * @return Los alimentos siguientes.
+     */
+    @Query(SELECT_DTO + "from Alimento a where (a.nombre, a.id) > (:nombreCursor, :id) "
+            + "and lower(a.nombre) like lower(concat('%', :nombre, '%')) order by a.nombre, a.id")
+    List<AlimentoDTO> listarPorCursorNombre(String nombre, String nombreCursor, Long id, Pageable pageable);
+
+    /**
+     * Lee el id y el nombre de todos los alimentos.
+     * <p>Se utiliza para construir el índice de sugerencias de nombres en memoria.</p>
+     *
+     * @return El id y el nombre de cada alimento.
+     */
+    @Query("select a.id as id, a.nombre as nombre from Alimento a")
+    List<NombreAlimento> listarNombres();
+
+    /**
+     * Proyección con el id y el nombre de un alimento.
+     */
+    interface NombreAlimento {
+        Long getId();
+
+        String getNombre();
+    }
 }
@@ -0,0 +1,57 @@
+package daw2a.gestion_alimentos_api_rest.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio de consulta de las estadísticas que mantiene la base de datos sobre sus tablas.
+ * <p>Permite obtener el número aproximado de filas de una tabla a partir de {@code pg_class.reltuples}, el valor
+ * que usa el planificador de PostgreSQL y que se actualiza con {@code ANALYZE} y el autovacuum. Leerlo no recorre la
+ * tabla, por lo que su coste no depende de su tamaño.</p>
+ *
+ * <p>Con otras bases de datos, o si la tabla aún no tiene estadísticas, no se devuelve estimación.</p>
+ */
+@Repository
+public class EstadisticasRepository {
+
+    private final EntityManager entityManager;
+    private final boolean postgres;
+
+    /**
+     * Constructor que comprueba si la base de datos es PostgreSQL.
+     *
+     * @param entityManager Gestor de entidades compartido.
+     * @param entityManagerFactory Factoría de gestores de entidades, para obtener el dialecto de Hibernate.
+     */
+    public EstadisticasRepository(EntityManager entityManager, EntityManagerFactory entityManagerFactory) {
+        this.entityManager = entityManager;
+        this.postgres = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+
+    /**
+     * Devuelve el número aproximado de filas de una tabla.
+     *
+     * @param tabla Nombre de la tabla.
+     * @return El número estimado de filas, o {@code null} si no hay estimación disponible.
+     */
+    public Long filasAproximadas(String tabla) {
+        if (!postgres) {
+            return null;
+        }
+
+        List<?> filas = entityManager.createNativeQuery(
+                        "select cast(reltuples as bigint) from pg_class where oid = to_regclass(:tabla)")
+                .setParameter("tabla", tabla)
+                .getResultList();
+        if (filas.isEmpty() || ((Number) filas.get(0)).longValue() < 0) {
+            return null;
+        }
+        return ((Number) filas.get(0)).longValue();
+    }
+}
@@ -1,31 +1,61 @@
 package daw2a.gestion_alimentos_api_rest.repositories;
 
+import daw2a.gestion_alimentos_api_rest.dto.existencia.ExistenciaDTO;
+import daw2a.gestion_alimentos_api_rest.dto.existencia.ExistenciaDetallesDTO;
 import daw2a.gestion_alimentos_api_rest.entities.Existencia;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import jakarta.persistence.LockModeType;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio para gestionar las operaciones CRUD relacionadas con la entidad {@link Existencia}.
  * <p>Este repositorio extiende {@link JpaRepository}, proporcionando acceso a los métodos básicos de persistencia
  * y permitiendo la definición de consultas personalizadas para buscar existencias en función de diversos criterios,
  * como el alimento, la ubicación o la fecha de caducidad.</p>
+ *
+ * <p>Las consultas de listado seleccionan directamente las columnas de los DTO de respuesta, uniendo el alimento y la
+ * ubicación en la misma sentencia. No cargan entidades, por lo que no generan consultas adicionales por cada fila ni
+ * pasan por la caché de primer nivel de la sesión.</p>
  */
 public interface ExistenciaRepository extends JpaRepository<Existencia, Long> {
 
+    String SELECT_DTO = "select new daw2a.gestion_alimentos_api_rest.dto.existencia.ExistenciaDTO("
+            + "e.id, a.id, a.nombre, u.id, u.descripcion, e.cantidad, e.fechaEntrada) ";
+
+    String SELECT_DETALLES_DTO = "select new daw2a.gestion_alimentos_api_rest.dto.existencia.ExistenciaDetallesDTO("
+            + "e.id, a.id, a.nombre, a.fechaCaducidad, u.id, u.descripcion, u.tipoUbicacion, e.cantidad, e.fechaEntrada) ";
+
     /**
-     * Busca las existencias de un alimento en una ubicación específica, ordenadas por la fecha de entrada ascendente.
-     * <p>Este método permite obtener las existencias de un alimento en una ubicación particular, ordenadas por la
-     * fecha en la que fueron ingresadas.</p>
+     * Lista todas las existencias de forma paginada.
      *
-     * @param idAlimento El ID del alimento.
-     * @param idUbicacion El ID de la ubicación.
      * @param pageable Los parámetros de paginación.
-     * @return Una página de existencias para el alimento y la ubicación especificados, ordenadas por fecha de entrada.
+     * @return Una página de existencias.
      */
-    Page<Existencia> findByAlimento_IdAndUbicacion_IdOrderByFechaEntradaAsc(Long idAlimento, Long idUbicacion, Pageable pageable);
+    @Query(value = SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u",
+            countQuery = "select count(e) from Existencia e")
+    Page<ExistenciaDTO> listarExistencias(Pageable pageable);
+
+    /**
+     * Busca una existencia por su id, junto con su alimento y su ubicación.
+     *
+     * @param id El ID de la existencia.
+     * @return Un objeto {@link Optional} con la existencia si existe.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"alimento", "ubicacion"})
+    Optional<Existencia> findById(Long id);
 
     /**
      * Busca las existencias de un alimento en una ubicación específica sin ordenarlas por fecha.
@@ -36,7 +66,9 @@ public interface ExistenciaRepository extends JpaRepository<Existencia, Long> {
      * @param pageable Los parámetros de paginación.
      * @return Una página de existencias para el alimento y la ubicación especificados.
      */
-    Page<Existencia> findByAlimento_IdAndUbicacion_Id(Long idAlimento, Long idUbicacion, Pageable pageable);
+    @Query(value = SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u where a.id = :idAlimento and u.id = :idUbicacion",
+            countQuery = "select count(e) from Existencia e where e.alimento.id = :idAlimento and e.ubicacion.id = :idUbicacion")
+    Page<ExistenciaDTO> listarPorAlimentoYUbicacion(Long idAlimento, Long idUbicacion, Pageable pageable);
 
     /**
      * Busca las existencias de un alimento sin importar la ubicación.
@@ -46,7 +78,9 @@ public interface ExistenciaRepository extends JpaRepository<Existencia, Long> {
      * @param pageable Los parámetros de paginación.
      * @return Una página de existencias para el alimento especificado.
      */
-    Page<Existencia> findByAlimento_Id(Long id, Pageable pageable);
+    @Query(value = SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u where a.id = :id",
+            countQuery = "select count(e) from Existencia e where e.alimento.id = :id")
+    Page<ExistenciaDTO> listarPorAlimento(Long id, Pageable pageable);
 
     /**
      * Busca las existencias en una ubicación específica sin importar el alimento.
@@ -56,7 +90,51 @@ public interface ExistenciaRepository extends JpaRepository<Existencia, Long> {
      * @param pageable Los parámetros de paginación.
      * @return Una página de existencias para la ubicación especificada.
      */
-    Page<Existencia> findByUbicacion_Id(Long id, Pageable pageable);
+    @Query(value = SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u where u.id = :id",
+            countQuery = "select count(e) from Existencia e where e.ubicacion.id = :id")
+    Page<ExistenciaDTO> listarPorUbicacion(Long id, Pageable pageable);
+
+    /**
+     * Lista todas las existencias sin calcular el total de resultados.
+     * <p>Al devolver un {@link Slice} no se ejecuta la consulta de recuento: se obtiene una existencia más del
+     * tamaño de página para saber si existe una página siguiente.</p>
+     *
+     * @param pageable Los parámetros de paginación.
+     * @return Las existencias de la página solicitada.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u")
+    Slice<ExistenciaDTO> listarSinTotal(Pageable pageable);
+
+    /**
+     * Lista las existencias de un alimento en una ubicación sin calcular el total de resultados.
+     *
+     * @param idAlimento El ID del alimento.
+     * @param idUbicacion El ID de la ubicación.
+     * @param pageable Los parámetros de paginación.
+     * @return Las existencias del alimento y la ubicación especificados en la página solicitada.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u where a.id = :idAlimento and u.id = :idUbicacion")
+    Slice<ExistenciaDTO> listarPorAlimentoYUbicacionSinTotal(Long idAlimento, Long idUbicacion, Pageable pageable);
+
+    /**
+     * Lista las existencias de un alimento sin calcular el total de resultados.
+     *
+     * @param id El ID del alimento.
+     * @param pageable Los parámetros de paginación.
+     * @return Las existencias del alimento especificado en la página solicitada.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u where a.id = :id")
+    Slice<ExistenciaDTO> listarPorAlimentoSinTotal(Long id, Pageable pageable);
+
+    /**
+     * Lista las existencias de una ubicación sin calcular el total de resultados.
+     *
+     * @param id El ID de la ubicación.
+     * @param pageable Los parámetros de paginación.
+     * @return Las existencias de la ubicación especificada en la página solicitada.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u where u.id = :id")
+    Slice<ExistenciaDTO> listarPorUbicacionSinTotal(Long id, Pageable pageable);
 
     /**
      * Busca las existencias de un alimento cuya fecha de caducidad esté dentro de un rango específico.
@@ -66,18 +144,186 @@ public interface ExistenciaRepository extends JpaRepository<Existencia, Long> {
      * @param fechaInicio La fecha de inicio del rango.
      * @param fechaFin La fecha de fin del rango.
      * @param pageable Los parámetros de paginación.
-     * @return Una página de existencias de alimentos con fechas de caducidad dentro del rango especificado.
+     * @return Una página con los detalles de las existencias de alimentos con fechas de caducidad dentro del rango especificado.
      */
-    Page<Existencia> findByAlimento_FechaCaducidadBetween(LocalDate fechaInicio, LocalDate fechaFin, Pageable pageable);
+    @Query(value = SELECT_DETALLES_DTO + "from Existencia e join e.alimento a join e.ubicacion u where a.fechaCaducidad between :fechaInicio and :fechaFin",
+            countQuery = "select count(e) from Existencia e where e.alimento.fechaCaducidad between :fechaInicio and :fechaFin")
+    Page<ExistenciaDetallesDTO> listarPorFechaCaducidad(LocalDate fechaInicio, LocalDate fechaFin, Pageable pageable);
 
     /**
-     * Busca las existencias en ubicaciones de un tipo específico.
-     * <p>Este método permite obtener las existencias en ubicaciones de un tipo determinado, como "alacena", "nevera" o "congelador".</p>
+     * Obtiene, para cada ubicación, las existencias que caducan antes dentro de un rango de fechas.
+     * <p>Numera las existencias de cada ubicación por fecha de caducidad con la función de ventana
+     * {@code row_number()} y se queda con las primeras, de modo que una ubicación con muchas existencias no deja
+     * fuera a las demás. El filtro por fecha se resuelve con el índice sobre la fecha de caducidad del alimento.</p>
      *
-     * @param tipoUbicacion El tipo de ubicación que se busca (por ejemplo, "ALACENA", "NEVERA", "CONGELADOR").
-     * @param pageable Los parámetros de paginación.
-     * @return Una página de existencias en las ubicaciones del tipo especificado.
+     * @param fechaInicio La fecha de inicio del rango de búsqueda.
+     * @param fechaFin La fecha de fin del rango de búsqueda.
+     * @param limite El número máximo de existencias por ubicación.
+     * @return Las existencias seleccionadas, ordenadas por tipo de ubicación, ubicación y fecha de caducidad.
+     */
+    @Query("""
+            select new daw2a.gestion_alimentos_api_rest.dto.existencia.ExistenciaDetallesDTO(
+                r.id, r.idAlimento, r.nombreAlimento, r.fechaCaducidad, r.idUbicacion, r.descripcionUbicacion,
+                r.tipoUbicacion, r.cantidad, r.fechaEntrada)
+            from (select e.id as id, a.id as idAlimento, a.nombre as nombreAlimento, a.fechaCaducidad as fechaCaducidad,
+                         u.id as idUbicacion, u.descripcion as descripcionUbicacion, u.tipoUbicacion as tipoUbicacion,
+                         e.cantidad as cantidad, e.fechaEntrada as fechaEntrada,
+                         row_number() over (partition by u.id order by a.fechaCaducidad, e.id) as posicion
+                  from Existencia e join e.alimento a join e.ubicacion u
+                  where a.fechaCaducidad between :fechaInicio and :fechaFin) r
+            where r.posicion <= :limite
+            order by r.tipoUbicacion, r.idUbicacion, r.posicion
+            """)
+    List<ExistenciaDetallesDTO> listarCaducanPorUbicacion(LocalDate fechaInicio, LocalDate fechaFin, int limite);
+
+    /**
+     * Busca una existencia por su id y la bloquea hasta el final de la transacción.
+     * <p>Se utiliza al modificar la cantidad o la ubicación de una existencia, para que la capacidad ocupada de
+     * las ubicaciones se actualice a partir de la cantidad vigente.</p>
+     *
+     * @param id El ID de la existencia.
+     * @return Un objeto {@link Optional} con la existencia si existe.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Existencia e where e.id = :id")
+    Optional<Existencia> findConBloqueoById(Long id);
+
+    /**
+     * Busca las existencias de un alimento en una ubicación para consumirlas, bloqueándolas hasta el final de la transacción.
+     * <p>El orden determina en qué secuencia se consumen; el bloqueo impide que dos consumos simultáneos
+     * descuenten la misma cantidad.</p>
+     *
+     * @param idAlimento El ID del alimento.
+     * @param idUbicacion El ID de la ubicación.
+     * @param sort El orden en el que se devuelven las existencias.
+     * @return La lista de existencias del alimento en la ubicación.
      */
-    Page<Existencia> findByUbicacion_TipoUbicacionIgnoreCase(String tipoUbicacion, Pageable pageable);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Existencia e join fetch e.alimento where e.alimento.id = :idAlimento and e.ubicacion.id = :idUbicacion")
+    List<Existencia> findParaConsumo(Long idAlimento, Long idUbicacion, Sort sort);
 
+    /**
+     * Busca varias existencias por su id y las bloquea hasta el final de la transacción.
+     * <p>Las existencias se bloquean en orden de id, para que dos lotes simultáneos no se bloqueen mutuamente.</p>
+     *
+     * @param ids Los IDs de las existencias.
+     * @return La lista de existencias encontradas.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Existencia e where e.id in :ids order by e.id")
+    List<Existencia> findConBloqueoByIdIn(Collection<Long> ids);
+
+    /**
+     * Lista las existencias ordenadas por id, a continuación del id indicado.
+     * <p>Se utiliza en la paginación por cursor: la condición sobre el id se resuelve con un recorrido de la clave
+     * primaria desde la última existencia devuelta.</p>
+     *
+     * @param id El id de la última existencia de la página anterior.
+     * @param pageable El número máximo de existencias a obtener.
+     * @return Las existencias siguientes.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u where e.id > :id order by e.id")
+    List<ExistenciaDTO> listarPorCursorId(Long id, Pageable pageable);
+
+    /**
+     * Lista las existencias de un alimento en una ubicación ordenadas por id, a continuación del id indicado.
+     *
+     * @param idAlimento El ID del alimento.
+     * @param idUbicacion El ID de la ubicación.
+     * @param id El id de la última existencia de la página anterior.
+     * @param pageable El número máximo de existencias a obtener.
+     * @return Las existencias siguientes del alimento y la ubicación especificados.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u "
+            + "where a.id = :idAlimento and u.id = :idUbicacion and e.id > :id order by e.id")
+    List<ExistenciaDTO> listarPorAlimentoYUbicacionPorCursorId(Long idAlimento, Long idUbicacion, Long id,
+                                                               Pageable pageable);
+
+    /**
+     * Lista las existencias de un alimento ordenadas por id, a continuación del id indicado.
+     *
+     * @param idAlimento El ID del alimento.
+     * @param id El id de la última existencia de la página anterior.
+     * @param pageable El número máximo de existencias a obtener.
+     * @return Las existencias siguientes del alimento especificado.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u "
+            + "where a.id = :idAlimento and e.id > :id order by e.id")
+    List<ExistenciaDTO> listarPorAlimentoPorCursorId(Long idAlimento, Long id, Pageable pageable);
+
+    /**
+     * Lista las existencias de una ubicación ordenadas por id, a continuación del id indicado.
+     *
+     * @param idUbicacion El ID de la ubicación.
+     * @param id El id de la última existencia de la página anterior.
+     * @param pageable El número máximo de existencias a obtener.
+     * @return Las existencias siguientes de la ubicación especificada.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u "
+            + "where u.id = :idUbicacion and e.id > :id order by e.id")
+    List<ExistenciaDTO> listarPorUbicacionPorCursorId(Long idUbicacion, Long id, Pageable pageable);
+
+    /**
+     * Lista las existencias ordenadas por fecha de entrada e id, a continuación de la fecha e id indicados.
+     * <p>Se utiliza en la paginación por cursor, apoyándose en el índice sobre la fecha de entrada y el id.</p>
+     *
+     * @param fechaEntrada La fecha de entrada de la última existencia de la página anterior.
+     * @param id El id de la última existencia de la página anterior.
+     * @param pageable El número máximo de existencias a obtener.
+     * @return Las existencias siguientes.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u "
+            + "where (e.fechaEntrada, e.id) > (:fechaEntrada, :id) order by e.fechaEntrada, e.id")
+    List<ExistenciaDTO> listarPorCursorFechaEntrada(LocalDate fechaEntrada, Long id, Pageable pageable);
+
+    /**
+     * Lista las existencias de un alimento en una ubicación ordenadas por fecha de entrada e id, a continuación de
+     * la fecha e id indicados.
+     * <p>Se apoya en el índice sobre el alimento, la ubicación y la fecha de entrada.</p>
+     *
+     * @param idAlimento El ID del alimento.
+     * @param idUbicacion El ID de la ubicación.
+     * @param fechaEntrada La fecha de entrada de la última existencia de la página anterior.
+     * @param id El id de la última existencia de la página anterior.
+     * @param pageable El número máximo de existencias a obtener.
+     * @return Las existencias siguientes del alimento y la ubicación especificados.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u "
+            + "where a.id = :idAlimento and u.id = :idUbicacion and (e.fechaEntrada, e.id) > (:fechaEntrada, :id) "
+            + "order by e.fechaEntrada, e.id")
+    List<ExistenciaDTO> listarPorAlimentoYUbicacionPorCursorFechaEntrada(Long idAlimento, Long idUbicacion,
+                                                                         LocalDate fechaEntrada, Long id,
+                                                                         Pageable pageable);
+
+    /**
+     * Lista las existencias de un alimento ordenadas por fecha de entrada e id, a continuación de la fecha e id
+     * indicados.
+     *
+     * @param idAlimento El ID del alimento.
+     * @param fechaEntrada La fecha de entrada de la última existencia de la página anterior.
+     * @param id El id de la última existencia de la página anterior.
+     * @param pageable El número máximo de existencias a obtener.
+     * @return Las existencias siguientes del alimento especificado.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u "
+            + "where a.id = :idAlimento and (e.fechaEntrada, e.id) > (:fechaEntrada, :id) "
+            + "order by e.fechaEntrada, e.id")
+    List<ExistenciaDTO> listarPorAlimentoPorCursorFechaEntrada(Long idAlimento, LocalDate fechaEntrada, Long id,
+                                                               Pageable pageable);
+
+    /**
+     * Lista las existencias de una ubicación ordenadas por fecha de entrada e id, a continuación de la fecha e id
+     * indicados.
+     *
+     * @param idUbicacion El ID de la ubicación.
+     * @param fechaEntrada La fecha de entrada de la última existencia de la página anterior.
+     * @param id El id de la última existencia de la página anterior.
+     * @param pageable El número máximo de existencias a obtener.
+     * @return Las existencias siguientes de la ubicación especificada.
+     */
+    @Query(SELECT_DTO + "from Existencia e join e.alimento a join e.ubicacion u "
+            + "where u.id = :idUbicacion and (e.fechaEntrada, e.id) > (:fechaEntrada, :id) "
+            + "order by e.fechaEntrada, e.id")
+    List<ExistenciaDTO> listarPorUbicacionPorCursorFechaEntrada(Long idUbicacion, LocalDate fechaEntrada, Long id,
+                                                                Pageable pageable);
 }
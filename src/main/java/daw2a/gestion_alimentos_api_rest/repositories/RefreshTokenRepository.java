@@ -0,0 +1,77 @@
+package daw2a.gestion_alimentos_api_rest.repositories;
+
+import daw2a.gestion_alimentos_api_rest.entities.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repositorio para la entidad {@link RefreshToken}.
+ * Proporciona métodos para la rotación y revocación de los tokens de refresco.
+ */
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Busca un token de refresco por su resumen, cargando también su usuario.
+     *
+     * @param hash El resumen SHA-256 del token.
+     * @return Un objeto {@link Optional} con el token si existe.
+     */
+    @Query("select r from RefreshToken r join fetch r.usuario where r.hash = :hash")
+    Optional<RefreshToken> findByHash(String hash);
+
+    /**
+     * Marca un token como usado solo si todavía no lo estaba ni ha sido revocado.
+     * <p>La condición se evalúa en la propia sentencia, por lo que dos peticiones simultáneas con el mismo
+     * token no pueden rotarlo ambas.</p>
+     *
+     * @param id El identificador del token.
+     * @return 1 si el token se ha marcado como usado, 0 si ya estaba usado o revocado.
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.usado = true where r.id = :id and r.usado = false and r.revocado = false")
+    int marcarUsado(Long id);
+
+    /**
+     * Revoca todos los tokens de una familia de rotación.
+     *
+     * @param familia El identificador de la familia.
+     * @return El número de tokens revocados.
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.revocado = true where r.familia = :familia and r.revocado = false")
+    int revocarFamilia(String familia);
+
+    /**
+     * Revoca todos los tokens de refresco de un usuario.
+     *
+     * @param usuarioId El identificador del usuario.
+     * @return El número de tokens revocados.
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.revocado = true where r.usuario.id = :usuarioId and r.revocado = false")
+    int revocarPorUsuario(Long usuarioId);
+
+    /**
+     * Elimina todos los tokens de refresco de un usuario.
+     *
+     * @param usuarioId El identificador del usuario.
+     * @return El número de tokens eliminados.
+     */
+    @Modifying
+    @Query("delete from RefreshToken r where r.usuario.id = :usuarioId")
+    int eliminarPorUsuario(Long usuarioId);
+
+    /**
+     * Elimina los tokens de refresco expirados.
+     *
+     * @param instante El instante actual.
+     * @return El número de tokens eliminados.
+     */
+    @Modifying
+    @Query("delete from RefreshToken r where r.expiracion < :instante")
+    int eliminarExpirados(Instant instante);
+}
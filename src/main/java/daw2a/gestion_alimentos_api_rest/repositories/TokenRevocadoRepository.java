@@ -0,0 +1,57 @@
+package daw2a.gestion_alimentos_api_rest.repositories;
+
+import daw2a.gestion_alimentos_api_rest.entities.TokenRevocado;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repositorio para la entidad {@link TokenRevocado}.
+ * Proporciona los métodos para registrar revocaciones y leerlas en orden de secuencia.
+ */
+public interface TokenRevocadoRepository extends JpaRepository<TokenRevocado, Long> {
+
+    /**
+     * Comprueba si un token ya ha sido revocado.
+     *
+     * @param jti El identificador del token.
+     * @return {@code true} si el token ya está revocado.
+     */
+    boolean existsByJti(UUID jti);
+
+    /**
+     * Obtiene las revocaciones vigentes con un identificador mayor que el indicado, en orden creciente.
+     *
+     * @param id El identificador a partir del cual se buscan revocaciones.
+     * @param instante El instante actual; se omiten las revocaciones de tokens ya expirados.
+     * @param pageable El número máximo de revocaciones a devolver.
+     * @return Las revocaciones encontradas, ordenadas por identificador.
+     */
+    @Query("select r from TokenRevocado r where r.id > :id and r.expiracion > :instante order by r.id")
+    List<TokenRevocado> buscarDesde(Long id, Instant instante, Pageable pageable);
+
+    /**
+     * Obtiene el menor identificador de las revocaciones registradas a partir de un instante.
+     * <p>Se resuelve con el índice sobre la fecha de revocación.</p>
+     *
+     * @param instante El instante a partir del cual se buscan revocaciones.
+     * @return El identificador, o {@code null} si no hay revocaciones desde ese instante.
+     */
+    @Query("select min(r.id) from TokenRevocado r where r.revocadoEn >= :instante")
+    Long primeroDesde(Instant instante);
+
+    /**
+     * Elimina las revocaciones de tokens ya expirados.
+     *
+     * @param instante El instante actual.
+     * @return El número de revocaciones eliminadas.
+     */
+    @Modifying
+    @Query("delete from TokenRevocado r where r.expiracion <= :instante")
+    int eliminarExpirados(Instant instante);
+}
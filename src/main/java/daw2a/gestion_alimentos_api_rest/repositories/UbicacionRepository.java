@@ -1,9 +1,23 @@
 package daw2a.gestion_alimentos_api_rest.repositories;
 
+import daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionDTO;
+import daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionEspacioDTO;
+import daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionOcupacionDTO;
 import daw2a.gestion_alimentos_api_rest.entities.Ubicacion;
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import jakarta.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio para gestionar las operaciones CRUD relacionadas con la entidad {@link Ubicacion}.
@@ -12,14 +26,243 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface UbicacionRepository extends JpaRepository<Ubicacion, Long> {
 
+    String SELECT_DTO = "select new daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionDTO("
+            + "u.id, u.descripcion, u.tipoUbicacion, u.capacidad) ";
+
+    String SELECT_OCUPACION_DTO = "select new daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionOcupacionDTO("
+            + "u.id, u.descripcion, u.tipoUbicacion, u.capacidad, u.ocupado, u.capacidad - u.ocupado, "
+            + "(select count(e) from Existencia e where e.ubicacion = u)) ";
+
+    String SELECT_ESPACIO_DTO = "select new daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionEspacioDTO("
+            + "u.tipoUbicacion, sum(u.capacidad) - sum(u.ocupado), sum(u.ocupado), sum(u.capacidad)) ";
+
+    /**
+     * Calcula el espacio total, ocupado y disponible de cada tipo de ubicación.
+     * <p>El espacio ocupado se obtiene del contador de capacidad ocupada de cada ubicación, por lo que la consulta
+     * solo agrupa las filas de ubicaciones, sin leer sus existencias.</p>
+     *
+     * @return El espacio de cada tipo de ubicación, ordenado por tipo.
+     */
+    @Query(SELECT_ESPACIO_DTO + "from Ubicacion u group by u.tipoUbicacion order by u.tipoUbicacion")
+    List<UbicacionEspacioDTO> calcularEspacioPorTipo();
+
+    /**
+     * Calcula el espacio total, ocupado y disponible de un tipo de ubicación.
+     *
+     * @param tipoUbicacion El tipo de ubicación.
+     * @return El espacio del tipo de ubicación, o vacío si no hay ubicaciones de ese tipo.
+     */
+    @Query(SELECT_ESPACIO_DTO + "from Ubicacion u where u.tipoUbicacion = :tipoUbicacion group by u.tipoUbicacion")
+    Optional<UbicacionEspacioDTO> calcularEspacioDeTipo(TipoUbicacion tipoUbicacion);
+
+    /**
+     * Lista todas las ubicaciones de forma paginada, seleccionando directamente los campos de {@link UbicacionDTO}.
+     *
+     * @param pageable Los parámetros de paginación.
+     * @return Una página de ubicaciones.
+     */
+    @Query(value = SELECT_DTO + "from Ubicacion u",
+            countQuery = "select count(u) from Ubicacion u")
+    Page<UbicacionDTO> listarUbicaciones(Pageable pageable);
+
     /**
-     * Busca las ubicaciones cuyo tipo contiene una cadena específica, ignorando mayúsculas y minúsculas.
-     * <p>Este método permite realizar búsquedas de ubicaciones que coincidan parcialmente con un tipo de ubicación, sin
-     * tener en cuenta las mayúsculas o minúsculas en la comparación.</p>
+     * Busca las ubicaciones de un tipo, seleccionando directamente los campos de {@link UbicacionDTO}.
+     * <p>La comparación es exacta, por lo que se resuelve con el índice sobre el tipo de ubicación.</p>
      *
-     * @param tipoUbicacion El tipo de ubicación que se busca (puede ser una coincidencia parcial).
+     * @param tipoUbicacion El tipo de ubicación que se busca.
      * @param pageable Los parámetros de paginación.
-     * @return Una página de ubicaciones cuyo tipo contiene la cadena especificada, ignorando mayúsculas y minúsculas.
+     * @return Una página de ubicaciones del tipo especificado.
+     */
+    @Query(value = SELECT_DTO + "from Ubicacion u where u.tipoUbicacion = :tipoUbicacion",
+            countQuery = "select count(u) from Ubicacion u where u.tipoUbicacion = :tipoUbicacion")
+    Page<UbicacionDTO> listarPorTipoUbicacion(TipoUbicacion tipoUbicacion, Pageable pageable);
+
+    /**
+     * Lista todas las ubicaciones sin calcular el total de resultados.
+     * <p>Al devolver un {@link Slice} no se ejecuta la consulta de recuento.</p>
+     *
+     * @param pageable Los parámetros de paginación.
+     * @return Las ubicaciones de la página solicitada.
+     */
+    @Query(SELECT_DTO + "from Ubicacion u")
+    Slice<UbicacionDTO> listarSinTotal(Pageable pageable);
+
+    /**
+     * Lista las ubicaciones de un tipo sin calcular el total de resultados.
+     *
+     * @param tipoUbicacion El tipo de ubicación que se busca.
+     * @param pageable Los parámetros de paginación.
+     * @return Las ubicaciones del tipo especificado en la página solicitada.
+     */
+    @Query(SELECT_DTO + "from Ubicacion u where u.tipoUbicacion = :tipoUbicacion")
+    Slice<UbicacionDTO> listarPorTipoUbicacionSinTotal(TipoUbicacion tipoUbicacion, Pageable pageable);
+
+    /**
+     * Lista todas las ubicaciones junto con su ocupación.
+     * <p>El espacio ocupado y el disponible se obtienen del contador de capacidad ocupada. El número de existencias
+     * se cuenta con una subconsulta por cada ubicación de la página, que usa el índice de existencias por ubicación,
+     * por lo que no se recorren las existencias de las demás ubicaciones ni se ejecuta una consulta adicional.</p>
+     *
+     * @param pageable Los parámetros de paginación.
+     * @return Una página de ubicaciones con su ocupación.
+     */
+    @Query(value = SELECT_OCUPACION_DTO + "from Ubicacion u",
+            countQuery = "select count(u) from Ubicacion u")
+    Page<UbicacionOcupacionDTO> listarConOcupacion(Pageable pageable);
+
+    /**
+     * Lista las ubicaciones de un tipo junto con su ocupación.
+     *
+     * @param tipoUbicacion El tipo de ubicación que se busca.
+     * @param pageable Los parámetros de paginación.
+     * @return Una página de ubicaciones del tipo especificado con su ocupación.
+     */
+    @Query(value = SELECT_OCUPACION_DTO + "from Ubicacion u where u.tipoUbicacion = :tipoUbicacion",
+            countQuery = "select count(u) from Ubicacion u where u.tipoUbicacion = :tipoUbicacion")
+    Page<UbicacionOcupacionDTO> listarPorTipoUbicacionConOcupacion(TipoUbicacion tipoUbicacion, Pageable pageable);
+
+    /**
+     * Lista todas las ubicaciones junto con su ocupación, sin calcular el total de resultados.
+     *
+     * @param pageable Los parámetros de paginación.
+     * @return Las ubicaciones de la página solicitada con su ocupación.
+     */
+    @Query(SELECT_OCUPACION_DTO + "from Ubicacion u")
+    Slice<UbicacionOcupacionDTO> listarConOcupacionSinTotal(Pageable pageable);
+
+    /**
+     * Lista las ubicaciones de un tipo junto con su ocupación, sin calcular el total de resultados.
+     *
+     * @param tipoUbicacion El tipo de ubicación que se busca.
+     * @param pageable Los parámetros de paginación.
+     * @return Las ubicaciones del tipo especificado en la página solicitada con su ocupación.
+     */
+    @Query(SELECT_OCUPACION_DTO + "from Ubicacion u where u.tipoUbicacion = :tipoUbicacion")
+    Slice<UbicacionOcupacionDTO> listarPorTipoUbicacionConOcupacionSinTotal(TipoUbicacion tipoUbicacion, Pageable pageable);
+
+    /**
+     * Reserva capacidad en una ubicación solo si cabe.
+     * <p>La comprobación y la reserva se realizan en la misma sentencia, por lo que dos inserciones simultáneas
+     * no pueden superar la capacidad de la ubicación.</p>
+     *
+     * @param id El identificador de la ubicación.
+     * @param cantidad La cantidad a reservar.
+     * @return 1 si se ha reservado la capacidad, 0 si la ubicación no existe o no tiene espacio suficiente.
+     */
+    @Modifying
+    @Query("update Ubicacion u set u.ocupado = u.ocupado + :cantidad where u.id = :id and u.ocupado + :cantidad <= u.capacidad")
+    int reservarCapacidad(Long id, Long cantidad);
+
+    /**
+     * Libera capacidad previamente reservada en una ubicación.
+     *
+     * @param id El identificador de la ubicación.
+     * @param cantidad La cantidad a liberar.
+     * @return El número de ubicaciones actualizadas.
+     */
+    @Modifying
+    @Query("update Ubicacion u set u.ocupado = u.ocupado - :cantidad where u.id = :id")
+    int liberarCapacidad(Long id, Long cantidad);
+
+    /**
+     * Libera la capacidad ocupada por todas las existencias de un alimento, en cada una de sus ubicaciones.
+     * <p>Debe ejecutarse antes de eliminar las existencias del alimento.</p>
+     *
+     * @param idAlimento El identificador del alimento.
+     * @return El número de ubicaciones actualizadas.
+     */
+    @Modifying
+    @Query("""
+            update Ubicacion u set u.ocupado = u.ocupado - coalesce(
+                (select sum(e.cantidad) from Existencia e where e.ubicacion = u and e.alimento.id = :idAlimento), 0)
+            where u.id in (select e.ubicacion.id from Existencia e where e.alimento.id = :idAlimento)
+            """)
+    int liberarCapacidadDeAlimento(Long idAlimento);
+
+    /**
+     * Obtiene los identificadores de todas las ubicaciones, en orden creciente.
+     *
+     * @return Los identificadores de las ubicaciones.
+     */
+    @Query("select u.id from Ubicacion u order by u.id")
+    List<Long> listarIds();
+
+    /**
+     * Reconstruye la capacidad ocupada de una ubicación a partir de sus existencias.
+     * <p>La ubicación debe estar bloqueada antes, para que la suma incluya todas las existencias confirmadas
+     * y ninguna operación la modifique mientras tanto.</p>
+     *
+     * @param id El identificador de la ubicación.
+     * @return El número de ubicaciones actualizadas.
+     */
+    @Modifying
+    @Query("update Ubicacion u set u.ocupado = coalesce((select sum(e.cantidad) from Existencia e where e.ubicacion = u), 0) where u.id = :id")
+    int recalcularOcupacion(Long id);
+
+    /**
+     * Ajusta la capacidad ocupada de una ubicación sin comprobar su capacidad.
+     * <p>Se utiliza cuando la capacidad ya se ha comprobado con la ubicación bloqueada.</p>
+     *
+     * @param id El identificador de la ubicación.
+     * @param diferencia La cantidad a sumar a la capacidad ocupada, negativa si se libera capacidad.
+     * @return El número de ubicaciones actualizadas.
+     */
+    @Modifying
+    @Query("update Ubicacion u set u.ocupado = u.ocupado + :diferencia where u.id = :id")
+    int ajustarOcupacion(Long id, Long diferencia);
+
+    /**
+     * Busca varias ubicaciones por su id y las bloquea hasta el final de la transacción.
+     * <p>Las ubicaciones se bloquean en orden de id, para que dos lotes simultáneos no se bloqueen mutuamente.</p>
+     *
+     * @param ids Los identificadores de las ubicaciones.
+     * @return La lista de ubicaciones encontradas.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from Ubicacion u where u.id in :ids order by u.id")
+    List<Ubicacion> findConBloqueoByIdIn(Collection<Long> ids);
+
+    /**
+     * Lee la capacidad y la capacidad ocupada de varias ubicaciones directamente de la base de datos.
+     * <p>A diferencia de las entidades ya cargadas, refleja los cambios confirmados hasta el momento de la consulta.</p>
+     *
+     * @param ids Los identificadores de las ubicaciones.
+     * @return La capacidad y la capacidad ocupada de cada ubicación.
+     */
+    @Query("select u.id as id, u.capacidad as capacidad, u.ocupado as ocupado from Ubicacion u where u.id in :ids")
+    List<Ocupacion> findOcupacionByIdIn(Collection<Long> ids);
+
+    /**
+     * Proyección con la capacidad y la capacidad ocupada de una ubicación.
+     */
+    interface Ocupacion {
+        Long getId();
+
+        Long getCapacidad();
+
+        Long getOcupado();
+    }
+
+    /**
+     * Lista las ubicaciones ordenadas por id, a continuación del id indicado.
+     * <p>Se utiliza en la paginación por cursor: la condición sobre el id se resuelve con un recorrido de la clave
+     * primaria desde la última ubicación devuelta.</p>
+     *
+     * @param id El id de la última ubicación de la página anterior.
+     * @param pageable El número máximo de ubicaciones a obtener.
+     * @return Las ubicaciones siguientes.
+     */
+    @Query(SELECT_DTO + "from Ubicacion u where u.id > :id order by u.id")
+    List<UbicacionDTO> listarPorCursorId(Long id, Pageable pageable);
+
+    /**
+     * Lista las ubicaciones de un tipo ordenadas por id, a continuación del id indicado.
+     *
+     * @param tipoUbicacion El tipo de ubicación que se busca.
+     * @param id El id de la última ubicación de la página anterior.
+     * @param pageable El número máximo de ubicaciones a obtener.
+     * @return Las ubicaciones siguientes del tipo especificado.
      */
-    Page<Ubicacion> findByTipoUbicacionContainingIgnoreCase(String tipoUbicacion, Pageable pageable);
+    @Query(SELECT_DTO + "from Ubicacion u where u.tipoUbicacion = :tipoUbicacion and u.id > :id order by u.id")
+    List<UbicacionDTO> listarPorTipoUbicacionPorCursorId(TipoUbicacion tipoUbicacion, Long id, Pageable pageable);
 }
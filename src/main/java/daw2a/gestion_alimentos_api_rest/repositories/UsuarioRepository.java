@@ -1,10 +1,14 @@
 package daw2a.gestion_alimentos_api_rest.repositories;
 
+import daw2a.gestion_alimentos_api_rest.dto.usuario.UsuarioDTO;
 import daw2a.gestion_alimentos_api_rest.entities.Usuario;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -14,6 +18,8 @@ import java.util.Optional;
  */
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
+    String SELECT_DTO = "select new daw2a.gestion_alimentos_api_rest.dto.usuario.UsuarioDTO(u.id, u.nombre, u.email) ";
+
     /**
      * Busca un usuario por su correo electrónico.
      * <p>Este método permite recuperar un usuario específico en función de su dirección de correo electrónico.</p>
@@ -32,5 +38,54 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      * @param pageable Los parámetros de paginación.
      * @return Una página de usuarios cuyo nombre contiene la cadena especificada, ignorando mayúsculas y minúsculas.
      */
-    Page<Usuario> findByNombreContainingIgnoreCase(String nombre, Pageable pageable);
+    @Query(value = SELECT_DTO + "from Usuario u where lower(u.nombre) like lower(concat('%', :nombre, '%'))",
+            countQuery = "select count(u) from Usuario u where lower(u.nombre) like lower(concat('%', :nombre, '%'))")
+    Page<UsuarioDTO> listarPorNombre(String nombre, Pageable pageable);
+
+    /**
+     * Lista todos los usuarios de forma paginada.
+     * <p>Selecciona únicamente los campos de {@link UsuarioDTO}: no se leen el hash de la contraseña ni el resto
+     * de columnas de la entidad.</p>
+     *
+     * @param pageable Los parámetros de paginación.
+     * @return Una página de usuarios.
+     */
+    @Query(value = SELECT_DTO + "from Usuario u",
+            countQuery = "select count(u) from Usuario u")
+    Page<UsuarioDTO> listarUsuarios(Pageable pageable);
+
+    /**
+     * Lista los usuarios cuyo nombre contenga una cadena sin calcular el total de resultados.
+     * <p>Al devolver un {@link Slice} no se ejecuta la consulta de recuento.</p>
+     *
+     * @param nombre La cadena que debe contener el nombre (vacía para no filtrar).
+     * @param pageable Los parámetros de paginación.
+     * @return Los usuarios de la página solicitada.
+     */
+    @Query(SELECT_DTO + "from Usuario u where lower(u.nombre) like lower(concat('%', :nombre, '%'))")
+    Slice<UsuarioDTO> listarSinTotal(String nombre, Pageable pageable);
+
+    /**
+     * Obtiene únicamente la versión de los tokens de un usuario.
+     * <p>Este método permite comprobar la vigencia de un token sin cargar la entidad completa.</p>
+     *
+     * @param id El identificador del usuario.
+     * @return Un objeto {@link Optional} con la versión de los tokens, o vacío si el usuario no existe.
+     */
+    @Query("select u.versionToken from Usuario u where u.id = :id")
+    Optional<Long> findVersionTokenById(Long id);
+
+    /**
+     * Lista los usuarios cuyo nombre contenga una cadena, ordenados por id, a continuación del id indicado.
+     * <p>Se utiliza en la paginación por cursor: la condición sobre el id se resuelve con un recorrido de la clave
+     * primaria desde el último usuario devuelto.</p>
+     *
+     * @param nombre La cadena que debe contener el nombre (vacía para no filtrar).
+     * @param id El id del último usuario de la página anterior.
+     * @param pageable El número máximo de usuarios a obtener.
+     * @return Los usuarios siguientes.
+     */
+    @Query(SELECT_DTO + "from Usuario u where u.id > :id and lower(u.nombre) like lower(concat('%', :nombre, '%')) "
+            + "order by u.id")
+    List<UsuarioDTO> listarPorCursorId(String nombre, Long id, Pageable pageable);
 }
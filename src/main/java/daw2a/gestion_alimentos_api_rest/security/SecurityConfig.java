@@ -1,10 +1,14 @@
 package daw2a.gestion_alimentos_api_rest.security;
 
 import daw2a.gestion_alimentos_api_rest.security.jwt.JwtRequestFilter;
+import daw2a.gestion_alimentos_api_rest.security.user.CachingAuthenticationProvider;
 import daw2a.gestion_alimentos_api_rest.security.user.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -16,6 +20,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+
 /**
  * Configuración de seguridad de la aplicación.
  * Esta clase define la configuración de seguridad utilizando Spring Security, incluyendo la protección de endpoints,
@@ -53,6 +59,26 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Bean para definir el proveedor de autenticación por usuario y contraseña.
+     * <p>Comprueba las credenciales con BCrypt mediante un {@link DaoAuthenticationProvider} y guarda durante un
+     * tiempo corto las credenciales ya verificadas, de modo que los clientes que usan HTTP Basic en cada petición
+     * no ejecutan BCrypt en todas ellas.</p>
+     *
+     * @param maxEntradas Número máximo de credenciales verificadas en memoria.
+     * @param ttl Tiempo durante el que una credencial verificada se mantiene en caché.
+     * @param meterRegistry Registro de métricas de la aplicación.
+     * @return El proveedor de autenticación configurado.
+     */
+    @Bean
+    public CachingAuthenticationProvider authenticationProvider(@Value("${autenticacion.cache.max-entradas:10000}") long maxEntradas,
+                                                                @Value("${autenticacion.cache.ttl:2m}") Duration ttl,
+                                                                MeterRegistry meterRegistry) {
+        DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider(passwordEncoder());
+        daoAuthenticationProvider.setUserDetailsService(customUserDetailsService);
+        return new CachingAuthenticationProvider(daoAuthenticationProvider, customUserDetailsService, maxEntradas, ttl, meterRegistry);
+    }
+
     /**
      * Bean para crear el {@link AuthenticationManager} a partir de la configuración de autenticación.
      *
@@ -78,12 +104,14 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable) // Deshabilitar CSRF
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/auth/authenticate", "/auth/register").permitAll()
+                        .requestMatchers("/auth/authenticate", "/auth/register", "/auth/refresh").permitAll()
                         .requestMatchers("/alimentos/**").hasAnyRole("USUARIO","ADMINISTRADOR")
                         .requestMatchers("/existencias/**").hasAnyRole("ADMINISTRADOR", "USUARIO")
                         .requestMatchers(("/ubicaciones/**")).hasAnyRole("ADMINISTRADOR","USUARIO")
                         .requestMatchers("/usuarios/vista").hasRole("ADMINISTRADOR")
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMINISTRADOR")
                         .anyRequest().authenticated() // Requiere autenticación para otras rutas
                 )
                 .httpBasic(Customizer.withDefaults()) // Habilitar Basic Authentication
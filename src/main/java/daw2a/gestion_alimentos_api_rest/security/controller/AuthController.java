@@ -2,10 +2,16 @@ package daw2a.gestion_alimentos_api_rest.security.controller;
 
 import daw2a.gestion_alimentos_api_rest.dto.usuario.CrearUsuarioDTO;
 import daw2a.gestion_alimentos_api_rest.entities.Usuario;
+import daw2a.gestion_alimentos_api_rest.exceptions.TokenInvalidoException;
+import daw2a.gestion_alimentos_api_rest.exceptions.TokenRefrescoInvalidoException;
 import daw2a.gestion_alimentos_api_rest.security.dto.AuthResponse;
 import daw2a.gestion_alimentos_api_rest.security.dto.LoginUsuarioDTO;
+import daw2a.gestion_alimentos_api_rest.security.dto.RefreshTokenDTO;
+import daw2a.gestion_alimentos_api_rest.security.jwt.JwtClaims;
 import daw2a.gestion_alimentos_api_rest.security.jwt.JwtUtil;
+import daw2a.gestion_alimentos_api_rest.security.login.LoginAdmissionControl;
 import daw2a.gestion_alimentos_api_rest.security.user.CustomUserDetails;
+import daw2a.gestion_alimentos_api_rest.services.RefreshTokenService;
 import daw2a.gestion_alimentos_api_rest.services.TokenBlacklistService;
 import daw2a.gestion_alimentos_api_rest.services.UsuarioService;
 import jakarta.servlet.http.Cookie;
@@ -21,6 +27,10 @@ import org.springframework.web.bind.annotation.*;
 /**
  * Controlador encargado de gestionar la autenticación, el registro de usuarios y el cierre de sesión.
  * Utiliza JWT para la autenticación y maneja las cookies de sesión de los usuarios.
+ *
+ * <p>Los tokens de acceso son de corta duración. Junto a cada uno se entrega un token de refresco rotatorio
+ * (en el cuerpo y en la cookie {@code refresh}) con el que obtener un nuevo par de tokens en {@code /auth/refresh}
+ * sin volver a comprobar la contraseña.</p>
  */
 @RestController
 @RequestMapping("/auth")
@@ -30,6 +40,8 @@ public class AuthController {
     private final JwtUtil jwtUtil;
     private final UsuarioService usuarioService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final LoginAdmissionControl loginAdmissionControl;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * Constructor que inyecta las dependencias necesarias para la autenticación y el registro de usuarios.
@@ -38,50 +50,78 @@ public class AuthController {
      * @param jwtUtil Utilidad para generar y validar tokens JWT.
      * @param usuarioService Servicio para gestionar los usuarios.
      * @param tokenBlacklistService Servicio para gestionar la lista negra de tokens.
+     * @param loginAdmissionControl Control de admisión que limita y ejecuta los inicios de sesión.
+     * @param refreshTokenService Servicio para emitir, rotar y revocar los tokens de refresco.
      */
-    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil, UsuarioService usuarioService, TokenBlacklistService tokenBlacklistService) {
+    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil, UsuarioService usuarioService,
+                          TokenBlacklistService tokenBlacklistService, LoginAdmissionControl loginAdmissionControl,
+                          RefreshTokenService refreshTokenService) {
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
         this.usuarioService = usuarioService;
         this.tokenBlacklistService = tokenBlacklistService;
+        this.loginAdmissionControl = loginAdmissionControl;
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
-     * Endpoint para autenticar a un usuario y generar un token JWT.
-     * <p>El token se devuelve en la respuesta y se guarda en una cookie HTTP para el cliente.</p>
+     * Endpoint para autenticar a un usuario y generar un token JWT y un token de refresco.
+     * <p>Los tokens se devuelven en la respuesta y se guardan en cookies HTTP para el cliente.</p>
+     * <p>La comprobación de credenciales pasa por el {@link LoginAdmissionControl}, que aplica los límites de
+     * intentos por email y por cliente y la ejecuta en un pool dedicado.</p>
      *
      * @param request Datos de inicio de sesión del usuario (email y contraseña).
-     * @param response La respuesta HTTP donde se añadirá la cookie con el token JWT.
-     * @return Un objeto {@link AuthResponse} que contiene el token JWT generado.
+     * @param httpRequest La solicitud HTTP, de la que se obtiene la dirección del cliente.
+     * @param response La respuesta HTTP donde se añadirán las cookies con los tokens.
+     * @return Un objeto {@link AuthResponse} que contiene el token JWT y el token de refresco generados.
      */
     @PostMapping("/authenticate")
-    public AuthResponse authenticate(@RequestBody LoginUsuarioDTO request, HttpServletResponse response) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
-        String token = jwtUtil.generateToken((CustomUserDetails) authentication.getPrincipal());
+    public AuthResponse authenticate(@RequestBody LoginUsuarioDTO request, HttpServletRequest httpRequest, HttpServletResponse response) {
+        Authentication authentication = loginAdmissionControl.ejecutar(request.getEmail(), httpRequest.getRemoteAddr(),
+                () -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())));
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
 
-        //Crear la cookie
-        Cookie jwtCookie = new Cookie("jwt", token);
-        jwtCookie.setHttpOnly(true); // Solo accesible desde el servidor
-        jwtCookie.setSecure(true); // Solo en conexiones HTTPS
-        jwtCookie.setPath("/"); // Disponible para toda la aplicación
-        jwtCookie.setMaxAge(60 * 60 * 10); // Validez de 10 horas
+        return emitirTokens(userDetails.getUsuario(), response);
+    }
 
-        // Agregar la cookie a la respuesta
-        response.addCookie(jwtCookie);
-        return new AuthResponse(token);
+    /**
+     * Endpoint para renovar la sesión a partir de un token de refresco.
+     * <p>El token de refresco se lee del cuerpo de la solicitud o, si no se envía, de la cookie {@code refresh}.
+     * Se invalida y se sustituye por uno nuevo junto con un nuevo token JWT. No se comprueba la contraseña.</p>
+     *
+     * @param body Cuerpo opcional con el token de refresco.
+     * @param request La solicitud HTTP, que puede contener el token de refresco en una cookie.
+     * @param response La respuesta HTTP donde se añadirán las cookies con los nuevos tokens.
+     * @return Un objeto {@link AuthResponse} con el nuevo token JWT y el nuevo token de refresco.
+     * @throws TokenRefrescoInvalidoException Si el token de refresco no es válido o ya se había usado.
+     */
+    @PostMapping("/refresh")
+    public AuthResponse refresh(@RequestBody(required = false) RefreshTokenDTO body, HttpServletRequest request, HttpServletResponse response) {
+        String refreshToken = obtenerRefreshToken(body, request);
+        if (refreshToken == null) {
+            throw new TokenRefrescoInvalidoException("No se encontró un token de refresco.");
+        }
+
+        RefreshTokenService.Rotacion rotacion = refreshTokenService.rotar(refreshToken);
+        String token = jwtUtil.generateToken(new CustomUserDetails(rotacion.usuario()));
+
+        agregarCookies(token, rotacion.token(), response);
+        return new AuthResponse(token, rotacion.token());
     }
 
     /**
      * Endpoint para cerrar sesión de un usuario.
-     * <p>El token JWT es añadido a la lista negra y la cookie con el token se elimina.</p>
+     * <p>El token JWT es añadido a la lista negra, se revoca la familia del token de refresco y se eliminan
+     * las cookies con ambos tokens.</p>
      *
+     * @param body Cuerpo opcional con el token de refresco.
      * @param request La solicitud HTTP que puede contener un token en el encabezado de autorización o en la cookie.
      * @param response La respuesta HTTP donde se eliminará la cookie con el token.
      * @return Una respuesta indicando si el cierre de sesión fue exitoso o si no se encontró un token válido.
      */
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
+    public ResponseEntity<?> logout(@RequestBody(required = false) RefreshTokenDTO body, HttpServletRequest request, HttpServletResponse response) {
         // Manejar el token desde el encabezado Authorization
         String authorizationHeader = request.getHeader("Authorization");
         String jwt = null;
@@ -101,15 +141,32 @@ public class AuthController {
 
         // Si se encuentra el token, añadirlo a la blacklist
         if (jwt != null) {
-            tokenBlacklistService.addTokenToBlacklist(jwt);
+            try {
+                JwtClaims claims = jwtUtil.parseToken(jwt);
+                tokenBlacklistService.addTokenToBlacklist(claims.getJti(), claims.getExpiration());
+            } catch (TokenInvalidoException e) {
+                // El token ya no es válido, por lo que no es necesario añadirlo a la blacklist
+            }
+
+            // Revocar la sesión de refresco
+            String refreshToken = obtenerRefreshToken(body, request);
+            if (refreshToken != null) {
+                refreshTokenService.revocar(refreshToken);
+            }
 
-            // Eliminar la cookie
+            // Eliminar las cookies
             Cookie jwtCookie = new Cookie("jwt", null);
             jwtCookie.setPath("/");
             jwtCookie.setHttpOnly(true);
             jwtCookie.setMaxAge(0); // Caducar inmediatamente
             response.addCookie(jwtCookie);
 
+            Cookie refreshCookie = new Cookie("refresh", null);
+            refreshCookie.setPath("/auth");
+            refreshCookie.setHttpOnly(true);
+            refreshCookie.setMaxAge(0);
+            response.addCookie(refreshCookie);
+
             return ResponseEntity.ok("Logout exitoso. Token añadido a la blacklist y cookie eliminada.");
         }
 
@@ -119,20 +176,82 @@ public class AuthController {
     /**
      * Endpoint para registrar un nuevo usuario.
      *
-     * <p>El usuario es creado en la base de datos y se genera un token JWT para su autenticación.</p>
+     * <p>El usuario es creado en la base de datos y se genera un token JWT para su autenticación,
+     * junto con su token de refresco.</p>
      *
      * @param crearUsuarioDTO Los datos necesarios para crear un nuevo usuario (nombre, email, contraseña, etc.).
+     * @param response La respuesta HTTP donde se añadirán las cookies con los tokens.
      * @return Un objeto {@link AuthResponse} que contiene el token JWT generado para el nuevo usuario.
      */
     @PostMapping("/register")
-    public AuthResponse register(@RequestBody @Valid CrearUsuarioDTO crearUsuarioDTO) {
+    public AuthResponse register(@RequestBody @Valid CrearUsuarioDTO crearUsuarioDTO, HttpServletResponse response) {
         // Registrar usuario usando el servicio
         Usuario nuevoUsuario = usuarioService.registrarUsuario(crearUsuarioDTO);
 
-        // Generar token JWT para el nuevo usuario
-        String token = jwtUtil.generateToken(new CustomUserDetails(nuevoUsuario));
+        // Generar los tokens para el nuevo usuario
+        return emitirTokens(nuevoUsuario, response);
+    }
 
-        // Devolver el token en la respuesta
-        return new AuthResponse(token);
+    /**
+     * Genera un token JWT y un token de refresco de una familia nueva, y los añade como cookies a la respuesta.
+     *
+     * @param usuario El usuario que inicia sesión.
+     * @param response La respuesta HTTP donde se añadirán las cookies.
+     * @return Un objeto {@link AuthResponse} con ambos tokens.
+     */
+    private AuthResponse emitirTokens(Usuario usuario, HttpServletResponse response) {
+        String token = jwtUtil.generateToken(new CustomUserDetails(usuario));
+        String refreshToken = refreshTokenService.emitir(usuario);
+
+        agregarCookies(token, refreshToken, response);
+        return new AuthResponse(token, refreshToken);
+    }
+
+    /**
+     * Añade a la respuesta las cookies con el token JWT y el token de refresco.
+     *
+     * @param token El token JWT.
+     * @param refreshToken El token de refresco.
+     * @param response La respuesta HTTP.
+     */
+    private void agregarCookies(String token, String refreshToken, HttpServletResponse response) {
+        //Crear la cookie
+        Cookie jwtCookie = new Cookie("jwt", token);
+        jwtCookie.setHttpOnly(true); // Solo accesible desde el servidor
+        jwtCookie.setSecure(true); // Solo en conexiones HTTPS
+        jwtCookie.setPath("/"); // Disponible para toda la aplicación
+        jwtCookie.setMaxAge((int) jwtUtil.getJwtExpiration().toSeconds()); // Misma validez que el token
+
+        // El token de refresco solo se envía a los endpoints de autenticación
+        Cookie refreshCookie = new Cookie("refresh", refreshToken);
+        refreshCookie.setHttpOnly(true);
+        refreshCookie.setSecure(true);
+        refreshCookie.setPath("/auth");
+        refreshCookie.setMaxAge((int) refreshTokenService.getExpiracion().toSeconds());
+
+        // Agregar las cookies a la respuesta
+        response.addCookie(jwtCookie);
+        response.addCookie(refreshCookie);
+    }
+
+    /**
+     * Obtiene el token de refresco del cuerpo de la solicitud o, si no se envía, de la cookie {@code refresh}.
+     *
+     * @param body Cuerpo opcional con el token de refresco.
+     * @param request La solicitud HTTP.
+     * @return El token de refresco, o null si no se encuentra.
+     */
+    private String obtenerRefreshToken(RefreshTokenDTO body, HttpServletRequest request) {
+        if (body != null && body.getRefreshToken() != null && !body.getRefreshToken().isBlank()) {
+            return body.getRefreshToken();
+        }
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if ("refresh".equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
     }
 }
@@ -5,7 +5,8 @@ import lombok.Data;
 /**
  * Clase DTO (Data Transfer Object) que representa la respuesta de autenticación que contiene el token JWT.
  *
- * <p>Esta clase es utilizada para enviar el token JWT al cliente después de una autenticación exitosa.</p>
+ * <p>Esta clase es utilizada para enviar el token JWT al cliente después de una autenticación exitosa,
+ * junto con el token de refresco con el que renovarlo.</p>
  */
 @Data
 public class AuthResponse {
@@ -15,6 +16,11 @@ public class AuthResponse {
      */
     private String token;
 
+    /**
+     * El token de refresco que permite obtener un nuevo token JWT cuando este expire.
+     */
+    private String refreshToken;
+
     /**
      * Constructor vacío.
      * Este constructor es necesario para la deserialización automática del objeto desde JSON.
@@ -31,4 +37,15 @@ public class AuthResponse {
         this.token = token;
     }
 
+    /**
+     * Constructor que inicializa el token JWT y el token de refresco.
+     *
+     * @param token El token JWT generado.
+     * @param refreshToken El token de refresco generado.
+     */
+    public AuthResponse(String token, String refreshToken) {
+        this.token = token;
+        this.refreshToken = refreshToken;
+    }
+
 }
@@ -0,0 +1,22 @@
+package daw2a.gestion_alimentos_api_rest.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO (Data Transfer Object) para refrescar la sesión o cerrarla.
+ *
+ * <p>Permite a los clientes que no usan cookies enviar el token de refresco en el cuerpo de la solicitud.</p>
+ */
+@Setter
+@Getter
+@NoArgsConstructor @AllArgsConstructor
+public class RefreshTokenDTO {
+
+    /**
+     * Token de refresco obtenido al iniciar sesión o en el último refresco.
+     */
+    private String refreshToken;
+}
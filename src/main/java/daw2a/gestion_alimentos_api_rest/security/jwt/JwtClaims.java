@@ -0,0 +1,91 @@
+package daw2a.gestion_alimentos_api_rest.security.jwt;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Vista inmutable de los claims de un token JWT ya verificado.
+ *
+ * <p>Se obtiene una única vez por token mediante {@link JwtUtil#parseToken(String)} y contiene solo
+ * los datos que necesita la aplicación, de forma que el filtro de seguridad no tenga que volver a
+ * analizar ni verificar la firma del token para consultar cada claim.</p>
+ */
+@Getter
+public final class JwtClaims {
+
+    /**
+     * Nombre de usuario (subject) del token, que coincide con el email del usuario.
+     */
+    private final String username;
+
+    /**
+     * Identificador único del token ({@code jti}), utilizado para revocarlo.
+     */
+    private final String jti;
+
+    /**
+     * Instante de emisión del token.
+     */
+    private final Instant issuedAt;
+
+    /**
+     * Instante de expiración del token.
+     */
+    private final Instant expiration;
+
+    /**
+     * Identificador del usuario (claim {@code uid}), o {@code null} si el token no lo incluye.
+     */
+    private final Long userId;
+
+    /**
+     * Rol del usuario (claim {@code rol}), o {@code null} si el token no lo incluye.
+     */
+    private final String rol;
+
+    /**
+     * Versión de los tokens del usuario en el momento de emitir el token (claim {@code ver}).
+     */
+    private final Long version;
+
+    /**
+     * Constructor que inicializa la vista con los claims verificados.
+     *
+     * @param username El nombre de usuario (subject) del token.
+     * @param jti El identificador único del token.
+     * @param issuedAt El instante de emisión del token.
+     * @param expiration El instante de expiración del token.
+     * @param userId El identificador del usuario.
+     * @param rol El rol del usuario.
+     * @param version La versión de los tokens del usuario.
+     */
+    public JwtClaims(String username, String jti, Instant issuedAt, Instant expiration,
+                     Long userId, String rol, Long version) {
+        this.username = username;
+        this.jti = jti;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+        this.userId = userId;
+        this.rol = rol;
+        this.version = version;
+    }
+
+    /**
+     * Indica si el token contiene los claims necesarios para autenticar sin consultar la base de datos.
+     *
+     * @return {@code true} si el token incluye el id, el rol y la versión del usuario.
+     */
+    public boolean isAutocontenido() {
+        return userId != null && rol != null && version != null;
+    }
+
+    /**
+     * Indica si el token ha expirado con respecto al instante actual.
+     *
+     * @return {@code true} si el token ha expirado, {@code false} en caso contrario.
+     */
+    public boolean isExpired() {
+        return expiration.isBefore(Instant.now());
+    }
+}
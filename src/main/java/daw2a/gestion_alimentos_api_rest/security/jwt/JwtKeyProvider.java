@@ -0,0 +1,146 @@
+package daw2a.gestion_alimentos_api_rest.security.jwt;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.WeakKeyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Proveedor de las claves HMAC utilizadas para firmar y verificar los tokens JWT.
+ *
+ * <p>Las claves se cargan desde la configuración ({@code jwt.claves.secretos}, con el formato
+ * {@code kid:secretoBase64} separado por comas) y/o desde un fichero de propiedades ({@code jwt.claves.fichero},
+ * con una línea {@code kid=secretoBase64} por clave). Todas las instancias de la API que comparten las mismas
+ * claves pueden validar los tokens de las demás, y los tokens siguen siendo válidos tras un reinicio.</p>
+ *
+ * <p>Cada token indica en su cabecera {@code kid} la clave con la que se firmó. Los tokens nuevos se firman con
+ * la clave activa ({@code jwt.claves.activa}), mientras que el resto de claves configuradas solo se usan para
+ * verificar, lo que permite rotar las claves sin invalidar las sesiones abiertas.</p>
+ *
+ * <p>Si no se configura ninguna clave, se genera una clave efímera al arrancar; en ese caso los tokens dejan de
+ * ser válidos al reiniciar y no se comparten entre instancias.</p>
+ */
+@Slf4j
+@Component
+public class JwtKeyProvider {
+
+    /**
+     * Identificador de la clave generada cuando no se configura ninguna.
+     */
+    private static final String KID_EFIMERA = "efimera";
+
+    private final Map<String, Key> claves;
+    private final String kidActivo;
+
+    /**
+     * Constructor que carga las claves configuradas y selecciona la clave activa.
+     *
+     * @param kidActivo Identificador de la clave con la que se firman los tokens nuevos.
+     * @param secretos Claves configuradas, con el formato {@code kid:secretoBase64} separadas por comas.
+     * @param fichero Ruta de un fichero de propiedades con una línea {@code kid=secretoBase64} por clave.
+     * @throws IllegalStateException Si alguna clave no es válida o la clave activa no está configurada.
+     */
+    public JwtKeyProvider(@Value("${jwt.claves.activa:}") String kidActivo,
+                          @Value("${jwt.claves.secretos:}") String secretos,
+                          @Value("${jwt.claves.fichero:}") String fichero) {
+        Map<String, Key> cargadas = new LinkedHashMap<>();
+
+        for (String entrada : secretos.split(",")) {
+            if (entrada.isBlank()) {
+                continue;
+            }
+            int separador = entrada.indexOf(':');
+            if (separador <= 0) {
+                throw new IllegalStateException("Formato de clave JWT no válido, se esperaba kid:secretoBase64");
+            }
+            registrar(cargadas, entrada.substring(0, separador).trim(), entrada.substring(separador + 1).trim());
+        }
+
+        if (!fichero.isBlank()) {
+            Properties propiedades = new Properties();
+            try (Reader lector = Files.newBufferedReader(Path.of(fichero), StandardCharsets.UTF_8)) {
+                propiedades.load(lector);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el fichero de claves JWT " + fichero, e);
+            }
+            propiedades.stringPropertyNames()
+                    .forEach(kid -> registrar(cargadas, kid.trim(), propiedades.getProperty(kid).trim()));
+        }
+
+        if (cargadas.isEmpty()) {
+            log.warn("No se ha configurado ninguna clave JWT: se usa una clave efímera, los tokens no sobrevivirán "
+                    + "a un reinicio ni serán válidos en otras instancias");
+            cargadas.put(KID_EFIMERA, Keys.secretKeyFor(SignatureAlgorithm.HS256));
+            kidActivo = KID_EFIMERA;
+        } else if (kidActivo.isBlank()) {
+            if (cargadas.size() > 1) {
+                throw new IllegalStateException("Hay varias claves JWT configuradas: indica la activa en jwt.claves.activa");
+            }
+            kidActivo = cargadas.keySet().iterator().next();
+        } else if (!cargadas.containsKey(kidActivo)) {
+            throw new IllegalStateException("La clave JWT activa '" + kidActivo + "' no está configurada");
+        }
+
+        this.claves = Collections.unmodifiableMap(cargadas);
+        this.kidActivo = kidActivo;
+    }
+
+    /**
+     * Devuelve el identificador de la clave con la que se firman los tokens nuevos.
+     *
+     * @return El {@code kid} de la clave activa.
+     */
+    public String getKidActivo() {
+        return kidActivo;
+    }
+
+    /**
+     * Devuelve la clave con la que se firman los tokens nuevos.
+     *
+     * @return La clave activa.
+     */
+    public Key getClaveActiva() {
+        return claves.get(kidActivo);
+    }
+
+    /**
+     * Busca la clave de verificación correspondiente a un {@code kid}.
+     *
+     * @param kid El identificador de la clave indicado en la cabecera del token.
+     * @return La clave, o {@code null} si no hay ninguna clave configurada con ese identificador.
+     */
+    public Key obtenerClave(String kid) {
+        return kid == null ? null : claves.get(kid);
+    }
+
+    /**
+     * Decodifica un secreto en Base64 y lo añade a las claves cargadas.
+     */
+    private static void registrar(Map<String, Key> claves, String kid, String secretoBase64) {
+        if (kid.isEmpty()) {
+            throw new IllegalStateException("Las claves JWT deben tener un identificador (kid)");
+        }
+        try {
+            claves.put(kid, Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretoBase64)));
+        } catch (WeakKeyException e) {
+            throw new IllegalStateException("La clave JWT '" + kid + "' debe tener al menos 256 bits", e);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("La clave JWT '" + kid + "' no es Base64 válido", e);
+        }
+    }
+}
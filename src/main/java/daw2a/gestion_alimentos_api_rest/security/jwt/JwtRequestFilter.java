@@ -1,12 +1,18 @@
 package daw2a.gestion_alimentos_api_rest.security.jwt;
 
+import daw2a.gestion_alimentos_api_rest.exceptions.TokenInvalidoException;
+import daw2a.gestion_alimentos_api_rest.security.user.CustomUserDetails;
 import daw2a.gestion_alimentos_api_rest.security.user.CustomUserDetailsService;
 import daw2a.gestion_alimentos_api_rest.services.TokenBlacklistService;
+import daw2a.gestion_alimentos_api_rest.services.TokenVersionService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -14,31 +20,45 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Filtro de solicitud JWT que valida y autentica las solicitudes que contienen un token JWT.
  *
  * <p>Este filtro intercepta las solicitudes entrantes, extrae el token JWT de los encabezados de autorización
  * o cookies, valida el token y, si es válido, autentica al usuario en el contexto de seguridad de Spring.</p>
+ *
+ * <p>Con la propiedad {@code jwt.stateless=true}, los tokens que incluyen el id, el rol y la versión del usuario
+ * se autentican directamente a partir de sus claims verificados, sin cargar el usuario de la base de datos.
+ * Solo se comprueba que la versión del token siga vigente mediante {@link TokenVersionService}, de modo que
+ * modificar o eliminar un usuario sigue invalidando sus tokens anteriores.</p>
  */
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
     private final CustomUserDetailsService userDetailsService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final TokenVersionService tokenVersionService;
     private final JwtUtil jwtUtil;
+    private final boolean modoSinEstado;
 
     /**
      * Constructor para inicializar el filtro con los servicios necesarios.
      *
      * @param userDetailsService Servicio para cargar los detalles del usuario.
      * @param tokenBlacklistService Servicio para verificar si el token está en la blacklist.
+     * @param tokenVersionService Servicio para verificar que la versión del token sigue vigente.
      * @param jwtUtil Utilidad para manejar los tokens JWT.
+     * @param modoSinEstado Indica si se autentica a partir de los claims del token sin consultar la base de datos.
      */
-    public JwtRequestFilter(CustomUserDetailsService userDetailsService, TokenBlacklistService tokenBlacklistService, JwtUtil jwtUtil) {
+    public JwtRequestFilter(CustomUserDetailsService userDetailsService, TokenBlacklistService tokenBlacklistService,
+                            TokenVersionService tokenVersionService, JwtUtil jwtUtil,
+                            @Value("${jwt.stateless:false}") boolean modoSinEstado) {
         this.userDetailsService = userDetailsService;
         this.tokenBlacklistService = tokenBlacklistService;
+        this.tokenVersionService = tokenVersionService;
         this.jwtUtil = jwtUtil;
+        this.modoSinEstado = modoSinEstado;
     }
 
     /**
@@ -58,7 +78,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         String requestPath = request.getServletPath();
 
         // Excluir las rutas públicas
-        if (requestPath.equals("/register") || requestPath.equals("/auth/authenticate")) {
+        if (requestPath.equals("/register") || requestPath.equals("/auth/authenticate") || requestPath.equals("/auth/refresh")) {
             chain.doFilter(request, response);
             return;
         }
@@ -69,17 +89,12 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         String username = null;
         String jwt = null;
+        JwtClaims claims = null;
 
         // Buscar el token JWT en el encabezado Authorization
         final String authorizationHeader = request.getHeader("Authorization");
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7);
-
-            if (tokenBlacklistService.isTokenBlacklisted(jwt)) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                limpiarCookie(response);
-                return;
-            }
         } else
             // Buscar el token JWT en las cookies
             if (request.getCookies() != null) {
@@ -94,15 +109,52 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         // Validar y autenticar el token si se obtuvo
         if (jwt != null) {
-            username = jwtUtil.extractUsername(jwt);
+            try {
+                claims = jwtUtil.parseToken(jwt); // Se verifica la firma una sola vez por petición
+            } catch (TokenInvalidoException e) {
+                // Token mal formado, caducado o manipulado: el cliente debe refrescar la sesión
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                limpiarCookie(response);
+                return;
+            }
+
+            // Rechazar los tokens sin identificador o revocados en el logout
+            if (claims.getJti() == null || tokenBlacklistService.isTokenBlacklisted(claims.getJti())) {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                limpiarCookie(response);
+                return;
+            }
+            username = claims.getUsername();
         }
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            UsernamePasswordAuthenticationToken authentication = null;
+
+            if (modoSinEstado && claims.isAutocontenido()) {
+                // Autenticar con los claims verificados, comprobando solo la versión del token
+                if (!tokenVersionService.esVersionVigente(claims.getUserId(), claims.getVersion())) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    limpiarCookie(response);
+                    return;
+                }
+                authentication = new UsernamePasswordAuthenticationToken(
+                        username, null, List.of(new SimpleGrantedAuthority("ROLE_" + claims.getRol())));
+            } else {
+                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+
+                // Rechazar los tokens emitidos antes de modificar el usuario
+                if (claims.getVersion() != null && userDetails instanceof CustomUserDetails customUserDetails
+                        && !claims.getVersion().equals(customUserDetails.getVersionToken())) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    limpiarCookie(response);
+                    return;
+                }
+                if (jwtUtil.validateToken(claims, userDetails)) {
+                    authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                }
+            }
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
-                var authentication = new org.springframework.security.authentication.UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
+            if (authentication != null) {
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
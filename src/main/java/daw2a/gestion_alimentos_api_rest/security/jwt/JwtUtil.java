@@ -1,17 +1,28 @@
 package daw2a.gestion_alimentos_api_rest.security.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import daw2a.gestion_alimentos_api_rest.exceptions.TokenInvalidoException;
+import daw2a.gestion_alimentos_api_rest.security.user.CustomUserDetails;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
 
 /**
  * Utilidad para manejar operaciones relacionadas con JSON Web Tokens (JWT).
@@ -19,95 +30,266 @@ import java.util.function.Function;
  * <p>Esta clase contiene métodos para generar, validar y extraer información de tokens JWT, como
  * el nombre de usuario y la fecha de expiración. Además, permite obtener el token desde las cookies
  * o los encabezados de la solicitud HTTP.</p>
+ *
+ * <p>Cada token se analiza y verifica una sola vez: el resultado se guarda como un {@link JwtClaims}
+ * inmutable en una caché acotada, indexada por el resumen SHA-256 del token y cuyas entradas caducan
+ * junto con el propio token. Las peticiones repetidas con el mismo token no vuelven a calcular el HMAC.</p>
  */
 @Component
 public class JwtUtil {
 
     /**
-     * Clave utilizada para firmar y verificar los JWT.
-     * Esta clave es generada automáticamente y debe mantenerse en secreto.
+     * Nombres de los claims con el id, el rol y la versión de tokens del usuario.
      */
-    private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256); // Clave generada automáticamente
+    private static final String CLAIM_ID_USUARIO = "uid";
+    private static final String CLAIM_ROL = "rol";
+    private static final String CLAIM_VERSION = "ver";
 
     /**
-     * Tiempo de expiración de un JWT, en milisegundos. En este caso, el token expira en 10 horas.
+     * Proveedor de las claves utilizadas para firmar y verificar los JWT.
+     * Las claves se cargan de la configuración y deben mantenerse en secreto.
      */
-    private final long jwtExpiration = 1000 * 60 * 60 * 10L; // 10 horas
+    private final JwtKeyProvider keyProvider;
 
     /**
-     * Extrae el nombre de usuario (subject) del token JWT.
+     * Tiempo de expiración de un JWT de acceso. Es corto (15 minutos por defecto) porque la sesión se
+     * prolonga con tokens de refresco, y así la lista negra solo debe guardar cada token revocado unos minutos.
+     */
+    private final Duration jwtExpiration;
+
+    /**
+     * Parser de tokens que selecciona la clave de verificación según la cabecera {@code kid} del token.
+     * Es inmutable y seguro entre hilos, por lo que se crea una sola vez.
+     */
+    private final JwtParser jwtParser;
+
+    /**
+     * Caché de claims ya verificados, indexada por el resumen SHA-256 del token.
+     * Cada entrada se descarta automáticamente cuando expira el token correspondiente.
+     */
+    private final Cache<String, JwtClaims> claimsVerificados;
+
+    /**
+     * Caché negativa con los resúmenes de los tokens rechazados recientemente, para no volver a verificarlos.
+     */
+    private final Cache<String, Boolean> tokensRechazados;
+
+    /**
+     * Longitud máxima admitida para un token; los tokens más largos se rechazan sin analizarlos.
+     */
+    private final int longitudMaxima;
+
+    /**
+     * Constructor que inicializa el parser de tokens y las cachés de tokens verificados y rechazados.
+     *
+     * @param keyProvider Proveedor de las claves de firma.
+     * @param jwtExpiration Tiempo de expiración de los tokens de acceso.
+     * @param maxEntradasCache Número máximo de tokens verificados que se mantienen en memoria.
+     * @param maxRechazados Número máximo de tokens rechazados que se mantienen en memoria.
+     * @param ttlRechazados Tiempo durante el que se recuerda un token rechazado.
+     * @param longitudMaxima Longitud máxima admitida para un token.
+     */
+    public JwtUtil(JwtKeyProvider keyProvider,
+                   @Value("${jwt.expiracion:15m}") Duration jwtExpiration,
+                   @Value("${jwt.cache.claims.max-entradas:10000}") long maxEntradasCache,
+                   @Value("${jwt.cache.rechazados.max-entradas:10000}") long maxRechazados,
+                   @Value("${jwt.cache.rechazados.ttl:5m}") Duration ttlRechazados,
+                   @Value("${jwt.longitud-maxima:4096}") int longitudMaxima) {
+        this.keyProvider = keyProvider;
+        this.jwtExpiration = jwtExpiration;
+        this.longitudMaxima = longitudMaxima;
+        this.tokensRechazados = Caffeine.newBuilder()
+                .maximumSize(maxRechazados)
+                .expireAfterWrite(ttlRechazados)
+                .build();
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        Key clave = keyProvider.obtenerClave(header.getKeyId());
+                        if (clave == null) {
+                            throw new UnsupportedJwtException("Clave de firma desconocida");
+                        }
+                        return clave;
+                    }
+                })
+                .build();
+        this.claimsVerificados = Caffeine.newBuilder()
+                .maximumSize(maxEntradasCache)
+                .expireAfter(new Expiry<String, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(String digest, JwtClaims claims, long currentTime) {
+                        Duration restante = Duration.between(Instant.now(), claims.getExpiration());
+                        return Math.max(0L, restante.toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Devuelve el tiempo de expiración de los tokens de acceso.
+     *
+     * @return La duración de los tokens de acceso.
+     */
+    public Duration getJwtExpiration() {
+        return jwtExpiration;
+    }
+
+    /**
+     * Analiza y verifica el token JWT una única vez y devuelve sus claims.
+     * <p>Si el token ya fue verificado anteriormente y no ha expirado, se devuelve la vista guardada en caché
+     * sin volver a comprobar la firma.</p>
+     * <p>Los tokens cuya estructura no es la de un JWS compacto se rechazan antes de cualquier operación
+     * criptográfica, y los que no superan la verificación se recuerdan durante un tiempo en una caché negativa,
+     * de modo que reenviar el mismo token basura no vuelve a verificarse.</p>
      *
      * @param token El token JWT.
-     * @return El nombre de usuario (subject) del token.
+     * @return Los claims verificados del token.
+     * @throws TokenInvalidoException Si el token está mal formado, no es válido o ha expirado.
      */
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    public JwtClaims parseToken(String token) {
+        if (!tieneEstructuraValida(token)) {
+            throw TokenInvalidoException.MAL_FORMADO;
+        }
+
+        String digest = calcularDigest(token);
+        JwtClaims claims = claimsVerificados.getIfPresent(digest);
+
+        if (claims == null) {
+            if (tokensRechazados.getIfPresent(digest) != null) {
+                throw TokenInvalidoException.NO_VALIDO;
+            }
+
+            Claims body;
+            try {
+                body = extractAllClaims(token);
+            } catch (TokenInvalidoException e) {
+                tokensRechazados.put(digest, Boolean.TRUE);
+                throw e;
+            }
+            claims = new JwtClaims(body.getSubject(), body.getId(),
+                    body.getIssuedAt().toInstant(), body.getExpiration().toInstant(),
+                    body.get(CLAIM_ID_USUARIO, Long.class), body.get(CLAIM_ROL, String.class), body.get(CLAIM_VERSION, Long.class));
+            claimsVerificados.put(digest, claims);
+        }
+        return claims;
     }
 
     /**
-     * Extrae la fecha de expiración del token JWT.
+     * Comprueba que el token tiene la forma de un JWS compacto: tres segmentos no vacíos separados por puntos,
+     * formados solo por caracteres Base64URL y sin superar la longitud máxima.
      *
      * @param token El token JWT.
-     * @return La fecha de expiración del token.
+     * @return {@code true} si la estructura del token es válida.
      */
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean tieneEstructuraValida(String token) {
+        int longitud = token.length();
+        if (longitud < 5 || longitud > longitudMaxima) {
+            return false;
+        }
+
+        int puntos = 0;
+        char anterior = '.';
+        for (int i = 0; i < longitud; i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (anterior == '.' || ++puntos > 2) {
+                    return false;
+                }
+            } else if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_')) {
+                return false;
+            }
+            anterior = c;
+        }
+        return puntos == 2 && anterior != '.';
+    }
+
+    /**
+     * Extrae el nombre de usuario (subject) del token JWT.
+     *
+     * @param token El token JWT.
+     * @return El nombre de usuario (subject) del token.
+     */
+    public String extractUsername(String token) {
+        return parseToken(token).getUsername();
     }
 
     /**
-     * Extrae un claim específico del token JWT utilizando una función de resolución.
+     * Extrae la fecha de expiración del token JWT.
      *
      * @param token El token JWT.
-     * @param claimsResolver Función para resolver el claim específico.
-     * @param <T> El tipo de dato del claim.
-     * @return El valor del claim especificado.
+     * @return La fecha de expiración del token.
      */
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public Date extractExpiration(String token) {
+        return Date.from(parseToken(token).getExpiration());
     }
 
     /**
-     * Extrae todos los claims del token JWT.
+     * Extrae todos los claims del token JWT, verificando su firma.
      *
      * @param token El token JWT.
      * @return Los claims del token.
+     * @throws TokenInvalidoException Si la firma no es válida, el token ha expirado o le faltan claims obligatorios.
      */
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(key) // Configurar la clave de firma
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-        } catch (JwtException e) {
-            throw new IllegalArgumentException("Token inválido o expirado");
+            Claims body = jwtParser.parseClaimsJws(token).getBody();
+            if (body.getIssuedAt() == null || body.getExpiration() == null) {
+                throw TokenInvalidoException.NO_VALIDO;
+            }
+            return body;
+        } catch (JwtException | IllegalArgumentException e) {
+            throw TokenInvalidoException.NO_VALIDO;
         }
     }
 
     /**
-     * Verifica si el token JWT ha expirado.
+     * Calcula el resumen SHA-256 del token, utilizado como clave de la caché de claims verificados.
      *
      * @param token El token JWT.
-     * @return true si el token ha expirado, false en caso contrario.
+     * @return El resumen del token codificado en Base64.
      */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private String calcularDigest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 
     /**
      * Genera un token JWT para el usuario proporcionado.
+     * <p>Si los detalles proceden de un {@link CustomUserDetails}, el token incluye además el id, el rol y la
+     * versión de tokens del usuario, lo que permite autenticar la petición sin consultar la base de datos.</p>
      *
      * @param userDetails Los detalles del usuario para los cuales se generará el token.
      * @return El token JWT generado.
      */
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof CustomUserDetails customUserDetails) {
+            claims.put(CLAIM_ID_USUARIO, customUserDetails.getId());
+            claims.put(CLAIM_ROL, customUserDetails.getRol().name());
+            claims.put(CLAIM_VERSION, customUserDetails.getVersionToken());
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
     /**
      * Crea un token JWT con los claims y el nombre de usuario especificados.
+     * <p>Cada token recibe un identificador aleatorio ({@code jti}) que permite revocarlo de forma individual,
+     * y se firma con la clave activa, cuyo identificador se indica en la cabecera {@code kid}.</p>
      *
      * @param claims Los claims del token.
      * @param subject El nombre de usuario (subject).
@@ -117,9 +299,11 @@ public class JwtUtil {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(key, SignatureAlgorithm.HS256) // Especificar clave y algoritmo
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration.toMillis()))
+                .setHeaderParam(JwsHeader.KEY_ID, keyProvider.getKidActivo()) // Clave con la que se firma
+                .signWith(keyProvider.getClaveActiva(), SignatureAlgorithm.HS256) // Especificar clave y algoritmo
                 .compact();
     }
 
@@ -131,8 +315,19 @@ public class JwtUtil {
      * @return true si el token es válido, false en caso contrario.
      */
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(parseToken(token), userDetails);
+    }
+
+    /**
+     * Valida los claims ya verificados de un token, comprobando que el nombre de usuario coincida
+     * y que el token no haya expirado.
+     *
+     * @param claims Los claims verificados del token.
+     * @param userDetails Los detalles del usuario a comparar con el token.
+     * @return true si el token es válido, false en caso contrario.
+     */
+    public Boolean validateToken(JwtClaims claims, UserDetails userDetails) {
+        return (claims.getUsername().equals(userDetails.getUsername()) && !claims.isExpired());
     }
 
     /**
@@ -0,0 +1,189 @@
+package daw2a.gestion_alimentos_api_rest.security.login;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import daw2a.gestion_alimentos_api_rest.exceptions.DemasiadasSolicitudesException;
+import daw2a.gestion_alimentos_api_rest.exceptions.ServicioSaturadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Control de admisión de los inicios de sesión.
+ *
+ * <p>La comprobación de la contraseña con BCrypt es deliberadamente costosa, por lo que no se ejecuta en los hilos
+ * de Tomcat: se delega en un pool dedicado con un número fijo de hilos y una cola acotada. Si la cola está llena
+ * o la espera supera el máximo configurado, el intento se rechaza de inmediato con un 503, y el resto del tráfico
+ * de la API sigue disponiendo de hilos.</p>
+ *
+ * <p>Antes de calcular ningún hash, cada intento consume una ficha del cubo de su email y otra del cubo de su
+ * cliente (dirección IP). Si alguno está vacío, el intento se rechaza con un 429.</p>
+ *
+ * <p>Se publican las métricas del pool ({@code executor.*} con {@code name=login}), el tiempo de espera en cola
+ * ({@code login.espera}) y los rechazos por motivo ({@code login.rechazos}).</p>
+ */
+@Component
+public class LoginAdmissionControl {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration esperaMaxima;
+
+    private final int capacidadEmail;
+    private final int recargaEmail;
+    private final int capacidadCliente;
+    private final int recargaCliente;
+
+    // Cubos de fichas por email y por cliente; se descartan tras un tiempo sin intentos
+    private final Cache<String, TokenBucket> cubosEmail;
+    private final Cache<String, TokenBucket> cubosCliente;
+
+    private final Timer tiempoEspera;
+    private final Counter rechazosEmail;
+    private final Counter rechazosCliente;
+    private final Counter rechazosSaturado;
+
+    /**
+     * Constructor que crea el pool de inicios de sesión y registra sus métricas.
+     *
+     * @param hilos Número de hilos dedicados a comprobar contraseñas.
+     * @param tamanoCola Número máximo de inicios de sesión en espera.
+     * @param esperaMaxima Tiempo máximo que un inicio de sesión puede esperar a completarse.
+     * @param capacidadEmail Ráfaga máxima de intentos por email.
+     * @param recargaEmail Intentos por minuto recuperados por cada email.
+     * @param capacidadCliente Ráfaga máxima de intentos por cliente.
+     * @param recargaCliente Intentos por minuto recuperados por cada cliente.
+     * @param meterRegistry Registro de métricas de la aplicación.
+     */
+    public LoginAdmissionControl(@Value("${login.pool.hilos:4}") int hilos,
+                                 @Value("${login.pool.cola:64}") int tamanoCola,
+                                 @Value("${login.pool.espera-maxima:2s}") Duration esperaMaxima,
+                                 @Value("${login.limite.email.capacidad:5}") int capacidadEmail,
+                                 @Value("${login.limite.email.recarga-por-minuto:5}") int recargaEmail,
+                                 @Value("${login.limite.cliente.capacidad:20}") int capacidadCliente,
+                                 @Value("${login.limite.cliente.recarga-por-minuto:60}") int recargaCliente,
+                                 MeterRegistry meterRegistry) {
+        AtomicInteger numeroHilo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tamanoCola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "login-" + numeroHilo.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.esperaMaxima = esperaMaxima;
+
+        this.capacidadEmail = capacidadEmail;
+        this.recargaEmail = recargaEmail;
+        this.capacidadCliente = capacidadCliente;
+        this.recargaCliente = recargaCliente;
+        this.cubosEmail = Caffeine.newBuilder().expireAfterAccess(Duration.ofMinutes(15)).maximumSize(100_000).build();
+        this.cubosCliente = Caffeine.newBuilder().expireAfterAccess(Duration.ofMinutes(15)).maximumSize(100_000).build();
+
+        new ExecutorServiceMetrics(executor, "login", Tags.empty()).bindTo(meterRegistry);
+        this.tiempoEspera = Timer.builder("login.espera")
+                .description("Tiempo de espera en cola de los inicios de sesión")
+                .register(meterRegistry);
+        this.rechazosEmail = rechazos(meterRegistry, "email");
+        this.rechazosCliente = rechazos(meterRegistry, "cliente");
+        this.rechazosSaturado = rechazos(meterRegistry, "saturado");
+    }
+
+    /**
+     * Ejecuta un inicio de sesión en el pool dedicado, aplicando antes los límites por email y por cliente.
+     *
+     * @param email El email con el que se intenta iniciar sesión.
+     * @param cliente La dirección del cliente que realiza el intento.
+     * @param autenticacion La comprobación de credenciales a ejecutar.
+     * @param <T> El tipo del resultado de la autenticación.
+     * @return El resultado de la autenticación.
+     * @throws DemasiadasSolicitudesException Si el email o el cliente han superado su límite de intentos.
+     * @throws ServicioSaturadoException Si el pool está saturado o la espera supera el máximo.
+     */
+    public <T> T ejecutar(String email, String cliente, Supplier<T> autenticacion) {
+        long ahora = System.nanoTime();
+
+        long esperaCliente = consumir(cubosCliente, cliente == null ? "" : cliente, capacidadCliente, recargaCliente, ahora);
+        if (esperaCliente > 0) {
+            rechazosCliente.increment();
+            throw new DemasiadasSolicitudesException("Demasiados intentos de inicio de sesión desde este cliente.", segundos(esperaCliente));
+        }
+        String claveEmail = email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+        long esperaEmail = consumir(cubosEmail, claveEmail, capacidadEmail, recargaEmail, ahora);
+        if (esperaEmail > 0) {
+            rechazosEmail.increment();
+            throw new DemasiadasSolicitudesException("Demasiados intentos de inicio de sesión para este usuario.", segundos(esperaEmail));
+        }
+
+        Future<T> resultado;
+        try {
+            resultado = executor.submit(() -> {
+                tiempoEspera.record(System.nanoTime() - ahora, TimeUnit.NANOSECONDS);
+                return autenticacion.get();
+            });
+        } catch (RejectedExecutionException e) {
+            rechazosSaturado.increment();
+            throw new ServicioSaturadoException("El servicio de inicio de sesión está saturado, inténtalo más tarde.");
+        }
+
+        try {
+            return resultado.get(esperaMaxima.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            resultado.cancel(true);
+            rechazosSaturado.increment();
+            throw new ServicioSaturadoException("El servicio de inicio de sesión está saturado, inténtalo más tarde.");
+        } catch (InterruptedException e) {
+            resultado.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServicioSaturadoException("Inicio de sesión interrumpido.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Detiene el pool de inicios de sesión al cerrar la aplicación.
+     */
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private static long consumir(Cache<String, TokenBucket> cubos, String clave, int capacidad, int recarga, long ahora) {
+        return cubos.get(clave, k -> new TokenBucket(capacidad, recarga, ahora)).intentarConsumir(ahora);
+    }
+
+    private static long segundos(long nanos) {
+        return Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    private static Counter rechazos(MeterRegistry meterRegistry, String motivo) {
+        return Counter.builder("login.rechazos")
+                .description("Inicios de sesión rechazados por el control de admisión")
+                .tag("motivo", motivo)
+                .register(meterRegistry);
+    }
+}
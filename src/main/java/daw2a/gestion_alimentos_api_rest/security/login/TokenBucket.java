@@ -0,0 +1,42 @@
+package daw2a.gestion_alimentos_api_rest.security.login;
+
+/**
+ * Cubo de fichas (token bucket) para limitar la frecuencia de intentos de inicio de sesión.
+ *
+ * <p>El cubo admite ráfagas de hasta {@code capacidad} intentos y se recarga de forma continua a razón de
+ * {@code recargaPorMinuto} fichas por minuto. Cada intento consume una ficha.</p>
+ */
+final class TokenBucket {
+
+    private static final long NANOS_POR_MINUTO = 60_000_000_000L;
+
+    private final double capacidad;
+    private final double fichasPorNano;
+
+    private double fichas;
+    private long ultimaRecarga;
+
+    TokenBucket(int capacidad, int recargaPorMinuto, long ahoraNanos) {
+        this.capacidad = capacidad;
+        this.fichasPorNano = (double) recargaPorMinuto / NANOS_POR_MINUTO;
+        this.fichas = capacidad;
+        this.ultimaRecarga = ahoraNanos;
+    }
+
+    /**
+     * Intenta consumir una ficha.
+     *
+     * @param ahoraNanos Instante actual según {@link System#nanoTime()}.
+     * @return 0 si se ha concedido el intento, o los nanosegundos que faltan para disponer de una ficha.
+     */
+    synchronized long intentarConsumir(long ahoraNanos) {
+        fichas = Math.min(capacidad, fichas + (ahoraNanos - ultimaRecarga) * fichasPorNano);
+        ultimaRecarga = ahoraNanos;
+
+        if (fichas >= 1.0) {
+            fichas -= 1.0;
+            return 0L;
+        }
+        return (long) Math.ceil((1.0 - fichas) / fichasPorNano);
+    }
+}
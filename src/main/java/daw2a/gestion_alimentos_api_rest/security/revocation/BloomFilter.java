@@ -0,0 +1,70 @@
+package daw2a.gestion_alimentos_api_rest.security.revocation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para identificadores de token ({@code jti}) de 128 bits.
+ *
+ * <p>Permite responder sin bloqueos y sin consultar el conjunto de revocaciones que un token
+ * <b>no</b> está revocado, que es el caso habitual. Puede dar falsos positivos, pero nunca falsos
+ * negativos. Como los {@code jti} son UUID aleatorios, sus dos mitades se utilizan directamente
+ * como funciones hash para el doble hashing.</p>
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * Crea un filtro dimensionado para el número de elementos y la tasa de falsos positivos indicados.
+     *
+     * @param elementosEsperados Número de elementos que se espera insertar.
+     * @param tasaFalsosPositivos Tasa de falsos positivos deseada (por ejemplo, 0.01).
+     */
+    BloomFilter(long elementosEsperados, double tasaFalsosPositivos) {
+        long n = Math.max(1L, elementosEsperados);
+        long m = (long) Math.ceil(-n * Math.log(tasaFalsosPositivos) / (Math.log(2) * Math.log(2)));
+        int palabras = (int) Math.max(1L, (m + 63) / 64);
+
+        this.bits = new AtomicLongArray(palabras);
+        this.numBits = palabras * 64L;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+    }
+
+    /**
+     * Añade un identificador al filtro.
+     *
+     * @param msb Los 64 bits más significativos del identificador.
+     * @param lsb Los 64 bits menos significativos del identificador.
+     */
+    void put(long msb, long lsb) {
+        long hash = lsb;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(hash, numBits);
+            long mascara = 1L << bit;
+            int palabra = (int) (bit >>> 6);
+            bits.getAndAccumulate(palabra, mascara, (actual, m) -> actual | m);
+            hash += msb;
+        }
+    }
+
+    /**
+     * Indica si el identificador podría estar en el filtro.
+     *
+     * @param msb Los 64 bits más significativos del identificador.
+     * @param lsb Los 64 bits menos significativos del identificador.
+     * @return {@code false} si el identificador seguro que no está; {@code true} si podría estar.
+     */
+    boolean mightContain(long msb, long lsb) {
+        long hash = lsb;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(hash, numBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            hash += msb;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+package daw2a.gestion_alimentos_api_rest.security.revocation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Almacén de revocaciones en memoria, para pruebas o para una única instancia
+ * ({@code jwt.revocaciones.almacen=memoria}).
+ *
+ * <p>Las revocaciones no se comparten con otras instancias ni sobreviven a un reinicio.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.revocaciones.almacen", havingValue = "memoria")
+public class InMemoryRevocationStore implements RevocationStore {
+
+    private final AtomicLong secuencia = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, RevocationEntry> revocaciones = new ConcurrentSkipListMap<>();
+    private final Map<UUID, Long> secuenciaPorJti = new ConcurrentHashMap<>();
+
+    @Override
+    public void registrar(UUID jti, Instant expiracion, Instant revocadoEn) {
+        secuenciaPorJti.computeIfAbsent(jti, id -> {
+            long numero = secuencia.incrementAndGet();
+            revocaciones.put(numero, new RevocationEntry(numero, id, null, expiracion, revocadoEn));
+            return numero;
+        });
+    }
+
+    @Override
+    public void registrarUsuario(Long idUsuario, Instant expiracion, Instant revocadoEn) {
+        long numero = secuencia.incrementAndGet();
+        revocaciones.put(numero, new RevocationEntry(numero, null, idUsuario, expiracion, revocadoEn));
+    }
+
+    @Override
+    public List<RevocationEntry> cambiosDesde(long desde, Instant ahora, int limite) {
+        List<RevocationEntry> cambios = new ArrayList<>();
+        for (RevocationEntry entrada : revocaciones.tailMap(desde, false).values()) {
+            if (cambios.size() >= limite) {
+                break;
+            }
+            if (entrada.expiracion().isAfter(ahora)) {
+                cambios.add(entrada);
+            }
+        }
+        return cambios;
+    }
+
+    @Override
+    public OptionalLong primeraSecuenciaDesde(Instant revocadoDesde) {
+        for (RevocationEntry entrada : revocaciones.values()) {
+            if (!entrada.revocadoEn().isBefore(revocadoDesde)) {
+                return OptionalLong.of(entrada.secuencia());
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public int eliminarExpiradas(Instant ahora) {
+        int eliminadas = 0;
+        for (RevocationEntry entrada : revocaciones.values()) {
+            if (!entrada.expiracion().isAfter(ahora) && revocaciones.remove(entrada.secuencia(), entrada)) {
+                if (entrada.jti() != null) {
+                    secuenciaPorJti.remove(entrada.jti());
+                }
+                eliminadas++;
+            }
+        }
+        return eliminadas;
+    }
+}
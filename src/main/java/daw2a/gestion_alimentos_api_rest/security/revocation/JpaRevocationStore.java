@@ -0,0 +1,82 @@
+package daw2a.gestion_alimentos_api_rest.security.revocation;
+
+import daw2a.gestion_alimentos_api_rest.entities.TokenRevocado;
+import daw2a.gestion_alimentos_api_rest.repositories.TokenRevocadoRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Almacén de revocaciones en la tabla {@link TokenRevocado} de la base de datos.
+ *
+ * <p>El identificador de cada fila actúa como número de secuencia. Es el almacén por defecto
+ * ({@code jwt.revocaciones.almacen=jpa}).</p>
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.revocaciones.almacen", havingValue = "jpa", matchIfMissing = true)
+public class JpaRevocationStore implements RevocationStore {
+
+    private final TokenRevocadoRepository tokenRevocadoRepository;
+
+    /**
+     * Constructor para inyección de dependencias.
+     *
+     * @param tokenRevocadoRepository Repositorio de tokens revocados.
+     */
+    public JpaRevocationStore(TokenRevocadoRepository tokenRevocadoRepository) {
+        this.tokenRevocadoRepository = tokenRevocadoRepository;
+    }
+
+    @Override
+    public void registrar(UUID jti, Instant expiracion, Instant revocadoEn) {
+        if (tokenRevocadoRepository.existsByJti(jti)) {
+            return;
+        }
+        try {
+            tokenRevocadoRepository.save(TokenRevocado.builder()
+                    .jti(jti)
+                    .expiracion(expiracion)
+                    .revocadoEn(revocadoEn)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Otra petición ha revocado el mismo token a la vez
+        }
+    }
+
+    @Override
+    public void registrarUsuario(Long idUsuario, Instant expiracion, Instant revocadoEn) {
+        tokenRevocadoRepository.save(TokenRevocado.builder()
+                .idUsuario(idUsuario)
+                .expiracion(expiracion)
+                .revocadoEn(revocadoEn)
+                .build());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RevocationEntry> cambiosDesde(long secuencia, Instant ahora, int limite) {
+        return tokenRevocadoRepository.buscarDesde(secuencia, ahora, PageRequest.ofSize(limite)).stream()
+                .map(r -> new RevocationEntry(r.getId(), r.getJti(), r.getIdUsuario(), r.getExpiracion(), r.getRevocadoEn()))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OptionalLong primeraSecuenciaDesde(Instant revocadoDesde) {
+        Long id = tokenRevocadoRepository.primeroDesde(revocadoDesde);
+        return id != null ? OptionalLong.of(id) : OptionalLong.empty();
+    }
+
+    @Override
+    @Transactional
+    public int eliminarExpiradas(Instant ahora) {
+        return tokenRevocadoRepository.eliminarExpirados(ahora);
+    }
+}
@@ -0,0 +1,120 @@
+package daw2a.gestion_alimentos_api_rest.security.revocation;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice de identificadores de token ({@code jti}) revocados.
+ *
+ * <p>Combina un {@link BloomFilter}, que descarta sin bloqueos la gran mayoría de consultas de tokens no
+ * revocados, con un {@link RevokedJtiSet} que confirma los positivos. Es la copia local, en memoria, de las
+ * revocaciones del {@link RevocationStore} compartido.</p>
+ *
+ * <p>Las consultas no bloquean. Las altas y la limpieza se serializan entre sí, de modo que el filtro de
+ * Bloom siempre contiene todos los identificadores del conjunto.</p>
+ */
+public final class JtiRevocationIndex {
+
+    /**
+     * Época de referencia (2024-01-01T00:00:00Z) para guardar las expiraciones en segundos como {@code int}.
+     */
+    private static final long EPOCA_BASE_SEGUNDOS = 1_704_067_200L;
+    private static final double TASA_FALSOS_POSITIVOS = 0.01;
+
+    private final long capacidadBloomMinima;
+    private final RevokedJtiSet conjunto = new RevokedJtiSet();
+    private final ReentrantLock mutaciones = new ReentrantLock();
+
+    private volatile BloomFilter bloom;
+    private long capacidadBloom;
+
+    /**
+     * Crea un índice vacío.
+     *
+     * @param capacidadBloom Número de revocaciones para el que se dimensiona inicialmente el filtro de Bloom.
+     */
+    public JtiRevocationIndex(long capacidadBloom) {
+        this.capacidadBloomMinima = Math.max(1L, capacidadBloom);
+        this.capacidadBloom = capacidadBloomMinima;
+        this.bloom = new BloomFilter(capacidadBloom, TASA_FALSOS_POSITIVOS);
+    }
+
+    /**
+     * Añade un identificador revocado al índice.
+     *
+     * @param msb Los 64 bits más significativos del {@code jti}.
+     * @param lsb Los 64 bits menos significativos del {@code jti}.
+     * @param expiracionSegundos Expiración del token, en segundos desde epoch.
+     * @return {@code true} si el identificador no estaba ya en el índice.
+     */
+    public boolean add(long msb, long lsb, long expiracionSegundos) {
+        int expiracion = relativo(expiracionSegundos);
+
+        mutaciones.lock();
+        try {
+            if (!conjunto.add(msb, lsb, expiracion)) {
+                return false;
+            }
+            if (conjunto.size() > capacidadBloom) {
+                reconstruirBloom();
+            } else {
+                bloom.put(msb, lsb);
+            }
+            return true;
+        } finally {
+            mutaciones.unlock();
+        }
+    }
+
+    /**
+     * Indica si el identificador está revocado.
+     *
+     * @param msb Los 64 bits más significativos del {@code jti}.
+     * @param lsb Los 64 bits menos significativos del {@code jti}.
+     * @return {@code true} si el token está revocado.
+     */
+    public boolean contains(long msb, long lsb) {
+        return bloom.mightContain(msb, lsb) && conjunto.contains(msb, lsb);
+    }
+
+    /**
+     * Descarta las revocaciones expiradas y reconstruye el filtro de Bloom.
+     *
+     * @param ahoraSegundos Instante actual, en segundos desde epoch.
+     * @return El número de revocaciones descartadas.
+     */
+    public int removeExpired(long ahoraSegundos) {
+        mutaciones.lock();
+        try {
+            int eliminadas = conjunto.removeExpired(relativo(ahoraSegundos));
+            if (eliminadas > 0) {
+                reconstruirBloom();
+            }
+            return eliminadas;
+        } finally {
+            mutaciones.unlock();
+        }
+    }
+
+    /**
+     * Devuelve el número de revocaciones del índice.
+     *
+     * @return El número de identificadores revocados.
+     */
+    public int size() {
+        return conjunto.size();
+    }
+
+    /**
+     * Crea un filtro de Bloom nuevo a partir del conjunto y lo publica. Debe llamarse con {@link #mutaciones}.
+     */
+    private void reconstruirBloom() {
+        capacidadBloom = Math.max(capacidadBloomMinima, 2L * conjunto.size());
+        BloomFilter nuevo = new BloomFilter(capacidadBloom, TASA_FALSOS_POSITIVOS);
+        conjunto.forEach((msb, lsb, expiracion) -> nuevo.put(msb, lsb));
+        bloom = nuevo;
+    }
+
+    private static int relativo(long segundosEpoch) {
+        return (int) Math.max(1L, segundosEpoch - EPOCA_BASE_SEGUNDOS);
+    }
+}
@@ -0,0 +1,16 @@
+package daw2a.gestion_alimentos_api_rest.security.revocation;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Revocación leída de un {@link RevocationStore}.
+ *
+ * @param secuencia Número de secuencia de la revocación, creciente en el almacén.
+ * @param jti Identificador del token revocado, o {@code null} si se revocan los tokens de un usuario.
+ * @param idUsuario Identificador del usuario cuyos tokens se revocan, o {@code null} si se revoca un único token.
+ * @param expiracion Expiración del token revocado o, para un usuario, de los tokens emitidos antes de revocarlos.
+ * @param revocadoEn Instante en el que se registró la revocación.
+ */
+public record RevocationEntry(long secuencia, UUID jti, Long idUsuario, Instant expiracion, Instant revocadoEn) {
+}
@@ -0,0 +1,63 @@
+package daw2a.gestion_alimentos_api_rest.security.revocation;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Almacén compartido de revocaciones de tokens.
+ *
+ * <p>Es la fuente de verdad de las revocaciones para todas las instancias de la API. Cada revocación recibe un
+ * número de secuencia creciente, de modo que cada instancia puede leer solo los cambios posteriores al último
+ * que conoce y mantener su propio índice en memoria, sin consultar el almacén en cada petición.</p>
+ */
+public interface RevocationStore {
+
+    /**
+     * Registra la revocación de un token. Registrar dos veces el mismo token no tiene efecto.
+     *
+     * @param jti El identificador del token.
+     * @param expiracion La expiración del token.
+     * @param revocadoEn El instante de la revocación.
+     */
+    void registrar(UUID jti, Instant expiracion, Instant revocadoEn);
+
+    /**
+     * Registra la revocación de todos los tokens emitidos hasta ahora para un usuario, por ejemplo al cambiar su
+     * rol o al eliminarlo. Cada llamada añade una revocación nueva.
+     *
+     * @param idUsuario El identificador del usuario.
+     * @param expiracion El instante a partir del cual ya no queda ningún token vigente emitido antes de revocarlos.
+     * @param revocadoEn El instante de la revocación.
+     */
+    void registrarUsuario(Long idUsuario, Instant expiracion, Instant revocadoEn);
+
+    /**
+     * Devuelve las revocaciones vigentes con un número de secuencia mayor que el indicado, en orden creciente.
+     *
+     * @param secuencia El último número de secuencia conocido.
+     * @param ahora El instante actual; no se devuelven revocaciones de tokens ya expirados.
+     * @param limite El número máximo de revocaciones a devolver.
+     * @return Las revocaciones encontradas.
+     */
+    List<RevocationEntry> cambiosDesde(long secuencia, Instant ahora, int limite);
+
+    /**
+     * Devuelve el menor número de secuencia de las revocaciones registradas a partir del instante indicado.
+     * <p>Permite volver a leer las revocaciones recientes, que pueden haberse confirmado después de otras con un
+     * número de secuencia mayor.</p>
+     *
+     * @param revocadoDesde El instante a partir del cual se buscan revocaciones.
+     * @return El número de secuencia, o vacío si no hay revocaciones desde ese instante.
+     */
+    OptionalLong primeraSecuenciaDesde(Instant revocadoDesde);
+
+    /**
+     * Elimina las revocaciones de tokens ya expirados.
+     *
+     * @param ahora El instante actual.
+     * @return El número de revocaciones eliminadas.
+     */
+    int eliminarExpiradas(Instant ahora);
+}
@@ -0,0 +1,235 @@
+package daw2a.gestion_alimentos_api_rest.security.revocation;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Conjunto compacto de identificadores de token ({@code jti}) revocados.
+ *
+ * <p>Cada entrada ocupa 20 bytes en arrays primitivos (dos {@code long} con el UUID y un {@code int}
+ * con la expiración en segundos), sin objetos por entrada, lo que permite mantener millones de
+ * revocaciones por nodo. El conjunto se divide en segmentos con direccionamiento abierto y sondeo lineal;
+ * las consultas usan lecturas optimistas de {@link StampedLock}, por lo que no bloquean a las escrituras.</p>
+ *
+ * <p>Cada segmento recuerda la expiración más próxima de sus entradas, de forma que la limpieza de
+ * entradas expiradas solo reconstruye los segmentos que realmente tienen algo que descartar.</p>
+ */
+final class RevokedJtiSet {
+
+    /**
+     * Operación aplicada a cada entrada al recorrer el conjunto.
+     */
+    @FunctionalInterface
+    interface Visitante {
+        void visitar(long msb, long lsb, int expiracionSegundos);
+    }
+
+    private static final int NUM_SEGMENTOS = 16;
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    private final Segmento[] segmentos = new Segmento[NUM_SEGMENTOS];
+
+    RevokedJtiSet() {
+        for (int i = 0; i < NUM_SEGMENTOS; i++) {
+            segmentos[i] = new Segmento();
+        }
+    }
+
+    /**
+     * Añade un identificador al conjunto.
+     *
+     * @return {@code true} si el identificador no estaba ya en el conjunto.
+     */
+    boolean add(long msb, long lsb, int expiracionSegundos) {
+        return segmento(msb, lsb).add(msb, lsb, expiracionSegundos);
+    }
+
+    /**
+     * Indica si el identificador está en el conjunto.
+     */
+    boolean contains(long msb, long lsb) {
+        return segmento(msb, lsb).contains(msb, lsb);
+    }
+
+    /**
+     * Elimina las entradas cuya expiración es anterior o igual al instante indicado.
+     *
+     * @param ahoraSegundos Instante actual, en segundos desde epoch.
+     * @return El número de entradas eliminadas.
+     */
+    int removeExpired(long ahoraSegundos) {
+        int eliminadas = 0;
+        for (Segmento segmento : segmentos) {
+            eliminadas += segmento.removeExpired(ahoraSegundos);
+        }
+        return eliminadas;
+    }
+
+    /**
+     * Devuelve el número de entradas del conjunto.
+     */
+    int size() {
+        int total = 0;
+        for (Segmento segmento : segmentos) {
+            total += segmento.tamano;
+        }
+        return total;
+    }
+
+    /**
+     * Recorre todas las entradas del conjunto.
+     */
+    void forEach(Visitante visitante) {
+        for (Segmento segmento : segmentos) {
+            segmento.forEach(visitante);
+        }
+    }
+
+    private Segmento segmento(long msb, long lsb) {
+        return segmentos[(int) ((msb ^ lsb) >>> 60) & (NUM_SEGMENTOS - 1)];
+    }
+
+    private static int mezclar(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Tabla de un segmento. Ambos arrays se sustituyen juntos, de modo que una lectura optimista
+     * siempre ve claves y expiraciones de la misma capacidad.
+     */
+    private static final class Tabla {
+        private final long[] claves;
+        private final int[] expiraciones;
+
+        Tabla(int capacidad) {
+            this.claves = new long[2 * capacidad];
+            this.expiraciones = new int[capacidad];
+        }
+
+        int capacidad() {
+            return expiraciones.length;
+        }
+
+        boolean buscar(long msb, long lsb) {
+            int mascara = expiraciones.length - 1;
+            int indice = mezclar(msb, lsb) & mascara;
+            for (int sondeos = 0; sondeos <= mascara && expiraciones[indice] != 0; sondeos++) {
+                if (claves[2 * indice] == msb && claves[2 * indice + 1] == lsb) {
+                    return true;
+                }
+                indice = (indice + 1) & mascara;
+            }
+            return false;
+        }
+
+        void insertar(long msb, long lsb, int expiracionSegundos) {
+            int mascara = expiraciones.length - 1;
+            int indice = mezclar(msb, lsb) & mascara;
+            while (expiraciones[indice] != 0) {
+                indice = (indice + 1) & mascara;
+            }
+            claves[2 * indice] = msb;
+            claves[2 * indice + 1] = lsb;
+            expiraciones[indice] = expiracionSegundos;
+        }
+    }
+
+    /**
+     * Segmento del conjunto: tabla de direccionamiento abierto protegida por un {@link StampedLock}.
+     * Una expiración igual a 0 marca una posición vacía.
+     */
+    private static final class Segmento {
+        private final StampedLock lock = new StampedLock();
+        private Tabla tabla = new Tabla(CAPACIDAD_INICIAL);
+        private volatile int tamano;
+        private int expiracionMinima = Integer.MAX_VALUE;
+
+        boolean contains(long msb, long lsb) {
+            long stamp = lock.tryOptimisticRead();
+            boolean encontrado = tabla.buscar(msb, lsb);
+            if (lock.validate(stamp)) {
+                return encontrado;
+            }
+
+            stamp = lock.readLock();
+            try {
+                return tabla.buscar(msb, lsb);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean add(long msb, long lsb, int expiracionSegundos) {
+            long stamp = lock.writeLock();
+            try {
+                if (tabla.buscar(msb, lsb)) {
+                    return false;
+                }
+                if ((tamano + 1) * 4 > tabla.capacidad() * 3) {
+                    reconstruir(tabla.capacidad() * 2, 0);
+                }
+                tabla.insertar(msb, lsb, expiracionSegundos);
+                tamano++;
+                expiracionMinima = Math.min(expiracionMinima, expiracionSegundos);
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int removeExpired(long ahoraSegundos) {
+            long stamp = lock.writeLock();
+            try {
+                if (expiracionMinima > ahoraSegundos) {
+                    return 0;
+                }
+                int anterior = tamano;
+                int capacidad = CAPACIDAD_INICIAL;
+                while (capacidad * 3 < tamano * 4) {
+                    capacidad *= 2;
+                }
+                reconstruir(capacidad, ahoraSegundos);
+                return anterior - tamano;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEach(Visitante visitante) {
+            long stamp = lock.readLock();
+            try {
+                for (int i = 0; i < tabla.capacidad(); i++) {
+                    int expiracion = tabla.expiraciones[i];
+                    if (expiracion != 0) {
+                        visitante.visitar(tabla.claves[2 * i], tabla.claves[2 * i + 1], expiracion);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Reconstruye la tabla con la capacidad indicada, conservando solo las entradas que expiran
+         * después de {@code ahoraSegundos}. Debe llamarse con el bloqueo de escritura adquirido.
+         */
+        private void reconstruir(int capacidad, long ahoraSegundos) {
+            Tabla nueva = new Tabla(capacidad);
+            int nuevoTamano = 0;
+            int nuevaExpiracionMinima = Integer.MAX_VALUE;
+
+            for (int i = 0; i < tabla.capacidad(); i++) {
+                int expiracion = tabla.expiraciones[i];
+                if (expiracion != 0 && expiracion > ahoraSegundos) {
+                    nueva.insertar(tabla.claves[2 * i], tabla.claves[2 * i + 1], expiracion);
+                    nuevoTamano++;
+                    nuevaExpiracionMinima = Math.min(nuevaExpiracionMinima, expiracion);
+                }
+            }
+
+            tabla = nueva;
+            tamano = nuevoTamano;
+            expiracionMinima = nuevaExpiracionMinima;
+        }
+    }
+}
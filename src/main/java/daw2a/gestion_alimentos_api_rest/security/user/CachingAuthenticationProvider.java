@@ -0,0 +1,132 @@
+package daw2a.gestion_alimentos_api_rest.security.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Proveedor de autenticación por usuario y contraseña con caché de credenciales ya verificadas.
+ *
+ * <p>Delega la primera comprobación de cada par de credenciales en un {@link DaoAuthenticationProvider}, que
+ * ejecuta BCrypt. Si es correcta, guarda durante un tiempo corto el hash de contraseña con el que se verificó,
+ * indexado por un HMAC-SHA256 de las credenciales con una sal aleatoria generada al arrancar. Las peticiones
+ * siguientes con las mismas credenciales (por ejemplo, las integraciones que usan HTTP Basic) se autentican
+ * comparando ese hash con el actual del usuario, sin volver a ejecutar BCrypt.</p>
+ *
+ * <p>Nunca se almacena la contraseña ni un resumen reversible sin la sal, y un cambio de contraseña invalida las
+ * entradas del usuario porque su hash deja de coincidir. Solo se guardan las autenticaciones correctas.</p>
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final DaoAuthenticationProvider delegado;
+    private final UserDetailsService userDetailsService;
+    private final SecretKeySpec sal;
+
+    // Hash de contraseña verificado, indexado por el HMAC de las credenciales
+    private final Cache<String, String> credencialesVerificadas;
+
+    /**
+     * Constructor que crea la caché de credenciales y registra sus métricas.
+     *
+     * @param delegado Proveedor que realiza la comprobación completa de las credenciales.
+     * @param userDetailsService Servicio para cargar los detalles del usuario.
+     * @param maxEntradas Número máximo de credenciales verificadas en memoria.
+     * @param ttl Tiempo durante el que una credencial verificada se mantiene en caché.
+     * @param meterRegistry Registro de métricas donde se publican los aciertos y fallos de la caché.
+     */
+    public CachingAuthenticationProvider(DaoAuthenticationProvider delegado, UserDetailsService userDetailsService,
+                                         long maxEntradas, Duration ttl, MeterRegistry meterRegistry) {
+        this.delegado = delegado;
+        this.userDetailsService = userDetailsService;
+
+        byte[] bytesSal = new byte[32];
+        new SecureRandom().nextBytes(bytesSal);
+        this.sal = new SecretKeySpec(bytesSal, "HmacSHA256");
+
+        this.credencialesVerificadas = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, credencialesVerificadas, "credenciales");
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String username = authentication.getName();
+        Object credenciales = authentication.getCredentials();
+        if (username == null || credenciales == null) {
+            return delegado.authenticate(authentication);
+        }
+
+        String clave = calcularClave(username, credenciales.toString());
+        String hashVerificado = credencialesVerificadas.getIfPresent(clave);
+
+        if (hashVerificado != null) {
+            UserDetails userDetails = cargarUsuario(username);
+            if (userDetails != null && hashVerificado.equals(userDetails.getPassword()) && cuentaActiva(userDetails)) {
+                UsernamePasswordAuthenticationToken resultado = UsernamePasswordAuthenticationToken.authenticated(
+                        userDetails, null, userDetails.getAuthorities());
+                resultado.setDetails(authentication.getDetails());
+                return resultado;
+            }
+            credencialesVerificadas.invalidate(clave);
+        }
+
+        Authentication resultado = delegado.authenticate(authentication);
+        if (resultado != null && resultado.getPrincipal() instanceof UserDetails userDetails && userDetails.getPassword() != null) {
+            credencialesVerificadas.put(clave, userDetails.getPassword());
+        }
+        return resultado;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegado.supports(authentication);
+    }
+
+    private UserDetails cargarUsuario(String username) {
+        try {
+            return userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static boolean cuentaActiva(UserDetails userDetails) {
+        return userDetails.isEnabled() && userDetails.isAccountNonLocked()
+                && userDetails.isAccountNonExpired() && userDetails.isCredentialsNonExpired();
+    }
+
+    /**
+     * Calcula el HMAC-SHA256 de las credenciales con la sal del proceso.
+     */
+    private String calcularClave(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(sal);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+}
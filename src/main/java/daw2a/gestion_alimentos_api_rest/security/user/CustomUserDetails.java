@@ -1,6 +1,7 @@
 package daw2a.gestion_alimentos_api_rest.security.user;
 
 import daw2a.gestion_alimentos_api_rest.entities.Usuario;
+import daw2a.gestion_alimentos_api_rest.enums.Rol;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -28,6 +29,42 @@ public class CustomUserDetails implements UserDetails {
         this.usuario = usuario;
     }
 
+    /**
+     * Devuelve el usuario autenticado.
+     *
+     * @return La entidad {@link Usuario} asociada.
+     */
+    public Usuario getUsuario() {
+        return usuario;
+    }
+
+    /**
+     * Devuelve el identificador del usuario.
+     *
+     * @return El id del usuario.
+     */
+    public Long getId() {
+        return usuario.getId();
+    }
+
+    /**
+     * Devuelve el rol del usuario.
+     *
+     * @return El rol del usuario.
+     */
+    public Rol getRol() {
+        return usuario.getRol();
+    }
+
+    /**
+     * Devuelve la versión actual de los tokens del usuario.
+     *
+     * @return La versión de los tokens del usuario.
+     */
+    public Long getVersionToken() {
+        return usuario.getVersionToken();
+    }
+
     /**
      * Devuelve los roles o autoridades del usuario. En este caso, el rol se obtiene del objeto {@link Usuario}.
      *
@@ -1,33 +1,68 @@
 package daw2a.gestion_alimentos_api_rest.security.user;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import daw2a.gestion_alimentos_api_rest.entities.Usuario;
 import daw2a.gestion_alimentos_api_rest.repositories.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Servicio personalizado para cargar los detalles de un usuario a partir de su email.
  * Implementa la interfaz {@link UserDetailsService} de Spring Security.
  *
  * <p>Este servicio es utilizado por Spring Security para obtener los detalles del usuario
  * a partir del email proporcionado durante el proceso de autenticación.</p>
+ *
+ * <p>Los detalles cargados se guardan en una caché acotada con tiempo de vida, para que el filtro JWT no
+ * consulte la base de datos en cada petición. {@link daw2a.gestion_alimentos_api_rest.services.UsuarioService}
+ * invalida la entrada de un usuario al modificarlo o eliminarlo, de modo que los cambios de rol y las bajas
+ * se aplican de inmediato. Las demás instancias la invalidan al leer la revocación de los tokens del usuario del
+ * almacén compartido, como mucho en el intervalo de sondeo ({@code jwt.revocaciones.intervalo-sondeo-ms}).</p>
  */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UsuarioRepository usuarioRepository;
 
+    // Caché de detalles de usuario indexada por email
+    private final Cache<String, UserDetails> usuariosCache;
+
+    // Email con el que está guardado cada usuario en la caché, para invalidarlo por id sin recorrerla
+    private final Map<Long, String> emailsPorId = new ConcurrentHashMap<>();
+
     /**
-     * Constructor que inicializa el servicio con el repositorio de usuarios.
+     * Constructor que inicializa el servicio con el repositorio de usuarios y la caché de detalles.
      *
      * @param usuarioRepository El repositorio que proporciona acceso a los datos del usuario.
+     * @param maxEntradas Número máximo de usuarios que se mantienen en la caché.
+     * @param ttl Tiempo de vida de cada entrada de la caché.
+     * @param meterRegistry Registro de métricas donde se publican los aciertos y fallos de la caché.
      */
     @Autowired
-    public CustomUserDetailsService(UsuarioRepository usuarioRepository) {
+    public CustomUserDetailsService(UsuarioRepository usuarioRepository,
+                                    @Value("${usuarios.cache.max-entradas:10000}") long maxEntradas,
+                                    @Value("${usuarios.cache.ttl:5m}") Duration ttl,
+                                    MeterRegistry meterRegistry) {
         this.usuarioRepository = usuarioRepository;
+        this.usuariosCache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .evictionListener((String email, UserDetails userDetails, RemovalCause causa) -> quitarDelIndice(email, userDetails))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, usuariosCache, "usuarios");
     }
 
     /**
@@ -39,8 +74,53 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        UserDetails userDetails = usuariosCache.getIfPresent(email);
+        if (userDetails != null) {
+            return userDetails;
+        }
+
         Usuario usuario = usuarioRepository.findUsuarioByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con email: " + email));
-        return new CustomUserDetails(usuario);
+        userDetails = new CustomUserDetails(usuario);
+        usuariosCache.put(email, userDetails);
+        String emailAnterior = emailsPorId.put(usuario.getId(), email);
+        if (emailAnterior != null && !emailAnterior.equals(email)) {
+            // El usuario ha cambiado de email: se descarta la entrada guardada con el anterior
+            usuariosCache.invalidate(emailAnterior);
+        }
+        return userDetails;
+    }
+
+    /**
+     * Elimina de la caché los detalles del usuario con el email indicado.
+     * <p>Debe llamarse siempre que se modifique o elimine un usuario.</p>
+     *
+     * @param email El email del usuario a invalidar.
+     */
+    public void invalidarUsuario(String email) {
+        UserDetails userDetails = usuariosCache.asMap().remove(email);
+        if (userDetails != null) {
+            quitarDelIndice(email, userDetails);
+        }
+    }
+
+    /**
+     * Elimina de la caché los detalles del usuario con el identificador indicado, sea cual sea su email.
+     * <p>Se usa al leer la revocación de los tokens de un usuario modificado en otra instancia, que no conoce
+     * el email con el que se guardó en esta. El email se obtiene de un índice por id, sin recorrer la caché.</p>
+     *
+     * @param idUsuario El identificador del usuario a invalidar.
+     */
+    public void invalidarUsuario(Long idUsuario) {
+        String email = emailsPorId.remove(idUsuario);
+        if (email != null) {
+            usuariosCache.invalidate(email);
+        }
+    }
+
+    private void quitarDelIndice(String email, UserDetails userDetails) {
+        if (userDetails instanceof CustomUserDetails customUserDetails) {
+            emailsPorId.remove(customUserDetails.getId(), email);
+        }
     }
 }
@@ -1,34 +1,67 @@
 package daw2a.gestion_alimentos_api_rest.services;
 
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
+import daw2a.gestion_alimentos_api_rest.dto.PaginaDTO;
 import daw2a.gestion_alimentos_api_rest.dto.alimento.AlimentoDTO;
 import daw2a.gestion_alimentos_api_rest.dto.alimento.CrearAlimentoDTO;
 import daw2a.gestion_alimentos_api_rest.dto.alimento.ModificarAlimentoDTO;
+import daw2a.gestion_alimentos_api_rest.dto.alimento.SugerenciaAlimentoDTO;
 import daw2a.gestion_alimentos_api_rest.entities.Alimento;
+import daw2a.gestion_alimentos_api_rest.enums.EstadoAlimento;
+import daw2a.gestion_alimentos_api_rest.enums.ModoTotal;
+import daw2a.gestion_alimentos_api_rest.enums.TipoAlimento;
 import daw2a.gestion_alimentos_api_rest.exceptions.RecursoNoEncontradoException;
 import daw2a.gestion_alimentos_api_rest.repositories.AlimentoRepository;
+import daw2a.gestion_alimentos_api_rest.repositories.EstadisticasRepository;
+import daw2a.gestion_alimentos_api_rest.repositories.UbicacionRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
 
 
 /**
  * Servicio para gestionar las operaciones relacionadas con los alimentos.
  * <p>Este servicio permite realizar las operaciones de listar, obtener, crear, actualizar y eliminar alimentos,
  * así como buscar alimentos por nombre y fecha de caducidad.</p>
+ *
+ * <p>Los listados se obtienen con consultas que construyen directamente los DTO de respuesta, en transacciones
+ * de solo lectura.</p>
  */
 @Service
 public class AlimentoService {
+    // Periodo del listado de alimentos próximos a caducar
+    private static final Period VENTANA_CADUCIDAD = Period.ofWeeks(1);
+    // Número máximo de sugerencias de la búsqueda por nombre
+    private static final int MAX_SUGERENCIAS = 50;
+
     private final AlimentoRepository alimentoRepository;
+    private final UbicacionRepository ubicacionRepository;
+    private final EstadisticasRepository estadisticasRepository;
+    private final CaducidadCache caducidadCache;
+    private final SugerenciasAlimentos sugerenciasAlimentos;
 
     /**
      * Constructor del servicio de alimentos.
      *
      * @param alimentoRepository Repositorio de alimentos utilizado para realizar las operaciones de persistencia.
+     * @param ubicacionRepository Repositorio de ubicaciones, para liberar la capacidad ocupada por las existencias del alimento.
+     * @param estadisticasRepository Repositorio de estadísticas, para estimar el total de alimentos.
+     * @param caducidadCache Caché de los listados de próximos a caducar, que se invalida al modificar alimentos.
+     * @param sugerenciasAlimentos Índice de nombres para la búsqueda de sugerencias, que se actualiza al modificar alimentos.
      */
-    public AlimentoService(AlimentoRepository alimentoRepository) {
+    public AlimentoService(AlimentoRepository alimentoRepository, UbicacionRepository ubicacionRepository,
+                           EstadisticasRepository estadisticasRepository, CaducidadCache caducidadCache,
+                           SugerenciasAlimentos sugerenciasAlimentos) {
         this.alimentoRepository = alimentoRepository;
+        this.ubicacionRepository = ubicacionRepository;
+        this.estadisticasRepository = estadisticasRepository;
+        this.caducidadCache = caducidadCache;
+        this.sugerenciasAlimentos = sugerenciasAlimentos;
     }
 
     /**
@@ -40,16 +73,57 @@ public class AlimentoService {
      * @param pageable Configuración de paginación.
      * @return Una página de alimentos.
      */
+    @Transactional(readOnly = true)
     public Page<?> listarAlimentos(String nombre, Pageable pageable) {
-        Page<Alimento> alimentos;
-
         if (nombre != null && !nombre.isEmpty()) {
-            alimentos = alimentoRepository.findByNombreContainingIgnoreCase(nombre, pageable);
-        } else {
-            alimentos = alimentoRepository.findAll(pageable);
+            return alimentoRepository.listarPorNombre(nombre, pageable);
         }
+        return alimentoRepository.listarAlimentos(pageable);
+    }
+
+    /**
+     * Lista los alimentos, opcionalmente filtrando por nombre, sin calcular el total exacto.
+     * <p>No se ejecuta la consulta de recuento. Si se solicita el total aproximado y no se filtra por nombre, se
+     * incluye el número de filas estimado por la base de datos.</p>
+     *
+     * @param nombre Nombre del alimento (opcional).
+     * @param total Modo de cálculo del total ({@code NINGUNO} o {@code APROXIMADO}).
+     * @param pageable Configuración de paginación.
+     * @return Una página compacta de alimentos.
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<AlimentoDTO> listarAlimentosSinTotal(String nombre, ModoTotal total, Pageable pageable) {
+        boolean filtrado = nombre != null && !nombre.isEmpty();
+        Long totalAproximado = total == ModoTotal.APROXIMADO && !filtrado
+                ? estadisticasRepository.filasAproximadas("alimento") : null;
 
-        return alimentos.map(this::convertirAAlimentoDTO);
+        return PaginaDTO.desde(alimentoRepository.listarSinTotal(filtrado ? nombre : "", pageable), totalAproximado);
+    }
+
+    /**
+     * Lista los alimentos mediante paginación por cursor, opcionalmente filtrando por nombre.
+     * <p>Cada página continúa a partir del último alimento de la anterior, por lo que su coste no depende de
+     * cuántas páginas se hayan recorrido. Se puede ordenar por {@code id} (por defecto) o por {@code nombre}.</p>
+     *
+     * @param nombre Nombre del alimento (opcional).
+     * @param after Cursor de la página anterior, o vacío para obtener la primera página.
+     * @param pageable Tamaño de página y orden; el número de página se ignora.
+     * @return La página de alimentos y el cursor de la siguiente.
+     * @throws IllegalArgumentException Si el cursor no es válido o el orden no está admitido.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<AlimentoDTO> listarAlimentosPorCursor(String nombre, String after, Pageable pageable) {
+        String orden = Cursor.ordenSolicitado(pageable, Cursor.ORDEN_ID, "nombre");
+        Cursor cursor = Cursor.leer(after, orden);
+        String filtro = nombre == null ? "" : nombre;
+
+        if (orden.equals("nombre")) {
+            List<AlimentoDTO> alimentos = alimentoRepository.listarPorCursorNombre(filtro, Cursor.texto(cursor),
+                    Cursor.id(cursor), Cursor.limite(pageable));
+            return Cursor.pagina(alimentos, pageable, a -> Cursor.crear(orden, a.getId(), a.getNombre()));
+        }
+        List<AlimentoDTO> alimentos = alimentoRepository.listarPorCursorId(filtro, Cursor.id(cursor), Cursor.limite(pageable));
+        return Cursor.pagina(alimentos, pageable, a -> Cursor.crear(orden, a.getId(), null));
     }
 
     /**
@@ -61,9 +135,23 @@ public class AlimentoService {
      * @param pageable Configuración de paginación.
      * @return Una página de alimentos.
      */
+    @Transactional(readOnly = true)
     public Page<AlimentoDTO> listarEntreFechasCaducidad(LocalDate fechaInicio, LocalDate fechaFin, Pageable pageable) {
-        Page<Alimento> alimentos = alimentoRepository.findByFechaCaducidadBetween(fechaInicio, fechaFin, pageable);
-        return alimentos.map(this::convertirAAlimentoDTO);
+        return alimentoRepository.listarPorFechaCaducidad(fechaInicio, fechaFin, pageable);
+    }
+
+    /**
+     * Lista los alimentos que caducan entre hoy y dentro de una semana.
+     * <p>El resultado se guarda en caché por día y página hasta la medianoche o hasta que se modifique un alimento,
+     * por lo que las consultas repetidas no acceden a la base de datos.</p>
+     *
+     * @param pageable Configuración de paginación.
+     * @return Una página de alimentos próximos a caducar.
+     */
+    public Page<AlimentoDTO> listarAlimentosCaducan(Pageable pageable) {
+        LocalDate hoy = caducidadCache.hoy();
+        return caducidadCache.obtener("alimentos", hoy, VENTANA_CADUCIDAD, pageable,
+                () -> listarEntreFechasCaducidad(hoy, hoy.plus(VENTANA_CADUCIDAD), pageable));
     }
 
     /**
@@ -81,6 +169,23 @@ public class AlimentoService {
         return convertirAAlimentoDTO(alimento);
     }
 
+    /**
+     * Sugiere alimentos cuyo nombre corresponde al texto escrito, para completar la búsqueda mientras se escribe.
+     * <p>Se resuelve con el índice de nombres en memoria, sin consultar la base de datos. Se devuelven primero los
+     * nombres que empiezan por el texto y después los que lo contienen o se le parecen.</p>
+     *
+     * @param texto Texto escrito.
+     * @param limite Número máximo de sugerencias.
+     * @return Las sugerencias encontradas.
+     * @throws IllegalArgumentException Si el límite no está entre 1 y el máximo permitido.
+     */
+    public List<SugerenciaAlimentoDTO> sugerirAlimentos(String texto, int limite) {
+        if (limite <= 0 || limite > MAX_SUGERENCIAS) {
+            throw new IllegalArgumentException("El número de sugerencias debe estar entre 1 y " + MAX_SUGERENCIAS);
+        }
+        return sugerenciasAlimentos.sugerir(texto, limite);
+    }
+
     /**
      * Crea un nuevo alimento.
      * <p>Permite crear un alimento con los datos proporcionados en el DTO de creación.</p>
@@ -91,11 +196,14 @@ public class AlimentoService {
     public AlimentoDTO crearAlimento(CrearAlimentoDTO crearAlimentoDTO) {
         Alimento alimento = new Alimento();
         alimento.setNombre(crearAlimentoDTO.getNombre());
-        alimento.setTipo(crearAlimentoDTO.getTipo());
-        alimento.setEstado("Cerrado");
+        alimento.setTipo(TipoAlimento.desde(crearAlimentoDTO.getTipo()));
+        alimento.setEstado(EstadoAlimento.CERRADO);
         alimento.setFechaCaducidad(crearAlimentoDTO.getFechaCaducidad());
 
-        return convertirAAlimentoDTO(alimentoRepository.save(alimento));
+        AlimentoDTO alimentoDTO = convertirAAlimentoDTO(alimentoRepository.save(alimento));
+        caducidadCache.invalidar();
+        sugerenciasAlimentos.actualizar(alimentoDTO.getId(), alimentoDTO.getNombre());
+        return alimentoDTO;
     }
 
     /**
@@ -115,30 +223,38 @@ public class AlimentoService {
             alimento.setNombre(modificarAlimentoDTO.getNombre());
         }
         if (modificarAlimentoDTO.getTipo() != null && !modificarAlimentoDTO.getTipo().isEmpty()) {
-            alimento.setTipo(modificarAlimentoDTO.getTipo());
+            alimento.setTipo(TipoAlimento.desde(modificarAlimentoDTO.getTipo()));
         }
         if (modificarAlimentoDTO.getEstado() != null && !modificarAlimentoDTO.getEstado().isEmpty()) {
-            alimento.setEstado(modificarAlimentoDTO.getEstado());
+            alimento.setEstado(EstadoAlimento.desde(modificarAlimentoDTO.getEstado()));
         }
         if (modificarAlimentoDTO.getFechaCaducidad() != null) {
             alimento.setFechaCaducidad(modificarAlimentoDTO.getFechaCaducidad());
         }
 
-        return convertirAAlimentoDTO(alimentoRepository.save(alimento));
+        AlimentoDTO alimentoDTO = convertirAAlimentoDTO(alimentoRepository.save(alimento));
+        caducidadCache.invalidar();
+        sugerenciasAlimentos.actualizar(alimentoDTO.getId(), alimentoDTO.getNombre());
+        return alimentoDTO;
     }
 
     /**
      * Elimina un alimento.
-     * <p>Permite eliminar un alimento de la base de datos mediante su id.</p>
+     * <p>Permite eliminar un alimento de la base de datos mediante su id. Sus existencias se eliminan con él,
+     * por lo que antes se libera la capacidad que ocupaban en sus ubicaciones.</p>
      *
      * @param id Identificador del alimento a eliminar.
      * @throws RecursoNoEncontradoException Si no se encuentra un alimento con el id proporcionado.
      */
+    @Transactional
     public void eliminarAlimento(Long id) {
         Alimento alimento = alimentoRepository.findById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Alimento con id " + id + " no encontrado"));
 
+        ubicacionRepository.liberarCapacidadDeAlimento(id);
         alimentoRepository.delete(alimento);
+        caducidadCache.invalidar();
+        sugerenciasAlimentos.eliminar(id);
     }
 
     /**
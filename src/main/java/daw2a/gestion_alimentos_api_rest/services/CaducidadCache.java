@@ -0,0 +1,135 @@
+package daw2a.gestion_alimentos_api_rest.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché de los listados de alimentos y existencias próximos a caducar.
+ *
+ * <p>Estos listados dependen solo de la fecha actual y de los datos de alimentos, existencias y ubicaciones, por lo
+ * que se guardan indexados por el día, la ventana de días consultada y la página. Cada entrada caduca a la
+ * medianoche de su día según el {@link Clock} de la aplicación, y cualquier escritura en esos datos descarta todas
+ * las entradas en cuanto se confirma su transacción.</p>
+ *
+ * <p>Las entradas incluyen una generación que aumenta con cada invalidación, de forma que un resultado leído antes
+ * de una escritura y guardado después no se devuelve nunca.</p>
+ */
+@Component
+public class CaducidadCache {
+
+    private final Clock clock;
+    private final AtomicLong generacion = new AtomicLong();
+    private final Cache<Clave, Object> resultados;
+
+    /**
+     * Clave de un listado: nombre del listado, día, ventana, página y generación de la caché.
+     */
+    private record Clave(String listado, LocalDate dia, Period ventana, int pagina, int tamano, Sort orden,
+                         long generacion) {
+    }
+
+    /**
+     * Constructor que crea la caché y registra sus métricas.
+     *
+     * @param clock Reloj de la aplicación.
+     * @param maxEntradas Número máximo de páginas en memoria.
+     * @param meterRegistry Registro de métricas donde se publican los aciertos y fallos de la caché.
+     */
+    public CaducidadCache(Clock clock, @Value("${caducidad.cache.max-entradas:1000}") long maxEntradas,
+                          MeterRegistry meterRegistry) {
+        this.clock = clock;
+        this.resultados = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfter(new HastaMedianoche())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, resultados, "caducidad");
+    }
+
+    /**
+     * Devuelve el día actual según el reloj de la aplicación.
+     *
+     * @return La fecha de hoy.
+     */
+    public LocalDate hoy() {
+        return LocalDate.now(clock);
+    }
+
+    /**
+     * Obtiene una página de un listado de la caché o, si no está, la consulta y la guarda.
+     *
+     * @param listado Nombre del listado.
+     * @param dia Día a partir del cual se calcula la ventana.
+     * @param ventana Periodo de días del listado.
+     * @param pageable Página solicitada.
+     * @param consulta Consulta que obtiene la página.
+     * @return La página del listado.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(String listado, LocalDate dia, Period ventana, Pageable pageable, Supplier<T> consulta) {
+        Clave clave = new Clave(listado, dia, ventana, pageable.getPageNumber(), pageable.getPageSize(),
+                pageable.getSort(), generacion.get());
+        return (T) resultados.get(clave, c -> consulta.get());
+    }
+
+    /**
+     * Descarta todas las páginas guardadas cuando se confirme la transacción actual, o de inmediato si no hay
+     * ninguna transacción activa.
+     * <p>Hasta la confirmación, los datos anteriores siguen siendo los visibles para el resto de peticiones.</p>
+     */
+    public void invalidar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descartar();
+                }
+            });
+        } else {
+            descartar();
+        }
+    }
+
+    private void descartar() {
+        generacion.incrementAndGet();
+        resultados.invalidateAll();
+    }
+
+    /**
+     * Política de expiración que mantiene cada entrada hasta la medianoche del día de su clave.
+     */
+    private class HastaMedianoche implements Expiry<Clave, Object> {
+
+        @Override
+        public long expireAfterCreate(Clave clave, Object valor, long ahora) {
+            Duration restante = Duration.between(clock.instant(), clave.dia().plusDays(1).atStartOfDay(clock.getZone()));
+            return Math.max(0L, restante.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(Clave clave, Object valor, long ahora, long duracionActual) {
+            return expireAfterCreate(clave, valor, ahora);
+        }
+
+        @Override
+        public long expireAfterRead(Clave clave, Object valor, long ahora, long duracionActual) {
+            return duracionActual;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package daw2a.gestion_alimentos_api_rest.services;
+
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Cursor de la paginación por clave de los listados.
+ * <p>Guarda el orden del listado y la clave de ordenación y el id del último elemento devuelto. Las consultas
+ * continúan a partir de esa clave con una condición {@code (clave, id) > (:clave, :id)}, que se resuelve con un
+ * recorrido del índice, por lo que obtener la última página cuesta lo mismo que obtener la primera.</p>
+ *
+ * <p>Se envía al cliente codificado en Base64 URL, y no debe interpretarse fuera de la API.</p>
+ */
+final class Cursor {
+
+    /**
+     * Orden por defecto de los listados por cursor.
+     */
+    static final String ORDEN_ID = "id";
+
+    /**
+     * Valor inicial para las claves de tipo fecha, anterior a cualquier fecha almacenada.
+     */
+    static final LocalDate FECHA_INICIAL = LocalDate.of(1, 1, 1);
+
+    private static final Base64.Encoder CODIFICADOR = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODIFICADOR = Base64.getUrlDecoder();
+
+    private final long id;
+    private final String valor;
+
+    private Cursor(long id, String valor) {
+        this.id = id;
+        this.valor = valor;
+    }
+
+    /**
+     * Obtiene el orden solicitado en la paginación, comprobando que el listado lo admite.
+     * <p>Solo se admite ordenar de forma ascendente por una única propiedad. Si no se indica orden, se ordena por id.</p>
+     *
+     * @param pageable Configuración de paginación de la petición.
+     * @param permitidos Propiedades por las que se puede ordenar el listado.
+     * @return La propiedad por la que se ordena.
+     * @throws IllegalArgumentException Si el orden solicitado no está admitido.
+     */
+    static String ordenSolicitado(Pageable pageable, String... permitidos) {
+        Sort sort = pageable.getSort();
+        if (sort.isUnsorted()) {
+            return ORDEN_ID;
+        }
+
+        List<Sort.Order> ordenes = sort.toList();
+        Sort.Order orden = ordenes.get(0);
+        if (ordenes.size() > 1 || orden.isDescending() || !Arrays.asList(permitidos).contains(orden.getProperty())) {
+            throw new IllegalArgumentException("La paginación por cursor solo admite ordenar de forma ascendente por "
+                    + String.join(", ", permitidos));
+        }
+        return orden.getProperty();
+    }
+
+    /**
+     * Decodifica el cursor recibido en el parámetro {@code after}.
+     *
+     * @param token El cursor recibido. Si está vacío, se solicita la primera página.
+     * @param orden El orden del listado, que debe coincidir con el del cursor.
+     * @return El cursor decodificado, o {@code null} si se solicita la primera página.
+     * @throws IllegalArgumentException Si el cursor no es válido o se generó con otro orden.
+     */
+    static Cursor leer(String token, String orden) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        String[] partes;
+        long id;
+        try {
+            partes = new String(DECODIFICADOR.decode(token), StandardCharsets.UTF_8).split("\n", 3);
+            id = Long.parseLong(partes[1]);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("El cursor no es válido");
+        }
+        if (partes.length != 3 || !partes[0].equals(orden)) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado");
+        }
+        return new Cursor(id, partes[2]);
+    }
+
+    /**
+     * Codifica el cursor que apunta a un elemento del listado.
+     *
+     * @param orden El orden del listado.
+     * @param id El id del elemento.
+     * @param valor La clave de ordenación del elemento, o {@code null} si se ordena por id.
+     * @return El cursor codificado.
+     */
+    static String crear(String orden, long id, Object valor) {
+        String texto = orden + "\n" + id + "\n" + (valor == null ? "" : valor);
+        return CODIFICADOR.encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Devuelve la paginación con la que se consulta una página: sin desplazamiento y con un elemento más del tamaño
+     * solicitado, para saber si hay una página siguiente sin contar los resultados.
+     *
+     * @param pageable Configuración de paginación de la petición.
+     * @return La paginación de la consulta.
+     */
+    static Pageable limite(Pageable pageable) {
+        return PageRequest.of(0, pageable.getPageSize() + 1);
+    }
+
+    /**
+     * Construye la página a partir de las filas obtenidas con {@link #limite(Pageable)}.
+     *
+     * @param filas Las filas obtenidas, como mucho una más del tamaño de página.
+     * @param pageable Configuración de paginación de la petición.
+     * @param cursorDe Función que calcula el cursor de un elemento.
+     * @return La página, con el cursor del último elemento si hay más resultados.
+     */
+    static <T> PaginaCursorDTO<T> pagina(List<T> filas, Pageable pageable, Function<T, String> cursorDe) {
+        int tamano = pageable.getPageSize();
+        if (filas.size() <= tamano) {
+            return new PaginaCursorDTO<>(filas, tamano, null);
+        }
+
+        List<T> contenido = filas.subList(0, tamano);
+        return new PaginaCursorDTO<>(contenido, tamano, cursorDe.apply(contenido.get(tamano - 1)));
+    }
+
+    /**
+     * Devuelve el id del último elemento de la página anterior.
+     *
+     * @param cursor El cursor decodificado, o {@code null} en la primera página.
+     * @return El id del último elemento, o 0 si se solicita la primera página.
+     */
+    static long id(Cursor cursor) {
+        return cursor == null ? 0L : cursor.id;
+    }
+
+    /**
+     * Devuelve la clave de ordenación de texto del último elemento de la página anterior.
+     *
+     * @param cursor El cursor decodificado, o {@code null} en la primera página.
+     * @return La clave, o una cadena vacía si se solicita la primera página.
+     */
+    static String texto(Cursor cursor) {
+        return cursor == null ? "" : cursor.valor;
+    }
+
+    /**
+     * Devuelve la clave de ordenación de tipo fecha del último elemento de la página anterior.
+     *
+     * @param cursor El cursor decodificado, o {@code null} en la primera página.
+     * @return La fecha, o {@link #FECHA_INICIAL} si se solicita la primera página.
+     * @throws IllegalArgumentException Si la clave del cursor no es una fecha.
+     */
+    static LocalDate fecha(Cursor cursor) {
+        if (cursor == null) {
+            return FECHA_INICIAL;
+        }
+        try {
+            return LocalDate.parse(cursor.valor);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("El cursor no es válido");
+        }
+    }
+}
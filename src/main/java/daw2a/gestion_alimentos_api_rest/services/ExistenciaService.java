@@ -1,23 +1,43 @@
 package daw2a.gestion_alimentos_api_rest.services;
 
 import daw2a.gestion_alimentos_api_rest.dto.existencia.*;
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
+import daw2a.gestion_alimentos_api_rest.dto.PaginaDTO;
 import daw2a.gestion_alimentos_api_rest.entities.Alimento;
 import daw2a.gestion_alimentos_api_rest.entities.Existencia;
 import daw2a.gestion_alimentos_api_rest.entities.Ubicacion;
+import daw2a.gestion_alimentos_api_rest.enums.ModoLote;
+import daw2a.gestion_alimentos_api_rest.enums.ModoTotal;
+import daw2a.gestion_alimentos_api_rest.enums.PoliticaConsumo;
+import daw2a.gestion_alimentos_api_rest.exceptions.CantidadInsuficienteException;
+import daw2a.gestion_alimentos_api_rest.exceptions.LoteRechazadoException;
 import daw2a.gestion_alimentos_api_rest.exceptions.RecursoNoEncontradoException;
 import daw2a.gestion_alimentos_api_rest.exceptions.UbicacionLlenaException;
 import daw2a.gestion_alimentos_api_rest.repositories.AlimentoRepository;
+import daw2a.gestion_alimentos_api_rest.repositories.EstadisticasRepository;
 import daw2a.gestion_alimentos_api_rest.repositories.ExistenciaRepository;
 import daw2a.gestion_alimentos_api_rest.repositories.UbicacionRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Servicio encargado de gestionar las operaciones relacionadas con las existencias de alimentos
@@ -25,14 +45,24 @@ import java.util.List;
  */
 @Service
 public class ExistenciaService {
+    // Periodo del listado de existencias próximas a caducar
+    private static final Period VENTANA_CADUCIDAD = Period.ofWeeks(2);
+
     private final ExistenciaRepository existenciaRepository;
     private final AlimentoRepository alimentoRepository;
     private final UbicacionRepository ubicacionRepository;
+    private final EstadisticasRepository estadisticasRepository;
+    private final CaducidadCache caducidadCache;
+    private final Clock clock;
 
-    public ExistenciaService(ExistenciaRepository existenciaRepository, AlimentoRepository alimentoRepository, UbicacionRepository ubicacionRepository) {
+    public ExistenciaService(ExistenciaRepository existenciaRepository, AlimentoRepository alimentoRepository, UbicacionRepository ubicacionRepository,
+                             EstadisticasRepository estadisticasRepository, CaducidadCache caducidadCache, Clock clock) {
         this.existenciaRepository = existenciaRepository;
         this.alimentoRepository = alimentoRepository;
         this.ubicacionRepository = ubicacionRepository;
+        this.estadisticasRepository = estadisticasRepository;
+        this.caducidadCache = caducidadCache;
+        this.clock = clock;
     }
 
     /**
@@ -44,37 +74,168 @@ public class ExistenciaService {
      * @param pageable Objeto de paginación para controlar los resultados.
      * @return Un Page con los objetos ExistenciaDTO que representan las existencias.
      */
+    @Transactional(readOnly = true)
     public Page<ExistenciaDTO> listarExistencias(Long idAlimento, Long idUbicacion, Pageable pageable) {
-        Page<Existencia> existencias;
+        if (idAlimento != null && idUbicacion != null) {
+            return existenciaRepository.listarPorAlimentoYUbicacion(idAlimento, idUbicacion, pageable);
+        } else if (idAlimento != null) {
+            return existenciaRepository.listarPorAlimento(idAlimento, pageable);
+        } else if (idUbicacion != null) {
+            return existenciaRepository.listarPorUbicacion(idUbicacion, pageable);
+        }
+        return existenciaRepository.listarExistencias(pageable);
+    }
+
+    /**
+     * Lista las existencias, con posibilidad de filtrado por alimento y/o ubicación, sin calcular el total exacto.
+     * <p>No se ejecuta la consulta de recuento. Si se solicita el total aproximado y no se filtra, se incluye el
+     * número de filas estimado por la base de datos.</p>
+     *
+     * @param idAlimento Identificador del alimento (opcional).
+     * @param idUbicacion Identificador de la ubicación (opcional).
+     * @param total Modo de cálculo del total ({@code NINGUNO} o {@code APROXIMADO}).
+     * @param pageable Configuración de paginación.
+     * @return Una página compacta de existencias.
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<ExistenciaDTO> listarExistenciasSinTotal(Long idAlimento, Long idUbicacion, ModoTotal total, Pageable pageable) {
+        Long totalAproximado = total == ModoTotal.APROXIMADO && idAlimento == null && idUbicacion == null
+                ? estadisticasRepository.filasAproximadas("existencia") : null;
 
+        Slice<ExistenciaDTO> existencias;
         if (idAlimento != null && idUbicacion != null) {
-            existencias = existenciaRepository.findByAlimento_IdAndUbicacion_Id(idAlimento, idUbicacion, pageable);
+            existencias = existenciaRepository.listarPorAlimentoYUbicacionSinTotal(idAlimento, idUbicacion, pageable);
         } else if (idAlimento != null) {
-            existencias = existenciaRepository.findByAlimento_Id(idAlimento, pageable);
+            existencias = existenciaRepository.listarPorAlimentoSinTotal(idAlimento, pageable);
         } else if (idUbicacion != null) {
-            existencias = existenciaRepository.findByUbicacion_Id(idUbicacion, pageable);
+            existencias = existenciaRepository.listarPorUbicacionSinTotal(idUbicacion, pageable);
         } else {
-            existencias = existenciaRepository.findAll(pageable);
+            existencias = existenciaRepository.listarSinTotal(pageable);
+        }
+        return PaginaDTO.desde(existencias, totalAproximado);
+    }
+
+    /**
+     * Lista las existencias mediante paginación por cursor, con posibilidad de filtrado por alimento y/o ubicación.
+     * <p>Cada página continúa a partir de la última existencia de la anterior, por lo que su coste no depende de
+     * cuántas páginas se hayan recorrido. Se puede ordenar por {@code id} (por defecto) o por {@code fechaEntrada}.</p>
+     *
+     * @param idAlimento Identificador del alimento (opcional).
+     * @param idUbicacion Identificador de la ubicación (opcional).
+     * @param after Cursor de la página anterior, o vacío para obtener la primera página.
+     * @param pageable Tamaño de página y orden; el número de página se ignora.
+     * @return La página de existencias y el cursor de la siguiente.
+     * @throws IllegalArgumentException Si el cursor no es válido o el orden no está admitido.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<ExistenciaDTO> listarExistenciasPorCursor(Long idAlimento, Long idUbicacion, String after,
+                                                                     Pageable pageable) {
+        String orden = Cursor.ordenSolicitado(pageable, Cursor.ORDEN_ID, "fechaEntrada");
+        Cursor cursor = Cursor.leer(after, orden);
+
+        if (orden.equals("fechaEntrada")) {
+            List<ExistenciaDTO> existencias = listarPorCursorFechaEntrada(idAlimento, idUbicacion,
+                    Cursor.fecha(cursor), Cursor.id(cursor), Cursor.limite(pageable));
+            return Cursor.pagina(existencias, pageable, e -> Cursor.crear(orden, e.getId(), e.getFechaEntrada()));
         }
+        List<ExistenciaDTO> existencias = listarPorCursorId(idAlimento, idUbicacion, Cursor.id(cursor),
+                Cursor.limite(pageable));
+        return Cursor.pagina(existencias, pageable, e -> Cursor.crear(orden, e.getId(), null));
+    }
+
+    /**
+     * Elige la consulta por cursor de id según los filtros indicados, para que cada combinación use su propio índice.
+     *
+     * @param idAlimento Identificador del alimento (opcional).
+     * @param idUbicacion Identificador de la ubicación (opcional).
+     * @param id El id de la última existencia de la página anterior.
+     * @param limite El número máximo de existencias a obtener.
+     * @return Las existencias siguientes.
+     */
+    private List<ExistenciaDTO> listarPorCursorId(Long idAlimento, Long idUbicacion, Long id, Pageable limite) {
+        if (idAlimento != null && idUbicacion != null) {
+            return existenciaRepository.listarPorAlimentoYUbicacionPorCursorId(idAlimento, idUbicacion, id, limite);
+        } else if (idAlimento != null) {
+            return existenciaRepository.listarPorAlimentoPorCursorId(idAlimento, id, limite);
+        } else if (idUbicacion != null) {
+            return existenciaRepository.listarPorUbicacionPorCursorId(idUbicacion, id, limite);
+        }
+        return existenciaRepository.listarPorCursorId(id, limite);
+    }
 
-        return existencias.map(this::convertirAExistenciaDTO);
+    /**
+     * Elige la consulta por cursor de fecha de entrada según los filtros indicados.
+     *
+     * @param idAlimento Identificador del alimento (opcional).
+     * @param idUbicacion Identificador de la ubicación (opcional).
+     * @param fechaEntrada La fecha de entrada de la última existencia de la página anterior.
+     * @param id El id de la última existencia de la página anterior.
+     * @param limite El número máximo de existencias a obtener.
+     * @return Las existencias siguientes.
+     */
+    private List<ExistenciaDTO> listarPorCursorFechaEntrada(Long idAlimento, Long idUbicacion, LocalDate fechaEntrada,
+                                                            Long id, Pageable limite) {
+        if (idAlimento != null && idUbicacion != null) {
+            return existenciaRepository.listarPorAlimentoYUbicacionPorCursorFechaEntrada(idAlimento, idUbicacion,
+                    fechaEntrada, id, limite);
+        } else if (idAlimento != null) {
+            return existenciaRepository.listarPorAlimentoPorCursorFechaEntrada(idAlimento, fechaEntrada, id, limite);
+        } else if (idUbicacion != null) {
+            return existenciaRepository.listarPorUbicacionPorCursorFechaEntrada(idUbicacion, fechaEntrada, id, limite);
+        }
+        return existenciaRepository.listarPorCursorFechaEntrada(fechaEntrada, id, limite);
     }
 
     /**
-     * Lista las existencias que caducan dentro de un rango de fechas, agrupadas por su ubicación.
+     * Lista las existencias que caducan dentro de un rango de fechas, ordenadas por el tipo de su ubicación.
+     * <p>Devuelve una única página, por lo que no garantiza que aparezcan todas las ubicaciones. Para obtener las
+     * existencias de cada ubicación se utiliza {@link #listarCaducanAgrupadasPorUbicacion(int)}.</p>
      *
      * @param size Número de elementos por página.
      * @param fechaInicio Fecha de inicio del rango.
      * @param fechaFin Fecha de fin del rango.
      * @return Un Page con los objetos ExistenciaDetallesDTO que representan las existencias y detalles adicionales.
      */
+    @Transactional(readOnly = true)
     public Page<ExistenciaDetallesDTO> listadoCaducanPorUbicacion(int size, LocalDate fechaInicio, LocalDate fechaFin) {
         int page = 0;
 
         Pageable pageable = PageRequest.of(page, size, Sort.by("ubicacion.tipoUbicacion").ascending());
-        Page<Existencia> existencias = existenciaRepository.findByAlimento_FechaCaducidadBetween(fechaInicio, fechaFin, pageable);
+        return existenciaRepository.listarPorFechaCaducidad(fechaInicio, fechaFin, pageable);
+    }
+
+    /**
+     * Lista las existencias que caducan entre hoy y dentro de dos semanas, ordenadas por el tipo de su ubicación.
+     * <p>El resultado se guarda en caché por día y tamaño hasta la medianoche o hasta que se modifique una existencia,
+     * un alimento o una ubicación, por lo que las consultas repetidas no acceden a la base de datos.</p>
+     *
+     * @param size Número de elementos por página.
+     * @return Un Page con los objetos ExistenciaDetallesDTO de las existencias próximas a caducar.
+     */
+    public Page<ExistenciaDetallesDTO> listarCaducanPorUbicacion(int size) {
+        LocalDate hoy = caducidadCache.hoy();
+        return caducidadCache.obtener("existencias", hoy, VENTANA_CADUCIDAD, PageRequest.of(0, size),
+                () -> listadoCaducanPorUbicacion(size, hoy, hoy.plus(VENTANA_CADUCIDAD)));
+    }
 
-        return existencias.map(this::convertirAExistenciaDetallesDTO);
+    /**
+     * Obtiene el informe de existencias próximas a caducar agrupado por ubicación.
+     * <p>Para cada ubicación con existencias que caducan entre hoy y dentro de dos semanas, devuelve las
+     * {@code limite} que caducan antes. Se calcula con una única consulta y se guarda en caché igual que el
+     * listado de existencias próximas a caducar.</p>
+     *
+     * @param limite Número máximo de existencias por ubicación.
+     * @return Los grupos del informe, uno por ubicación, ordenados por tipo de ubicación.
+     * @throws IllegalArgumentException Si el límite no es positivo.
+     */
+    public List<CaducidadUbicacionDTO> listarCaducanAgrupadasPorUbicacion(int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El número de existencias por ubicación debe ser positivo");
+        }
+
+        LocalDate hoy = caducidadCache.hoy();
+        return caducidadCache.obtener("existencias-por-ubicacion", hoy, VENTANA_CADUCIDAD, PageRequest.of(0, limite),
+                () -> agruparPorUbicacion(existenciaRepository.listarCaducanPorUbicacion(hoy, hoy.plus(VENTANA_CADUCIDAD), limite)));
     }
 
     /**
@@ -94,6 +255,8 @@ public class ExistenciaService {
     /**
      * Registra una nueva existencia de alimento en una ubicación específica.
      * Verifica si la ubicación tiene suficiente capacidad antes de permitir la creación de la existencia.
+     * <p>La comprobación y la reserva de la capacidad se realizan en una única sentencia sobre el contador de
+     * capacidad ocupada de la ubicación, sin recorrer sus existencias.</p>
      *
      * @param nuevaExistencia DTO con los datos necesarios para crear la nueva existencia.
      * @return El DTO de la nueva existencia creada.
@@ -105,102 +268,246 @@ public class ExistenciaService {
         Alimento alimento = alimentoRepository.findById(nuevaExistencia.getIdAlimento())
                 .orElseThrow(() -> new RecursoNoEncontradoException("Alimento con el id " + nuevaExistencia.getIdAlimento() + " no encontrado"));
 
-        Ubicacion ubicacion = ubicacionRepository.findById(nuevaExistencia.getIdUbicacion())
-                .orElseThrow(() -> new RecursoNoEncontradoException("Ubicacion con id " + nuevaExistencia.getIdUbicacion() + " no encontrada"));
-
-
-        Long capacidadUbicacion = ubicacion.getCapacidad();
-        List<Existencia> existenciasMismaUbicacion = existenciaRepository.findByUbicacion_Id(ubicacion.getId(), null).getContent();
-        Long capacidadOcupada = existenciasMismaUbicacion.stream()
-                .mapToLong(Existencia::getCantidad)
-                .sum();
-
-        if (capacidadOcupada + nuevaExistencia.getCantidad() > capacidadUbicacion) {
-            throw new UbicacionLlenaException("La ubicacion con descripcion " + ubicacion.getDescripcion() + " esta llena");
-        }
+        Ubicacion ubicacion = reservarCapacidad(nuevaExistencia.getIdUbicacion(), nuevaExistencia.getCantidad());
 
         Existencia existencia = Existencia.builder()
                 .alimento(alimento)
                 .ubicacion(ubicacion)
                 .cantidad(nuevaExistencia.getCantidad())
-                .fechaEntrada(LocalDate.now())
+                .fechaEntrada(LocalDate.now(clock))
                 .build();
 
         existenciaRepository.save(existencia);
+        caducidadCache.invalidar();
         return convertirAExistenciaDTO(existencia);
     }
 
     /**
      * Actualiza la cantidad de una existencia existente.
+     * <p>La diferencia con la cantidad anterior se reserva o se libera en la capacidad ocupada de su ubicación.</p>
      *
      * @param id Identificador de la existencia a actualizar.
      * @param modificarExistenciaDTO DTO con el dato de cantidad a modificar.
      * @return El DTO con los datos de la existencia actualizada.
      * @throws RecursoNoEncontradoException Si no se encuentra la existencia con el id proporcionado.
+     * @throws UbicacionLlenaException Si la ubicación no tiene capacidad para el aumento de cantidad.
      */
     @Transactional
     public ExistenciaDTO actualizarCantidad(Long id, ModificarExistenciaDTO modificarExistenciaDTO) {
-        Existencia existencia = existenciaRepository.findById(id)
+        Existencia existencia = existenciaRepository.findConBloqueoById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Existencia con el id " + id + " no encontrada"));
 
+        long diferencia = modificarExistenciaDTO.getCantidad() - existencia.getCantidad();
+        if (diferencia > 0) {
+            reservarCapacidad(existencia.getUbicacion().getId(), diferencia);
+        } else if (diferencia < 0) {
+            ubicacionRepository.liberarCapacidad(existencia.getUbicacion().getId(), -diferencia);
+        }
+
         existencia.setCantidad(modificarExistenciaDTO.getCantidad());
+        caducidadCache.invalidar();
         return convertirAExistenciaDTO(existenciaRepository.save(existencia));
     }
 
     /**
      * Mueve una existencia de un alimento de una ubicación a otra.
+     * <p>La cantidad de la existencia se reserva en la ubicación de destino y se libera en la de origen. Las dos
+     * ubicaciones se bloquean antes en orden de id, igual que en los lotes, para que dos movimientos en sentidos
+     * opuestos, o un movimiento y un lote, no se bloqueen mutuamente.</p>
      *
      * @param id Identificador de la existencia a mover.
      * @param moverExistenciaDTO DTO con el id de la nueva ubicación.
      * @return El DTO de la existencia con la nueva ubicación.
      * @throws RecursoNoEncontradoException Si no se encuentra la existencia o la ubicación con los ids proporcionados.
+     * @throws UbicacionLlenaException Si la ubicación de destino no tiene capacidad suficiente.
      */
     @Transactional
     public ExistenciaDTO moverExistencia(Long id, MoverExistenciaDTO moverExistenciaDTO) {
-        Existencia existencia = existenciaRepository.findById(id)
+        Existencia existencia = existenciaRepository.findConBloqueoById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Existencia con el id " + id + " no encontrada"));
 
-        Ubicacion ubicacion = ubicacionRepository.findById(moverExistenciaDTO.getIdUbicacion())
-                .orElseThrow(() -> new RecursoNoEncontradoException("Ubicacion con el id " + id + " no encontrada"));
+        Long idOrigen = existencia.getUbicacion().getId();
+        Long idDestino = moverExistenciaDTO.getIdUbicacion();
+        if (idOrigen.equals(idDestino)) {
+            return convertirAExistenciaDTO(existencia);
+        }
+
+        Ubicacion ubicacion = ubicacionRepository.findConBloqueoByIdIn(new TreeSet<>(List.of(idOrigen, idDestino))).stream()
+                .filter(bloqueada -> bloqueada.getId().equals(idDestino))
+                .findFirst()
+                .orElseThrow(() -> new RecursoNoEncontradoException("Ubicacion con id " + idDestino + " no encontrada"));
+        if (ubicacionRepository.reservarCapacidad(idDestino, existencia.getCantidad()) == 0) {
+            throw new UbicacionLlenaException("La ubicacion con descripcion " + ubicacion.getDescripcion() + " esta llena");
+        }
+        ubicacionRepository.liberarCapacidad(idOrigen, existencia.getCantidad());
 
         existencia.setUbicacion(ubicacion);
+        caducidadCache.invalidar();
         return convertirAExistenciaDTO(existenciaRepository.save(existencia));
     }
 
     /**
-     * Consume una cantidad específica de un alimento en una ubicación, reduciendo la cantidad
-     * de la existencia más antigua.
+     * Consume una cantidad específica de un alimento en una ubicación, repartida entre tantas existencias como
+     * sean necesarias.
+     * <p>Las existencias se recorren en el orden de la política indicada: por fecha de entrada (FIFO) o por fecha de
+     * caducidad del alimento (FEFO). Se bloquean durante la transacción, las que se agotan se eliminan con una única
+     * sentencia y la capacidad liberada se descuenta de la ubicación de una sola vez.</p>
      *
      * @param idAlimento Id del alimento que se va a consumir.
      * @param idUbicacion Id de la ubicación donde se encuentra el alimento.
      * @param cantidad Cantidad a consumir.
-     * @return El DTO de la existencia actualizada.
-     * @throws RuntimeException Si no hay suficiente cantidad o no hay existencias disponibles.
+     * @param politica Orden en el que se consumen las existencias.
+     * @return El DTO con las existencias afectadas por el consumo.
+     * @throws IllegalArgumentException Si la cantidad no es positiva.
+     * @throws RecursoNoEncontradoException Si no hay existencias del alimento en la ubicación.
+     * @throws CantidadInsuficienteException Si las existencias no cubren la cantidad solicitada.
      */
     @Transactional
-    public ExistenciaDTO consumirExistencia(Long idAlimento, Long idUbicacion, Long cantidad) {
-        // Obtener las existencias del alimento en la ubicación, ordenadas por fecha de entrada (ascendente)
-        Page<Existencia> existenciasPage = existenciaRepository.findByAlimento_IdAndUbicacion_IdOrderByFechaEntradaAsc(idAlimento, idUbicacion, PageRequest.of(0, 1));
+    public ConsumoDTO consumirExistencia(Long idAlimento, Long idUbicacion, Long cantidad, PoliticaConsumo politica) {
+        if (cantidad == null || cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad a consumir debe ser un número positivo");
+        }
 
-        if (existenciasPage.isEmpty()) {
-            throw new RuntimeException("No hay existencias disponibles para este alimento en la ubicación.");
+        List<Existencia> existencias = existenciaRepository.findParaConsumo(idAlimento, idUbicacion, ordenConsumo(politica));
+        if (existencias.isEmpty()) {
+            throw new RecursoNoEncontradoException("No hay existencias disponibles para este alimento en la ubicación.");
         }
 
-        // Obtener la existencia más antigua (primer elemento de la página)
-        Existencia existencia = existenciasPage.getContent().get(0);
+        long disponible = existencias.stream().mapToLong(Existencia::getCantidad).sum();
+        if (disponible < cantidad) {
+            throw new CantidadInsuficienteException("No hay suficiente cantidad del alimento en la ubicación: se solicitan "
+                    + cantidad + " y hay " + disponible);
+        }
 
-        if (existencia.getCantidad() < cantidad) {
-            throw new RuntimeException("No hay suficiente cantidad en la existencia más antigua.");
+        List<LoteConsumidoDTO> lotes = new ArrayList<>();
+        List<Existencia> agotadas = new ArrayList<>();
+        long pendiente = cantidad;
+
+        for (Existencia existencia : existencias) {
+            if (pendiente == 0) {
+                break;
+            }
+            long consumida = Math.min(pendiente, existencia.getCantidad());
+            long restante = existencia.getCantidad() - consumida;
+            pendiente -= consumida;
+
+            // Las agotadas no se modifican para que no se actualicen antes de eliminarlas
+            if (restante == 0) {
+                agotadas.add(existencia);
+            } else {
+                existencia.setCantidad(restante);
+            }
+            lotes.add(convertirALoteConsumidoDTO(existencia, consumida, restante));
         }
 
-        existencia.setCantidad(existencia.getCantidad() - cantidad);
+        if (!agotadas.isEmpty()) {
+            existenciaRepository.deleteAllInBatch(agotadas);
+        }
+        ubicacionRepository.liberarCapacidad(idUbicacion, cantidad);
+        caducidadCache.invalidar();
+
+        ConsumoDTO consumoDTO = new ConsumoDTO();
+        consumoDTO.setIdAlimento(idAlimento);
+        consumoDTO.setIdUbicacion(idUbicacion);
+        consumoDTO.setPolitica(politica);
+        consumoDTO.setCantidadConsumida(cantidad);
+        consumoDTO.setLotes(lotes);
+        return consumoDTO;
+    }
 
-        if (existencia.getCantidad() == 0) {
-            existenciaRepository.delete(existencia);
-            return convertirAExistenciaDTO(existencia);
-        } else {
-            return convertirAExistenciaDTO(existenciaRepository.save(existencia));
+    /**
+     * Aplica un lote de operaciones sobre existencias en una única transacción.
+     * <p>Las existencias y ubicaciones afectadas se cargan y bloquean con una consulta cada una, la capacidad se
+     * comprueba en memoria y al final se ajusta con una sentencia por ubicación. Las inserciones, actualizaciones y
+     * borrados se envían a la base de datos en lotes JDBC al confirmar la transacción.</p>
+     *
+     * <p>En modo {@link ModoLote#TODO_O_NADA}, la primera operación que falla rechaza el lote completo. En modo
+     * {@link ModoLote#POR_ELEMENTO}, las operaciones que fallan se omiten sin afectar al resto.</p>
+     *
+     * @param lote DTO con el modo y las operaciones a aplicar.
+     * @return El DTO con el resultado de cada operación.
+     * @throws LoteRechazadoException Si una operación falla en modo todo o nada.
+     */
+    @Transactional
+    public ResultadoLoteDTO procesarLote(LoteOperacionesDTO lote) {
+        List<OperacionExistenciaDTO> operaciones = lote.getOperaciones();
+        EstadoLote estado = new EstadoLote();
+
+        Set<Long> idsExistencias = new TreeSet<>();
+        Set<Long> idsAlimentos = new HashSet<>();
+        Set<Long> idsUbicaciones = new TreeSet<>();
+        for (OperacionExistenciaDTO operacion : operaciones) {
+            if (operacion.getId() != null) {
+                idsExistencias.add(operacion.getId());
+            }
+            if (operacion.getIdAlimento() != null) {
+                idsAlimentos.add(operacion.getIdAlimento());
+            }
+            if (operacion.getIdUbicacion() != null) {
+                idsUbicaciones.add(operacion.getIdUbicacion());
+            }
+        }
+
+        // Se bloquean primero las existencias y después las ubicaciones, igual que en las operaciones individuales
+        if (!idsExistencias.isEmpty()) {
+            for (Existencia existencia : existenciaRepository.findConBloqueoByIdIn(idsExistencias)) {
+                estado.existencias.put(existencia.getId(), existencia);
+                idsUbicaciones.add(existencia.getUbicacion().getId());
+            }
         }
+        if (!idsAlimentos.isEmpty()) {
+            alimentoRepository.findAllById(idsAlimentos).forEach(alimento -> estado.alimentos.put(alimento.getId(), alimento));
+        }
+        if (!idsUbicaciones.isEmpty()) {
+            ubicacionRepository.findConBloqueoByIdIn(idsUbicaciones).forEach(ubicacion -> estado.ubicaciones.put(ubicacion.getId(), ubicacion));
+            for (UbicacionRepository.Ocupacion ocupacion : ubicacionRepository.findOcupacionByIdIn(idsUbicaciones)) {
+                estado.capacidad.put(ocupacion.getId(), ocupacion.getCapacidad());
+                estado.ocupado.put(ocupacion.getId(), ocupacion.getOcupado());
+            }
+        }
+
+        List<ResultadoOperacionDTO> resultados = new ArrayList<>(operaciones.size());
+        int fallidas = 0;
+
+        for (int i = 0; i < operaciones.size(); i++) {
+            OperacionExistenciaDTO operacion = operaciones.get(i);
+            ResultadoOperacionDTO resultado = new ResultadoOperacionDTO();
+            resultado.setIndice(i);
+            resultado.setTipo(operacion.getTipo());
+            resultado.setId(operacion.getId());
+
+            try {
+                resultado.setId(aplicarOperacion(operacion, estado));
+                resultado.setEstado(HttpStatus.OK.value());
+            } catch (RecursoNoEncontradoException | UbicacionLlenaException | IllegalArgumentException e) {
+                HttpStatus estadoError = e instanceof RecursoNoEncontradoException ? HttpStatus.NOT_FOUND
+                        : e instanceof UbicacionLlenaException ? HttpStatus.CONFLICT
+                        : HttpStatus.BAD_REQUEST;
+                if (lote.getModo() == ModoLote.TODO_O_NADA) {
+                    throw new LoteRechazadoException(i, estadoError, e.getMessage());
+                }
+                resultado.setEstado(estadoError.value());
+                resultado.setMensaje(e.getMessage());
+                fallidas++;
+            }
+            resultados.add(resultado);
+        }
+
+        estado.diferencias.forEach((idUbicacion, diferencia) -> {
+            if (diferencia != 0) {
+                ubicacionRepository.ajustarOcupacion(idUbicacion, diferencia);
+            }
+        });
+        if (fallidas < operaciones.size()) {
+            caducidadCache.invalidar();
+        }
+
+        ResultadoLoteDTO resultadoLote = new ResultadoLoteDTO();
+        resultadoLote.setModo(lote.getModo());
+        resultadoLote.setAplicadas(operaciones.size() - fallidas);
+        resultadoLote.setFallidas(fallidas);
+        resultadoLote.setResultados(resultados);
+        return resultadoLote;
     }
 
     /**
@@ -209,11 +516,166 @@ public class ExistenciaService {
      * @param id Identificador de la existencia a eliminar.
      * @throws RecursoNoEncontradoException Si no se encuentra la existencia con el id proporcionado.
      */
+    @Transactional
     public void eliminarExistencia(Long id) {
-        Existencia existencia = existenciaRepository.findById(id)
+        Existencia existencia = existenciaRepository.findConBloqueoById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Existencia con el id " + id + " no encontrada"));
 
         existenciaRepository.delete(existencia);
+        ubicacionRepository.liberarCapacidad(existencia.getUbicacion().getId(), existencia.getCantidad());
+        caducidadCache.invalidar();
+    }
+
+    /**
+     * Agrupa por ubicación las existencias del informe de caducidad, conservando su orden.
+     *
+     * @param existencias Existencias ordenadas por ubicación y fecha de caducidad.
+     * @return Un grupo por ubicación.
+     */
+    private List<CaducidadUbicacionDTO> agruparPorUbicacion(List<ExistenciaDetallesDTO> existencias) {
+        Map<Long, CaducidadUbicacionDTO> grupos = new LinkedHashMap<>();
+        for (ExistenciaDetallesDTO existencia : existencias) {
+            CaducidadUbicacionDTO grupo = grupos.computeIfAbsent(existencia.getIdUbicacion(), id -> {
+                CaducidadUbicacionDTO nuevo = new CaducidadUbicacionDTO();
+                nuevo.setIdUbicacion(id);
+                nuevo.setDescripcionUbicacion(existencia.getDescripcionUbicacion());
+                nuevo.setTipoUbicacion(existencia.getTipoUbicacion());
+                return nuevo;
+            });
+            grupo.getExistencias().add(existencia);
+        }
+        return new ArrayList<>(grupos.values());
+    }
+
+    /**
+     * Reserva capacidad en una ubicación y la devuelve.
+     *
+     * @param idUbicacion Identificador de la ubicación.
+     * @param cantidad Cantidad a reservar.
+     * @return La ubicación en la que se ha reservado la capacidad.
+     * @throws RecursoNoEncontradoException Si no se encuentra la ubicación.
+     * @throws UbicacionLlenaException Si la ubicación no tiene capacidad suficiente.
+     */
+    private Ubicacion reservarCapacidad(Long idUbicacion, Long cantidad) {
+        int reservadas = ubicacionRepository.reservarCapacidad(idUbicacion, cantidad);
+
+        Ubicacion ubicacion = ubicacionRepository.findById(idUbicacion)
+                .orElseThrow(() -> new RecursoNoEncontradoException("Ubicacion con id " + idUbicacion + " no encontrada"));
+
+        if (reservadas == 0) {
+            throw new UbicacionLlenaException("La ubicacion con descripcion " + ubicacion.getDescripcion() + " esta llena");
+        }
+        return ubicacion;
+    }
+
+    /**
+     * Aplica una operación de un lote sobre el estado cargado.
+     * <p>Todas las comprobaciones se realizan antes de modificar nada, de modo que una operación que falla no deja
+     * cambios a medias.</p>
+     *
+     * @param operacion La operación a aplicar.
+     * @param estado Las entidades bloqueadas y la capacidad de las ubicaciones del lote.
+     * @return El id de la existencia afectada.
+     * @throws IllegalArgumentException Si faltan datos de la operación o la cantidad no es positiva.
+     * @throws RecursoNoEncontradoException Si no se encuentra la existencia, el alimento o la ubicación.
+     * @throws UbicacionLlenaException Si la ubicación no tiene capacidad suficiente.
+     */
+    private Long aplicarOperacion(OperacionExistenciaDTO operacion, EstadoLote estado) {
+        switch (operacion.getTipo()) {
+            case CREAR -> {
+                Alimento alimento = estado.alimento(requerir(operacion.getIdAlimento(), "el id del alimento"));
+                Ubicacion ubicacion = estado.ubicacion(requerir(operacion.getIdUbicacion(), "el id de la ubicación"));
+                long cantidad = cantidadPositiva(operacion.getCantidad());
+
+                estado.reservar(ubicacion, cantidad);
+                Existencia existencia = Existencia.builder()
+                        .alimento(alimento)
+                        .ubicacion(ubicacion)
+                        .cantidad(cantidad)
+                        .fechaEntrada(LocalDate.now(clock))
+                        .build();
+                return existenciaRepository.save(existencia).getId();
+            }
+            case ACTUALIZAR -> {
+                Existencia existencia = estado.existencia(requerir(operacion.getId(), "el id de la existencia"));
+                long cantidad = cantidadPositiva(operacion.getCantidad());
+
+                long diferencia = cantidad - existencia.getCantidad();
+                if (diferencia > 0) {
+                    estado.reservar(existencia.getUbicacion(), diferencia);
+                } else {
+                    estado.liberar(existencia.getUbicacion(), -diferencia);
+                }
+                existencia.setCantidad(cantidad);
+                return existencia.getId();
+            }
+            case MOVER -> {
+                Existencia existencia = estado.existencia(requerir(operacion.getId(), "el id de la existencia"));
+                Ubicacion destino = estado.ubicacion(requerir(operacion.getIdUbicacion(), "el id de la ubicación"));
+
+                if (!destino.getId().equals(existencia.getUbicacion().getId())) {
+                    estado.reservar(destino, existencia.getCantidad());
+                    estado.liberar(existencia.getUbicacion(), existencia.getCantidad());
+                    existencia.setUbicacion(destino);
+                }
+                return existencia.getId();
+            }
+            case ELIMINAR -> {
+                Existencia existencia = estado.existencia(requerir(operacion.getId(), "el id de la existencia"));
+
+                estado.liberar(existencia.getUbicacion(), existencia.getCantidad());
+                estado.existencias.remove(existencia.getId());
+                existenciaRepository.delete(existencia);
+                return existencia.getId();
+            }
+            default -> throw new IllegalArgumentException("Tipo de operación no soportado: " + operacion.getTipo());
+        }
+    }
+
+    private static Long requerir(Long valor, String campo) {
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta " + campo);
+        }
+        return valor;
+    }
+
+    private static long cantidadPositiva(Long cantidad) {
+        if (cantidad == null || cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser un número positivo");
+        }
+        return cantidad;
+    }
+
+    /**
+     * Devuelve el orden en el que se consumen las existencias según la política indicada.
+     * <p>El id se usa como último criterio para que el orden sea estable.</p>
+     *
+     * @param politica La política de consumo.
+     * @return El orden de consumo.
+     */
+    private Sort ordenConsumo(PoliticaConsumo politica) {
+        Sort orden = Sort.by("fechaEntrada").and(Sort.by("id"));
+        return politica == PoliticaConsumo.FEFO ? Sort.by("alimento.fechaCaducidad").and(orden) : orden;
+    }
+
+    /**
+     * Convierte una existencia consumida a su correspondiente DTO LoteConsumidoDTO.
+     *
+     * @param existencia La existencia consumida.
+     * @param consumida La cantidad consumida de la existencia.
+     * @param restante La cantidad que queda en la existencia tras el consumo.
+     * @return El DTO LoteConsumidoDTO.
+     */
+    private LoteConsumidoDTO convertirALoteConsumidoDTO(Existencia existencia, long consumida, long restante) {
+        LoteConsumidoDTO loteConsumidoDTO = new LoteConsumidoDTO();
+
+        loteConsumidoDTO.setIdExistencia(existencia.getId());
+        loteConsumidoDTO.setFechaEntrada(existencia.getFechaEntrada());
+        loteConsumidoDTO.setFechaCaducidad(existencia.getAlimento().getFechaCaducidad());
+        loteConsumidoDTO.setCantidadConsumida(consumida);
+        loteConsumidoDTO.setCantidadRestante(restante);
+
+        return loteConsumidoDTO;
     }
 
     /**
@@ -240,28 +702,54 @@ public class ExistenciaService {
     }
 
     /**
-     * Convierte una entidad Existencia a su correspondiente DTO ExistenciaDetallesDTO,
-     * añadiendo detalles adicionales sobre la existencia.
-     *
-     * @param existencia La entidad Existencia a convertir.
-     * @return El DTO ExistenciaDetallesDTO.
+     * Entidades bloqueadas y capacidad de las ubicaciones durante la aplicación de un lote.
      */
-    private ExistenciaDetallesDTO convertirAExistenciaDetallesDTO(Existencia existencia) {
-        ExistenciaDetallesDTO existenciaDetallesDTO = new ExistenciaDetallesDTO();
-
-        existenciaDetallesDTO.setId(existencia.getId());
+    private static class EstadoLote {
+        private final Map<Long, Existencia> existencias = new HashMap<>();
+        private final Map<Long, Alimento> alimentos = new HashMap<>();
+        private final Map<Long, Ubicacion> ubicaciones = new HashMap<>();
+        private final Map<Long, Long> capacidad = new HashMap<>();
+        private final Map<Long, Long> ocupado = new HashMap<>();
+
+        // Cambio acumulado de la capacidad ocupada de cada ubicación
+        private final Map<Long, Long> diferencias = new TreeMap<>();
+
+        private Existencia existencia(Long id) {
+            Existencia existencia = existencias.get(id);
+            if (existencia == null) {
+                throw new RecursoNoEncontradoException("Existencia con el id " + id + " no encontrada");
+            }
+            return existencia;
+        }
 
-        existenciaDetallesDTO.setIdAlimento(existencia.getAlimento().getId());
-        existenciaDetallesDTO.setNombreAlimento(existencia.getAlimento().getNombre());
-        existenciaDetallesDTO.setFechaCaducidad(existencia.getAlimento().getFechaCaducidad());
+        private Alimento alimento(Long id) {
+            Alimento alimento = alimentos.get(id);
+            if (alimento == null) {
+                throw new RecursoNoEncontradoException("Alimento con el id " + id + " no encontrado");
+            }
+            return alimento;
+        }
 
-        existenciaDetallesDTO.setIdUbicacion(existencia.getUbicacion().getId());
-        existenciaDetallesDTO.setDescripcionUbicacion(existencia.getUbicacion().getDescripcion());
-        existenciaDetallesDTO.setTipoUbicacion(existencia.getUbicacion().getTipoUbicacion());
+        private Ubicacion ubicacion(Long id) {
+            Ubicacion ubicacion = ubicaciones.get(id);
+            if (ubicacion == null) {
+                throw new RecursoNoEncontradoException("Ubicacion con id " + id + " no encontrada");
+            }
+            return ubicacion;
+        }
 
-        existenciaDetallesDTO.setCantidad(existencia.getCantidad());
-        existenciaDetallesDTO.setFechaEntrada(existencia.getFechaEntrada());
+        private void reservar(Ubicacion ubicacion, long cantidad) {
+            long ocupadoActual = ocupado.get(ubicacion.getId());
+            if (ocupadoActual + cantidad > capacidad.get(ubicacion.getId())) {
+                throw new UbicacionLlenaException("La ubicacion con descripcion " + ubicacion.getDescripcion() + " esta llena");
+            }
+            ocupado.put(ubicacion.getId(), ocupadoActual + cantidad);
+            diferencias.merge(ubicacion.getId(), cantidad, Long::sum);
+        }
 
-        return existenciaDetallesDTO;
+        private void liberar(Ubicacion ubicacion, long cantidad) {
+            ocupado.merge(ubicacion.getId(), -cantidad, Long::sum);
+            diferencias.merge(ubicacion.getId(), -cantidad, Long::sum);
+        }
     }
 }
@@ -0,0 +1,169 @@
+package daw2a.gestion_alimentos_api_rest.services;
+
+import daw2a.gestion_alimentos_api_rest.entities.RefreshToken;
+import daw2a.gestion_alimentos_api_rest.entities.Usuario;
+import daw2a.gestion_alimentos_api_rest.exceptions.TokenRefrescoInvalidoException;
+import daw2a.gestion_alimentos_api_rest.repositories.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Servicio encargado de emitir, rotar y revocar los tokens de refresco.
+ *
+ * <p>Los tokens de refresco son valores aleatorios de 256 bits de los que solo se guarda el resumen SHA-256,
+ * por lo que refrescar la sesión no requiere BCrypt. Cada uso entrega un token nuevo de la misma familia y
+ * marca el anterior como usado; si un token usado vuelve a presentarse, se asume que ha sido robado y se
+ * revoca toda la familia.</p>
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final int BYTES_TOKEN = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration expiracion;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Resultado de rotar un token de refresco.
+     *
+     * @param usuario El usuario propietario del token.
+     * @param token El nuevo token de refresco.
+     */
+    public record Rotacion(Usuario usuario, String token) {
+    }
+
+    /**
+     * Constructor para inyección de dependencias.
+     *
+     * @param refreshTokenRepository Repositorio de tokens de refresco.
+     * @param expiracion Tiempo de validez de cada token de refresco.
+     */
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh.expiracion:14d}") Duration expiracion) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.expiracion = expiracion;
+    }
+
+    /**
+     * Devuelve el tiempo de validez de los tokens de refresco.
+     *
+     * @return La duración de los tokens de refresco.
+     */
+    public Duration getExpiracion() {
+        return expiracion;
+    }
+
+    /**
+     * Emite un token de refresco para un nuevo inicio de sesión, en una familia nueva.
+     *
+     * @param usuario El usuario que inicia sesión.
+     * @return El token de refresco emitido.
+     */
+    @Transactional
+    public String emitir(Usuario usuario) {
+        return emitir(usuario, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Rota un token de refresco: lo marca como usado y emite uno nuevo de la misma familia.
+     * <p>Si el token ya había sido usado, se revoca toda su familia. La revocación se confirma aunque
+     * se lance la excepción.</p>
+     *
+     * @param token El token de refresco presentado por el cliente.
+     * @return El usuario propietario y el nuevo token de refresco.
+     * @throws TokenRefrescoInvalidoException Si el token no existe, ha expirado, ha sido revocado o ya se había usado.
+     */
+    @Transactional(noRollbackFor = TokenRefrescoInvalidoException.class)
+    public Rotacion rotar(String token) {
+        RefreshToken refreshToken = refreshTokenRepository.findByHash(calcularHash(token))
+                .orElseThrow(() -> new TokenRefrescoInvalidoException("Token de refresco no válido."));
+
+        if (refreshToken.isRevocado() || refreshToken.getExpiracion().isBefore(Instant.now())) {
+            throw new TokenRefrescoInvalidoException("Token de refresco expirado o revocado.");
+        }
+        if (refreshTokenRepository.marcarUsado(refreshToken.getId()) == 0) {
+            // Reutilización de un token ya rotado: se invalida la sesión completa
+            refreshTokenRepository.revocarFamilia(refreshToken.getFamilia());
+            throw new TokenRefrescoInvalidoException("Token de refresco reutilizado, la sesión ha sido revocada.");
+        }
+
+        Usuario usuario = refreshToken.getUsuario();
+        return new Rotacion(usuario, emitir(usuario, refreshToken.getFamilia()));
+    }
+
+    /**
+     * Revoca la familia del token de refresco indicado, si existe.
+     *
+     * @param token El token de refresco presentado por el cliente.
+     */
+    @Transactional
+    public void revocar(String token) {
+        refreshTokenRepository.findByHash(calcularHash(token))
+                .ifPresent(refreshToken -> refreshTokenRepository.revocarFamilia(refreshToken.getFamilia()));
+    }
+
+    /**
+     * Revoca todos los tokens de refresco de un usuario.
+     *
+     * @param usuarioId El identificador del usuario.
+     */
+    @Transactional
+    public void revocarUsuario(Long usuarioId) {
+        refreshTokenRepository.revocarPorUsuario(usuarioId);
+    }
+
+    /**
+     * Elimina todos los tokens de refresco de un usuario.
+     *
+     * @param usuarioId El identificador del usuario.
+     */
+    @Transactional
+    public void eliminarUsuario(Long usuarioId) {
+        refreshTokenRepository.eliminarPorUsuario(usuarioId);
+    }
+
+    /**
+     * Elimina los tokens de refresco expirados.
+     * <p>Se ejecuta periódicamente según la propiedad {@code jwt.refresh.intervalo-limpieza-ms}.</p>
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.intervalo-limpieza-ms:3600000}")
+    @Transactional
+    public void eliminarExpirados() {
+        refreshTokenRepository.eliminarExpirados(Instant.now());
+    }
+
+    private String emitir(Usuario usuario, String familia) {
+        byte[] bytes = new byte[BYTES_TOKEN];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .hash(calcularHash(token))
+                .familia(familia)
+                .usuario(usuario)
+                .expiracion(Instant.now().plus(expiracion))
+                .build());
+        return token;
+    }
+
+    private static String calcularHash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
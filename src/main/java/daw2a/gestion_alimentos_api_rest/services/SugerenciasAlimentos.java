@@ -0,0 +1,481 @@
+package daw2a.gestion_alimentos_api_rest.services;
+
+import daw2a.gestion_alimentos_api_rest.dto.alimento.SugerenciaAlimentoDTO;
+import daw2a.gestion_alimentos_api_rest.repositories.AlimentoRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria de los nombres de los alimentos para sugerir resultados mientras se escribe.
+ *
+ * <p>Los nombres se normalizan (minúsculas, sin tildes ni signos de puntuación) y se guardan en dos árboles de
+ * prefijos: uno con el nombre completo y otro con el nombre a partir de cada una de sus palabras. Las búsquedas por
+ * prefijo recorren solo la rama del texto buscado y se detienen al reunir las sugerencias pedidas, en orden
+ * alfabético. Si no hay suficientes, se completan con los nombres que comparten trigramas con el texto buscado, lo
+ * que encuentra tanto fragmentos del interior de una palabra como nombres mal escritos.</p>
+ *
+ * <p>El índice se construye al arrancar la aplicación y se actualiza con cada alta, modificación o baja de un
+ * alimento en cuanto se confirma su transacción. Además, se reconstruye periódicamente según la propiedad
+ * {@code alimentos.sugerencias.reconstruccion-cron}, para incorporar los cambios hechos por otras instancias o
+ * directamente en la base de datos. Las búsquedas nunca consultan la base de datos.</p>
+ */
+@Component
+public class SugerenciasAlimentos {
+
+    // Similitud mínima (trigramas comunes entre trigramas totales) para sugerir un nombre parecido
+    private static final double SIMILITUD_MINIMA = 0.3;
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{Alnum}]+");
+
+    private final AlimentoRepository alimentoRepository;
+    private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+    // Índice vigente, protegido por el bloqueo
+    private Indice indice = new Indice();
+    // Cambios aplicados mientras se reconstruye el índice, para repetirlos en el nuevo; protegidos por el bloqueo
+    private List<Consumer<Indice>> pendientes;
+
+    /**
+     * Constructor del índice de sugerencias.
+     *
+     * @param alimentoRepository Repositorio de alimentos, del que se leen los nombres al construir el índice.
+     */
+    public SugerenciasAlimentos(AlimentoRepository alimentoRepository) {
+        this.alimentoRepository = alimentoRepository;
+    }
+
+    /**
+     * Construye el índice con los alimentos guardados al arrancar la aplicación.
+     */
+    @PostConstruct
+    public void cargarAlimentos() {
+        reconstruir();
+    }
+
+    /**
+     * Vuelve a construir el índice con los alimentos guardados y sustituye al anterior.
+     * <p>Se ejecuta periódicamente según la propiedad {@code alimentos.sugerencias.reconstruccion-cron}.</p>
+     *
+     * <p>Los nombres se leen sin bloquear las búsquedas. Los cambios confirmados durante la lectura pueden no
+     * aparecer en ella, por lo que se anotan y se repiten sobre el nuevo índice antes de sustituir al anterior.
+     * Repetir un cambio que ya estaba en la lectura no tiene efecto.</p>
+     */
+    @Scheduled(cron = "${alimentos.sugerencias.reconstruccion-cron:0 */15 * * * *}")
+    public synchronized void reconstruir() {
+        bloqueo.writeLock().lock();
+        try {
+            pendientes = new ArrayList<>();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+
+        try {
+            Indice nuevo = new Indice();
+            alimentoRepository.listarNombres().forEach(alimento -> nuevo.anadir(alimento.getId(), alimento.getNombre()));
+
+            bloqueo.writeLock().lock();
+            try {
+                pendientes.forEach(cambio -> cambio.accept(nuevo));
+                indice = nuevo;
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+        } finally {
+            bloqueo.writeLock().lock();
+            try {
+                pendientes = null;
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Añade o actualiza el nombre de un alimento cuando se confirme la transacción actual, o de inmediato si no hay
+     * ninguna transacción activa.
+     *
+     * @param id Identificador del alimento.
+     * @param nombre Nombre del alimento.
+     */
+    public void actualizar(Long id, String nombre) {
+        alConfirmar(indice -> indice.anadir(id, nombre));
+    }
+
+    /**
+     * Elimina un alimento del índice cuando se confirme la transacción actual, o de inmediato si no hay ninguna
+     * transacción activa.
+     *
+     * @param id Identificador del alimento.
+     */
+    public void eliminar(Long id) {
+        alConfirmar(indice -> indice.eliminar(id));
+    }
+
+    /**
+     * Busca los alimentos cuyo nombre corresponde al texto escrito.
+     * <p>Primero se devuelven los nombres que empiezan por el texto, después los que tienen una palabra que empieza
+     * por él y, por último, los que lo contienen o se le parecen, de más a menos parecidos. El texto se compara sin
+     * distinguir mayúsculas, tildes ni signos de puntuación.</p>
+     *
+     * @param texto Texto escrito.
+     * @param limite Número máximo de sugerencias.
+     * @return Las sugerencias, o una lista vacía si el texto no contiene letras ni números.
+     */
+    public List<SugerenciaAlimentoDTO> sugerir(String texto, int limite) {
+        String consulta = normalizar(texto);
+        if (consulta.isEmpty()) {
+            return List.of();
+        }
+
+        bloqueo.readLock().lock();
+        try {
+            return indice.sugerir(consulta, limite);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    private void alConfirmar(Consumer<Indice> cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(cambio);
+                }
+            });
+        } else {
+            aplicar(cambio);
+        }
+    }
+
+    private void aplicar(Consumer<Indice> cambio) {
+        bloqueo.writeLock().lock();
+        try {
+            cambio.accept(indice);
+            if (pendientes != null) {
+                pendientes.add(cambio);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Normaliza un texto para compararlo: sin tildes ni diacríticos, en minúsculas y con las palabras separadas por
+     * un único espacio.
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinDiacriticos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(sinDiacriticos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Calcula los trigramas de un texto normalizado, completando cada palabra con dos espacios delante y uno detrás.
+     */
+    static Set<String> trigramas(String normalizado) {
+        Set<String> trigramas = new HashSet<>();
+        for (String palabra : normalizado.split(" ")) {
+            String completa = "  " + palabra + " ";
+            for (int i = 0; i + 3 <= completa.length(); i++) {
+                trigramas.add(completa.substring(i, i + 3));
+            }
+        }
+        return trigramas;
+    }
+
+    /**
+     * Alimento del índice, con su nombre normalizado, sus trigramas y su posición en la tabla de entradas, que sirve
+     * para contar los trigramas comunes en un array. Se compara por identidad.
+     */
+    private static final class Entrada {
+        private final Long id;
+        private final String nombre;
+        private final String normalizado;
+        private final Set<String> trigramas;
+        private final int posicion;
+
+        Entrada(Long id, String nombre, String normalizado, Set<String> trigramas, int posicion) {
+            this.id = id;
+            this.nombre = nombre;
+            this.normalizado = normalizado;
+            this.trigramas = trigramas;
+            this.posicion = posicion;
+        }
+    }
+
+    /**
+     * Candidato a sugerencia por parecido: indica si contiene el texto buscado y su similitud con él.
+     * <p>Se ordenan primero los que contienen el texto, después los más parecidos y, a igualdad, por nombre.</p>
+     */
+    private record Candidato(Entrada entrada, boolean contiene, double similitud) implements Comparable<Candidato> {
+        @Override
+        public int compareTo(Candidato otro) {
+            if (contiene != otro.contiene) {
+                return contiene ? -1 : 1;
+            }
+            int porSimilitud = Double.compare(otro.similitud, similitud);
+            return porSimilitud != 0 ? porSimilitud : entrada.normalizado.compareTo(otro.entrada.normalizado);
+        }
+    }
+
+    /**
+     * Lista de posiciones de las entradas que tienen un trigrama, guardada en un array de enteros para recorrerla
+     * sin acceder a las entradas. No conserva el orden.
+     */
+    private static final class Posiciones {
+        private int[] valores = new int[4];
+        private int tamano;
+
+        void anadir(int posicion) {
+            if (tamano == valores.length) {
+                valores = Arrays.copyOf(valores, tamano * 2);
+            }
+            valores[tamano++] = posicion;
+        }
+
+        void quitar(int posicion) {
+            for (int i = 0; i < tamano; i++) {
+                if (valores[i] == posicion) {
+                    valores[i] = valores[--tamano];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Nodo de un árbol de prefijos. Los hijos se recorren en orden alfabético.
+     */
+    private static final class Nodo {
+        private final TreeMap<Character, Nodo> hijos = new TreeMap<>();
+        private final TreeSet<Long> ids = new TreeSet<>();
+
+        void insertar(String clave, Long id) {
+            Nodo nodo = this;
+            for (int i = 0; i < clave.length(); i++) {
+                nodo = nodo.hijos.computeIfAbsent(clave.charAt(i), c -> new Nodo());
+            }
+            nodo.ids.add(id);
+        }
+
+        /**
+         * Quita el id de la clave y elimina los nodos que quedan vacíos.
+         *
+         * @return {@code true} si este nodo ha quedado vacío.
+         */
+        boolean quitar(String clave, int posicion, Long id) {
+            if (posicion == clave.length()) {
+                ids.remove(id);
+            } else {
+                Nodo hijo = hijos.get(clave.charAt(posicion));
+                if (hijo != null && hijo.quitar(clave, posicion + 1, id)) {
+                    hijos.remove(clave.charAt(posicion));
+                }
+            }
+            return ids.isEmpty() && hijos.isEmpty();
+        }
+
+        Nodo buscar(String prefijo) {
+            Nodo nodo = this;
+            for (int i = 0; i < prefijo.length() && nodo != null; i++) {
+                nodo = nodo.hijos.get(prefijo.charAt(i));
+            }
+            return nodo;
+        }
+
+        /**
+         * Añade los ids de este nodo y de sus descendientes, en orden alfabético de sus claves, hasta el límite.
+         */
+        void recoger(Set<Long> resultado, int limite) {
+            for (Long id : ids) {
+                if (resultado.size() >= limite) {
+                    return;
+                }
+                resultado.add(id);
+            }
+            for (Nodo hijo : hijos.values()) {
+                if (resultado.size() >= limite) {
+                    return;
+                }
+                hijo.recoger(resultado, limite);
+            }
+        }
+    }
+
+    /**
+     * Estructuras del índice. No es seguro para hilos; el acceso se controla con el bloqueo del componente.
+     */
+    private static final class Indice {
+        private final Map<Long, Entrada> entradas = new HashMap<>();
+        // Entradas por posición; las posiciones de las entradas eliminadas se reutilizan
+        private final List<Entrada> posiciones = new ArrayList<>();
+        private final Deque<Integer> posicionesLibres = new ArrayDeque<>();
+        // Nombres completos
+        private final Nodo nombres = new Nodo();
+        // Nombres a partir de su segunda palabra, su tercera palabra, etc.
+        private final Nodo palabras = new Nodo();
+        private final Map<String, Posiciones> porTrigrama = new HashMap<>();
+
+        void anadir(Long id, String nombre) {
+            eliminar(id);
+            String normalizado = normalizar(nombre);
+            Integer libre = posicionesLibres.poll();
+            int posicion = libre != null ? libre : posiciones.size();
+            Entrada entrada = new Entrada(id, nombre, normalizado, trigramas(normalizado), posicion);
+            entradas.put(id, entrada);
+            if (libre != null) {
+                posiciones.set(posicion, entrada);
+            } else {
+                posiciones.add(entrada);
+            }
+
+            nombres.insertar(normalizado, id);
+            for (String sufijo : sufijosDePalabras(normalizado)) {
+                palabras.insertar(sufijo, id);
+            }
+            for (String trigrama : entrada.trigramas) {
+                porTrigrama.computeIfAbsent(trigrama, t -> new Posiciones()).anadir(posicion);
+            }
+        }
+
+        void eliminar(Long id) {
+            Entrada entrada = entradas.remove(id);
+            if (entrada == null) {
+                return;
+            }
+
+            posiciones.set(entrada.posicion, null);
+            posicionesLibres.push(entrada.posicion);
+
+            nombres.quitar(entrada.normalizado, 0, id);
+            for (String sufijo : sufijosDePalabras(entrada.normalizado)) {
+                palabras.quitar(sufijo, 0, id);
+            }
+            for (String trigrama : entrada.trigramas) {
+                Posiciones conTrigrama = porTrigrama.get(trigrama);
+                conTrigrama.quitar(entrada.posicion);
+                if (conTrigrama.tamano == 0) {
+                    porTrigrama.remove(trigrama);
+                }
+            }
+        }
+
+        List<SugerenciaAlimentoDTO> sugerir(String consulta, int limite) {
+            Set<Long> encontrados = new LinkedHashSet<>();
+            recogerPorPrefijo(nombres, consulta, encontrados, limite);
+            recogerPorPrefijo(palabras, consulta, encontrados, limite);
+            if (encontrados.size() < limite) {
+                recogerParecidos(consulta, encontrados, limite);
+            }
+
+            List<SugerenciaAlimentoDTO> sugerencias = new ArrayList<>(encontrados.size());
+            for (Long id : encontrados) {
+                Entrada entrada = entradas.get(id);
+                sugerencias.add(new SugerenciaAlimentoDTO(entrada.id, entrada.nombre));
+            }
+            return sugerencias;
+        }
+
+        private static void recogerPorPrefijo(Nodo raiz, String consulta, Set<Long> encontrados, int limite) {
+            Nodo nodo = raiz.buscar(consulta);
+            if (nodo != null && encontrados.size() < limite) {
+                nodo.recoger(encontrados, limite);
+            }
+        }
+
+        /**
+         * Añade los nombres que contienen el texto buscado y, después, los que más trigramas comparten con él.
+         * <p>Los trigramas comunes se cuentan en un array indexado por la posición de cada entrada, y solo se
+         * conservan los mejores candidatos necesarios para completar el límite.</p>
+         */
+        private void recogerParecidos(String consulta, Set<Long> encontrados, int limite) {
+            Set<String> trigramasConsulta = trigramas(consulta);
+            int[] comunes = new int[posiciones.size()];
+            int[] tocadas = new int[posiciones.size()];
+            int numeroTocadas = 0;
+            for (String trigrama : trigramasConsulta) {
+                Posiciones conTrigrama = porTrigrama.get(trigrama);
+                if (conTrigrama == null) {
+                    continue;
+                }
+                for (int i = 0; i < conTrigrama.tamano; i++) {
+                    int posicion = conTrigrama.valores[i];
+                    if (comunes[posicion]++ == 0) {
+                        tocadas[numeroTocadas++] = posicion;
+                    }
+                }
+            }
+
+            // Un nombre que contiene el texto tiene, al menos, todos sus trigramas sin espacios
+            int interiores = 0;
+            for (String trigrama : trigramasConsulta) {
+                if (trigrama.indexOf(' ') < 0) {
+                    interiores++;
+                }
+            }
+
+            int restantes = limite - encontrados.size();
+            // El primero de la cola es el peor de los candidatos conservados
+            PriorityQueue<Candidato> mejores = new PriorityQueue<>(Comparator.reverseOrder());
+            for (int i = 0; i < numeroTocadas; i++) {
+                Entrada entrada = posiciones.get(tocadas[i]);
+                int numero = comunes[tocadas[i]];
+                boolean contiene = numero >= interiores && entrada.normalizado.contains(consulta);
+                double similitud = (double) numero / (trigramasConsulta.size() + entrada.trigramas.size() - numero);
+                if ((contiene || similitud >= SIMILITUD_MINIMA) && !encontrados.contains(entrada.id)) {
+                    Candidato candidato = new Candidato(entrada, contiene, similitud);
+                    if (mejores.size() < restantes) {
+                        mejores.add(candidato);
+                    } else if (candidato.compareTo(mejores.peek()) < 0) {
+                        mejores.poll();
+                        mejores.add(candidato);
+                    }
+                }
+            }
+
+            List<Candidato> candidatos = new ArrayList<>(mejores);
+            candidatos.sort(null);
+            for (Candidato candidato : candidatos) {
+                encontrados.add(candidato.entrada().id);
+            }
+        }
+
+        private static List<String> sufijosDePalabras(String normalizado) {
+            List<String> sufijos = new ArrayList<>();
+            for (int i = 1; i < normalizado.length(); i++) {
+                if (normalizado.charAt(i - 1) == ' ') {
+                    sufijos.add(normalizado.substring(i));
+                }
+            }
+            return sufijos;
+        }
+    }
+}
@@ -1,37 +1,251 @@
 package daw2a.gestion_alimentos_api_rest.services;
 
+import daw2a.gestion_alimentos_api_rest.security.revocation.JtiRevocationIndex;
+import daw2a.gestion_alimentos_api_rest.security.revocation.RevocationEntry;
+import daw2a.gestion_alimentos_api_rest.security.revocation.RevocationStore;
+import daw2a.gestion_alimentos_api_rest.security.user.CustomUserDetailsService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Servicio encargado de gestionar los tokens en la lista negra.
  * Un token en la lista negra es un token que ha sido invalidado y no se debe permitir su uso.
+ *
+ * <p>Los tokens se identifican por su claim {@code jti} (un UUID de 128 bits), en lugar de guardar el token
+ * completo. Las revocaciones se registran en un {@link RevocationStore} compartido por todas las instancias de la
+ * API, y cada instancia mantiene una copia local en un {@link JtiRevocationIndex}: un filtro de Bloom responde sin
+ * bloqueos el caso habitual de un token no revocado, y un conjunto compacto de arrays primitivos confirma los
+ * positivos. Así, comprobar un token nunca requiere una consulta a la base de datos.</p>
+ *
+ * <p>La copia local se actualiza leyendo periódicamente las revocaciones posteriores a la última secuencia
+ * conocida, por lo que un cierre de sesión en una instancia llega a las demás en, como mucho, el intervalo de
+ * sondeo más el tiempo de la consulta. El retraso observado se publica en la métrica {@code jwt.revocaciones.retraso}.</p>
+ *
+ * <p>Los números de secuencia se asignan al registrar la revocación, pero las transacciones pueden confirmarse en
+ * otro orden. Por eso cada sondeo vuelve a leer las revocaciones registradas dentro de la ventana
+ * {@code jwt.revocaciones.ventana-confirmacion}, que debe superar la duración de la transacción más larga que
+ * registra una revocación, más el intervalo de sondeo y la diferencia entre los relojes de las instancias.</p>
+ *
+ * <p>Por el mismo almacén se propagan las revocaciones de todos los tokens de un usuario, al cambiar su rol o sus
+ * credenciales o al eliminarlo. Al leerlas, cada instancia descarta el usuario de las cachés de
+ * {@link TokenVersionService} y {@link CustomUserDetailsService}, de modo que sus tokens anteriores dejan de
+ * aceptarse en todas las instancias con el mismo retraso acotado que un cierre de sesión.</p>
  */
 @Service
 public class TokenBlacklistService {
-    // Conjunto que contiene los tokens que han sido puestos en la lista negra
-    private final Set<String> blacklistedTokens = new HashSet<>();
+
+    private static final int TAMANO_LOTE = 1000;
+
+    private final RevocationStore revocationStore;
+    private final JtiRevocationIndex revocaciones;
+    private final TokenVersionService tokenVersionService;
+    private final CustomUserDetailsService customUserDetailsService;
+    private final Duration vigenciaTokens;
+    private final Duration ventanaConfirmacion;
+
+    // Mayor número de secuencia leído del almacén
+    private final AtomicLong ultimaSecuencia = new AtomicLong();
+
+    // Secuencias de las revocaciones de usuario ya aplicadas que se pueden volver a leer en la ventana de
+    // confirmación, para invalidar las cachés una sola vez por revocación; protegidas por la sincronización de
+    // leerCambios
+    private final Set<Long> usuariosAplicados = new HashSet<>();
+
+    // Número total de tokens descartados por haber expirado
+    private final AtomicLong tokensExpulsados = new AtomicLong();
+
+    private final Timer retrasoPropagacion;
+
+    /**
+     * Constructor que crea el índice local de revocaciones y registra las métricas de la lista negra.
+     *
+     * @param revocationStore Almacén compartido de revocaciones.
+     * @param tokenVersionService Servicio de versiones de token, cuya caché se invalida al revocar un usuario.
+     * @param customUserDetailsService Servicio de detalles de usuario, cuya caché se invalida al revocar un usuario.
+     * @param vigenciaTokens Tiempo de vida de los tokens de acceso, durante el que se conserva la revocación de un
+     *                       usuario.
+     * @param capacidadBloom Número de revocaciones para el que se dimensiona el filtro de Bloom.
+     * @param ventanaConfirmacion Antigüedad de las revocaciones que se vuelven a leer en cada sondeo, para no perder
+     *                            las confirmadas fuera de orden.
+     * @param meterRegistry Registro de métricas de la aplicación.
+     */
+    public TokenBlacklistService(RevocationStore revocationStore,
+                                 TokenVersionService tokenVersionService,
+                                 CustomUserDetailsService customUserDetailsService,
+                                 @Value("${jwt.expiracion:15m}") Duration vigenciaTokens,
+                                 @Value("${jwt.blacklist.capacidad-bloom:1000000}") long capacidadBloom,
+                                 @Value("${jwt.revocaciones.ventana-confirmacion:10s}") Duration ventanaConfirmacion,
+                                 MeterRegistry meterRegistry) {
+        this.revocationStore = revocationStore;
+        this.revocaciones = new JtiRevocationIndex(capacidadBloom);
+        this.tokenVersionService = tokenVersionService;
+        this.customUserDetailsService = customUserDetailsService;
+        this.vigenciaTokens = vigenciaTokens;
+        this.ventanaConfirmacion = ventanaConfirmacion;
+
+        Gauge.builder("jwt.blacklist.size", revocaciones, JtiRevocationIndex::size)
+                .description("Tokens actualmente en la lista negra")
+                .register(meterRegistry);
+        FunctionCounter.builder("jwt.blacklist.evictions", tokensExpulsados, AtomicLong::get)
+                .description("Tokens descartados de la lista negra por haber expirado")
+                .register(meterRegistry);
+        this.retrasoPropagacion = Timer.builder("jwt.revocaciones.retraso")
+                .description("Tiempo desde que se revoca un token en otra instancia hasta que esta lo conoce")
+                .register(meterRegistry);
+    }
 
     /**
-     * Añade un token a la lista negra para invalidarlo.
+     * Carga las revocaciones vigentes del almacén compartido al arrancar la aplicación.
+     */
+    @PostConstruct
+    public void cargarRevocaciones() {
+        leerCambios(false);
+    }
+
+    /**
+     * Añade un token a la lista negra para invalidarlo hasta su fecha de expiración.
      * Este token no podrá ser utilizado en futuras solicitudes de autenticación.
+     * <p>Si el token ya ha expirado no se guarda, porque no podría validarse de ninguna forma. La revocación se
+     * aplica de inmediato en esta instancia y se propaga al resto a través del almacén compartido.</p>
+     *
+     * @param jti El identificador ({@code jti}) del token que se desea añadir a la lista negra.
+     * @param expiracion La fecha de expiración del token.
+     */
+    public void addTokenToBlacklist(String jti, Instant expiracion) {
+        if (!expiracion.isAfter(Instant.now())) {
+            return;
+        }
+
+        UUID id = UUID.fromString(jti);
+        revocationStore.registrar(id, expiracion, Instant.now());
+        revocaciones.add(id.getMostSignificantBits(), id.getLeastSignificantBits(), expiracion.getEpochSecond());
+    }
+
+    /**
+     * Revoca todos los tokens emitidos hasta ahora para un usuario en todas las instancias.
+     * <p>Debe llamarse después de guardar el cambio del usuario. Las demás instancias descartan el usuario de sus
+     * cachés al leer la revocación; la revocación se conserva en el almacén mientras pueda quedar algún token de
+     * acceso vigente emitido antes de ella.</p>
      *
-     * @param token El token que se desea añadir a la lista negra.
+     * @param idUsuario El identificador del usuario.
      */
-    public void addTokenToBlacklist(String token) {
-        blacklistedTokens.add(token);
+    public void revocarTokensUsuario(Long idUsuario) {
+        Instant ahora = Instant.now();
+        revocationStore.registrarUsuario(idUsuario, ahora.plus(vigenciaTokens), ahora);
     }
 
     /**
      * Verifica si un token se encuentra en la lista negra.
      * Un token en la lista negra no podrá ser utilizado para autenticarse.
      *
-     * @param token El token a verificar.
+     * @param jti El identificador ({@code jti}) del token a verificar.
      * @return {@code true} si el token está en la lista negra, {@code false} en caso contrario.
      */
-    public boolean isTokenBlacklisted(String token) {
-        return blacklistedTokens.contains(token);
+    public boolean isTokenBlacklisted(String jti) {
+        UUID id = UUID.fromString(jti);
+        return revocaciones.contains(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    /**
+     * Incorpora al índice local las revocaciones registradas por otras instancias.
+     * <p>Se ejecuta periódicamente según la propiedad {@code jwt.revocaciones.intervalo-sondeo-ms}.</p>
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocaciones.intervalo-sondeo-ms:1000}")
+    public void sincronizarRevocaciones() {
+        leerCambios(true);
+    }
+
+    /**
+     * Descarta de la lista negra los tokens ya expirados, tanto del índice local como del almacén compartido.
+     * <p>Se ejecuta periódicamente según la propiedad {@code jwt.blacklist.intervalo-limpieza-ms}.</p>
+     */
+    @Scheduled(fixedDelayString = "${jwt.blacklist.intervalo-limpieza-ms:60000}")
+    public void expulsarTokensExpirados() {
+        Instant ahora = Instant.now();
+        tokensExpulsados.addAndGet(revocaciones.removeExpired(ahora.getEpochSecond()));
+        revocationStore.eliminarExpiradas(ahora);
+    }
+
+    /**
+     * Devuelve el número de tokens actualmente en la lista negra.
+     *
+     * @return El tamaño de la lista negra.
+     */
+    public int getTamano() {
+        return revocaciones.size();
+    }
+
+    /**
+     * Devuelve el número total de tokens descartados por haber expirado.
+     *
+     * @return El número de tokens expulsados desde el arranque.
+     */
+    public long getTokensExpulsados() {
+        return tokensExpulsados.get();
+    }
+
+    /**
+     * Lee del almacén las revocaciones posteriores a la última secuencia conocida y las añade al índice local, o
+     * descarta de las cachés los usuarios revocados.
+     * <p>Cada revocación de usuario se aplica una sola vez, aunque se vuelva a leer en sondeos posteriores; si no,
+     * las cachés del usuario se vaciarían en cada sondeo mientras la revocación siguiera en la ventana.</p>
+     *
+     * @param medirRetraso Indica si se registra el retraso de propagación de las revocaciones nuevas.
+     */
+    private synchronized void leerCambios(boolean medirRetraso) {
+        Instant ahora = Instant.now();
+        long conocida = ultimaSecuencia.get();
+        long desde = conocida;
+        // Una revocación con número de secuencia menor que el último conocido puede confirmarse después de leerlo:
+        // se vuelven a leer todas las registradas dentro de la ventana de confirmación
+        OptionalLong primeraReciente = revocationStore.primeraSecuenciaDesde(ahora.minus(ventanaConfirmacion));
+        if (primeraReciente.isPresent()) {
+            desde = Math.min(desde, primeraReciente.getAsLong() - 1);
+        }
+        long inicio = desde;
+        List<RevocationEntry> cambios;
+
+        do {
+            cambios = revocationStore.cambiosDesde(desde, ahora, TAMANO_LOTE);
+            for (RevocationEntry cambio : cambios) {
+                boolean nueva;
+                if (cambio.jti() != null) {
+                    UUID jti = cambio.jti();
+                    nueva = revocaciones.add(jti.getMostSignificantBits(), jti.getLeastSignificantBits(),
+                            cambio.expiracion().getEpochSecond());
+                } else {
+                    nueva = usuariosAplicados.add(cambio.secuencia());
+                    if (nueva) {
+                        // La revocación se confirma con el cambio del usuario, así que las cachés se vuelven a
+                        // cargar de la base de datos ya con el usuario modificado
+                        tokenVersionService.invalidarVersion(cambio.idUsuario());
+                        customUserDetailsService.invalidarUsuario(cambio.idUsuario());
+                    }
+                }
+                if (nueva && medirRetraso) {
+                    retrasoPropagacion.record(Duration.between(cambio.revocadoEn(), Instant.now()));
+                }
+                desde = cambio.secuencia();
+            }
+            ultimaSecuencia.accumulateAndGet(desde, Math::max);
+        } while (cambios.size() == TAMANO_LOTE);
+
+        // Las revocaciones anteriores a la ventana ya no se vuelven a leer
+        usuariosAplicados.removeIf(secuencia -> secuencia <= inicio);
     }
 }
@@ -0,0 +1,102 @@
+package daw2a.gestion_alimentos_api_rest.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import daw2a.gestion_alimentos_api_rest.repositories.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Servicio encargado de comprobar la vigencia de la versión de token de cada usuario.
+ *
+ * <p>Cada token JWT incluye la versión de tokens del usuario en el momento de emitirse. Este servicio mantiene
+ * en memoria la versión actual de cada usuario, de modo que el filtro JWT puede comprobarla sin consultar la
+ * base de datos. {@link UsuarioService} actualiza la versión al modificar o eliminar un usuario.</p>
+ *
+ * <p>La caché es local a cada instancia. Las demás instancias descartan la versión de un usuario cuando
+ * {@link TokenBlacklistService} lee su revocación del almacén compartido, es decir, como mucho en el intervalo
+ * de sondeo ({@code jwt.revocaciones.intervalo-sondeo-ms}); el tiempo de vida de las entradas solo limita cuánto
+ * tiempo se conservan.</p>
+ */
+@Service
+public class TokenVersionService {
+
+    /**
+     * Versión asignada a los usuarios eliminados; ningún token coincide con ella.
+     */
+    private static final long VERSION_ELIMINADO = -1L;
+
+    private final UsuarioRepository usuarioRepository;
+
+    // Versión actual de los tokens indexada por id de usuario
+    private final Cache<Long, Long> versiones;
+
+    /**
+     * Constructor que inicializa la caché de versiones.
+     *
+     * @param usuarioRepository Repositorio de usuarios, consultado cuando la versión no está en memoria.
+     * @param maxEntradas Número máximo de usuarios cuya versión se mantiene en memoria.
+     * @param ttl Tiempo de vida de cada entrada de la caché.
+     * @param meterRegistry Registro de métricas donde se publican los aciertos y fallos de la caché.
+     */
+    public TokenVersionService(UsuarioRepository usuarioRepository,
+                               @Value("${usuarios.cache.max-entradas:10000}") long maxEntradas,
+                               @Value("${usuarios.cache.ttl:5m}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.usuarioRepository = usuarioRepository;
+        this.versiones = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, versiones, "versiones-token");
+    }
+
+    /**
+     * Comprueba si la versión de un token coincide con la versión actual de tokens del usuario.
+     *
+     * @param idUsuario El identificador del usuario del token.
+     * @param version La versión incluida en el token.
+     * @return {@code true} si el token tiene la versión vigente, {@code false} si fue revocado o el usuario no existe.
+     */
+    public boolean esVersionVigente(Long idUsuario, Long version) {
+        if (idUsuario == null || version == null) {
+            return false;
+        }
+
+        Long actual = versiones.get(idUsuario, id -> usuarioRepository.findVersionTokenById(id).orElse(VERSION_ELIMINADO));
+        return actual == version.longValue();
+    }
+
+    /**
+     * Registra la nueva versión de tokens de un usuario.
+     *
+     * @param idUsuario El identificador del usuario.
+     * @param version La nueva versión de tokens.
+     */
+    public void actualizarVersion(Long idUsuario, Long version) {
+        versiones.put(idUsuario, version);
+    }
+
+    /**
+     * Marca como revocados todos los tokens de un usuario eliminado.
+     *
+     * @param idUsuario El identificador del usuario eliminado.
+     */
+    public void marcarEliminado(Long idUsuario) {
+        versiones.put(idUsuario, VERSION_ELIMINADO);
+    }
+
+    /**
+     * Descarta la versión de un usuario guardada en memoria, para que se vuelva a leer de la base de datos.
+     *
+     * @param idUsuario El identificador del usuario.
+     */
+    public void invalidarVersion(Long idUsuario) {
+        versiones.invalidate(idUsuario);
+    }
+}
@@ -1,17 +1,24 @@
 package daw2a.gestion_alimentos_api_rest.services;
 
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
+import daw2a.gestion_alimentos_api_rest.dto.PaginaDTO;
 import daw2a.gestion_alimentos_api_rest.dto.ubicacion.CrearUbicacionDTO;
 import daw2a.gestion_alimentos_api_rest.dto.ubicacion.ModificarUbicacionDTO;
 import daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionDTO;
 import daw2a.gestion_alimentos_api_rest.dto.ubicacion.UbicacionEspacioDTO;
-import daw2a.gestion_alimentos_api_rest.entities.Existencia;
 import daw2a.gestion_alimentos_api_rest.entities.Ubicacion;
+import daw2a.gestion_alimentos_api_rest.enums.ModoTotal;
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
 import daw2a.gestion_alimentos_api_rest.exceptions.RecursoNoEncontradoException;
-import daw2a.gestion_alimentos_api_rest.repositories.ExistenciaRepository;
+import daw2a.gestion_alimentos_api_rest.repositories.EstadisticasRepository;
 import daw2a.gestion_alimentos_api_rest.repositories.UbicacionRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -22,30 +29,92 @@ import java.util.List;
 @Service
 public class UbicacionService {
     private final UbicacionRepository ubicacionRepository;
-    private final ExistenciaRepository existenciaRepository;
+    private final EstadisticasRepository estadisticasRepository;
+    private final CaducidadCache caducidadCache;
+    private final TransactionTemplate transactionTemplate;
 
-    public UbicacionService(UbicacionRepository ubicacionRepository, ExistenciaRepository existenciaRepository) {
+    public UbicacionService(UbicacionRepository ubicacionRepository, EstadisticasRepository estadisticasRepository, CaducidadCache caducidadCache,
+                            PlatformTransactionManager transactionManager) {
         this.ubicacionRepository = ubicacionRepository;
-        this.existenciaRepository = existenciaRepository;
+        this.estadisticasRepository = estadisticasRepository;
+        this.caducidadCache = caducidadCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
      * Listar todas las ubicaciones o las ubicaciones de un tipo específico.
      *
+     * <p>Si se solicita la ocupación, cada ubicación incluye su espacio ocupado, su espacio disponible y su número de
+     * existencias, calculados en la misma consulta que la página.</p>
+     *
      * @param tipoUbicacion Tipo de ubicación (alacena, nevera o congelador).
+     * @param ocupacion Indica si se incluye la ocupación de cada ubicación.
      * @param pageable Objeto Pageable para la paginación de resultados.
      * @return Listado de ubicaciones en forma de una página.
+     * @throws IllegalArgumentException Si el tipo de ubicación no es válido.
+     */
+    @Transactional(readOnly = true)
+    public Page<?> listarUbicaciones(String tipoUbicacion, boolean ocupacion, Pageable pageable) {
+        TipoUbicacion tipo = TipoUbicacion.desde(tipoUbicacion);
+        if (ocupacion) {
+            return tipo != null
+                    ? ubicacionRepository.listarPorTipoUbicacionConOcupacion(tipo, pageable)
+                    : ubicacionRepository.listarConOcupacion(pageable);
+        }
+        if (tipo != null) {
+            return ubicacionRepository.listarPorTipoUbicacion(tipo, pageable);
+        }
+        return ubicacionRepository.listarUbicaciones(pageable);
+    }
+
+    /**
+     * Lista las ubicaciones, opcionalmente filtrando por tipo, sin calcular el total exacto.
+     * <p>No se ejecuta la consulta de recuento. Si se solicita el total aproximado y no se filtra por tipo, se
+     * incluye el número de filas estimado por la base de datos.</p>
+     *
+     * @param tipoUbicacion Tipo de ubicación (opcional).
+     * @param total Modo de cálculo del total ({@code NINGUNO} o {@code APROXIMADO}).
+     * @param ocupacion Indica si se incluye la ocupación de cada ubicación.
+     * @param pageable Configuración de paginación.
+     * @return Una página compacta de ubicaciones.
+     * @throws IllegalArgumentException Si el tipo de ubicación no es válido.
      */
-    public Page<?> listarUbicaciones(String tipoUbicacion, Pageable pageable) {
-        Page<Ubicacion> ubicaciones;
+    @Transactional(readOnly = true)
+    public PaginaDTO<?> listarUbicacionesSinTotal(String tipoUbicacion, ModoTotal total, boolean ocupacion, Pageable pageable) {
+        TipoUbicacion tipo = TipoUbicacion.desde(tipoUbicacion);
+        Long totalAproximado = total == ModoTotal.APROXIMADO && tipo == null
+                ? estadisticasRepository.filasAproximadas("ubicacion") : null;
 
-        if (tipoUbicacion != null && !tipoUbicacion.isEmpty()) {
-            ubicaciones = ubicacionRepository.findByTipoUbicacionContainingIgnoreCase(tipoUbicacion, pageable);
-        } else {
-            ubicaciones = ubicacionRepository.findAll(pageable);
+        if (ocupacion) {
+            return PaginaDTO.desde(tipo != null
+                    ? ubicacionRepository.listarPorTipoUbicacionConOcupacionSinTotal(tipo, pageable)
+                    : ubicacionRepository.listarConOcupacionSinTotal(pageable), totalAproximado);
         }
+        return PaginaDTO.desde(tipo != null
+                ? ubicacionRepository.listarPorTipoUbicacionSinTotal(tipo, pageable)
+                : ubicacionRepository.listarSinTotal(pageable), totalAproximado);
+    }
+
+    /**
+     * Lista las ubicaciones mediante paginación por cursor, opcionalmente filtrando por tipo de ubicación.
+     * <p>Cada página continúa a partir de la última ubicación de la anterior, ordenando por {@code id}.</p>
+     *
+     * @param tipoUbicacion Tipo de ubicación (opcional).
+     * @param after Cursor de la página anterior, o vacío para obtener la primera página.
+     * @param pageable Tamaño de página y orden; el número de página se ignora.
+     * @return La página de ubicaciones y el cursor de la siguiente.
+     * @throws IllegalArgumentException Si el cursor o el tipo de ubicación no son válidos, o el orden no está admitido.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<UbicacionDTO> listarUbicacionesPorCursor(String tipoUbicacion, String after, Pageable pageable) {
+        String orden = Cursor.ordenSolicitado(pageable, Cursor.ORDEN_ID);
+        Cursor cursor = Cursor.leer(after, orden);
 
-        return ubicaciones.map(this::convertirAUbicacionDTO);
+        TipoUbicacion tipo = TipoUbicacion.desde(tipoUbicacion);
+        List<UbicacionDTO> ubicaciones = tipo != null
+                ? ubicacionRepository.listarPorTipoUbicacionPorCursorId(tipo, Cursor.id(cursor), Cursor.limite(pageable))
+                : ubicacionRepository.listarPorCursorId(Cursor.id(cursor), Cursor.limite(pageable));
+        return Cursor.pagina(ubicaciones, pageable, u -> Cursor.crear(orden, u.getId(), null));
     }
 
     /**
@@ -62,33 +131,30 @@ public class UbicacionService {
         return convertirAUbicacionDTO(ubicacion);
     }
 
+    /**
+     * Calcula el espacio total, el espacio ocupado y el espacio disponible de cada tipo de ubicación.
+     * <p>Se obtiene con una única consulta agregada sobre las ubicaciones, usando su capacidad ocupada.</p>
+     *
+     * @return Información sobre el espacio de cada tipo de ubicación.
+     */
+    @Transactional(readOnly = true)
+    public List<UbicacionEspacioDTO> obtenerEspacioPorTiposUbicacion() {
+        return ubicacionRepository.calcularEspacioPorTipo();
+    }
+
     /**
      * Calcula el espacio total, el espacio ocupado y el espacio disponible para un tipo de ubicación específico.
+     * <p>El tipo se admite en mayúsculas o minúsculas. Si no hay ubicaciones de ese tipo, todos los valores son 0.</p>
      *
      * @param tipoUbicacion Tipo de ubicación (nevera, alacena o congelador).
      * @return Información sobre el espacio total, ocupado y disponible para el tipo de ubicación especificado.
+     * @throws IllegalArgumentException Si el tipo de ubicación no es válido.
      */
+    @Transactional(readOnly = true)
     public UbicacionEspacioDTO obtenerEscapcioPorTipoUbicacion(String tipoUbicacion) {
-        List<Ubicacion> ubicaciones = ubicacionRepository.findByTipoUbicacionContainingIgnoreCase(tipoUbicacion, null).getContent();
-        Long espacioTotal = ubicaciones.stream()
-                .mapToLong(Ubicacion::getCapacidad)
-                .sum();
-
-
-        List<Existencia> existencias = existenciaRepository.findByUbicacion_TipoUbicacionIgnoreCase(tipoUbicacion, null).getContent();
-        Long espacioOcupado = existencias.stream()
-                .mapToLong(Existencia::getCantidad)
-                .sum();
-
-        Long espacioDisponible = espacioTotal - espacioOcupado;
-
-        UbicacionEspacioDTO ubicacionEspacioDTO = new UbicacionEspacioDTO();
-        ubicacionEspacioDTO.setTipoUbicacion(tipoUbicacion);
-        ubicacionEspacioDTO.setEspacioDisponible(espacioDisponible);
-        ubicacionEspacioDTO.setEspacioOcupado(espacioOcupado);
-        ubicacionEspacioDTO.setEspacioTotal(espacioTotal);
-
-        return ubicacionEspacioDTO;
+        TipoUbicacion tipo = TipoUbicacion.desde(tipoUbicacion);
+        return ubicacionRepository.calcularEspacioDeTipo(tipo)
+                .orElseGet(() -> new UbicacionEspacioDTO(tipo, 0L, 0L, 0L));
     }
 
     /**
@@ -100,7 +166,7 @@ public class UbicacionService {
     public UbicacionDTO crearUbicacion(CrearUbicacionDTO crearUbicacionDTO) {
         Ubicacion ubicacion = new Ubicacion();
         ubicacion.setDescripcion(crearUbicacionDTO.getDescripcion());
-        ubicacion.setTipoUbicacion(crearUbicacionDTO.getTipoUbicacion());
+        ubicacion.setTipoUbicacion(TipoUbicacion.desde(crearUbicacionDTO.getTipoUbicacion()));
         ubicacion.setCapacidad(crearUbicacionDTO.getCapacidad());
 
         return convertirAUbicacionDTO(ubicacionRepository.save(ubicacion));
@@ -122,13 +188,15 @@ public class UbicacionService {
             ubicacion.setDescripcion(modificarUbicacionDTO.getDescripcion());
         }
         if (modificarUbicacionDTO.getTipoUbicacion() != null && !modificarUbicacionDTO.getTipoUbicacion().isEmpty()) {
-            ubicacion.setTipoUbicacion(modificarUbicacionDTO.getTipoUbicacion());
+            ubicacion.setTipoUbicacion(TipoUbicacion.desde(modificarUbicacionDTO.getTipoUbicacion()));
         }
         if (modificarUbicacionDTO.getCapacidad() != null) {
             ubicacion.setCapacidad(modificarUbicacionDTO.getCapacidad());
         }
 
-        return convertirAUbicacionDTO(ubicacionRepository.save(ubicacion));
+        UbicacionDTO ubicacionDTO = convertirAUbicacionDTO(ubicacionRepository.save(ubicacion));
+        caducidadCache.invalidar();
+        return ubicacionDTO;
     }
 
     /**
@@ -142,6 +210,7 @@ public class UbicacionService {
                 .orElseThrow(() -> new RecursoNoEncontradoException("No existe la ubicacion con el id " + id));
 
         ubicacionRepository.delete(ubicacion);
+        caducidadCache.invalidar();
     }
 
     /**
@@ -159,4 +228,31 @@ public class UbicacionService {
 
         return ubicacionDTO;
     }
+
+    /**
+     * Reconstruye la capacidad ocupada de todas las ubicaciones a partir de sus existencias.
+     * <p>Corrige cualquier desviación del contador, por ejemplo tras modificar datos directamente en la base de datos.
+     * Se ejecuta periódicamente según la propiedad {@code ubicaciones.ocupacion.reparacion-cron}.</p>
+     *
+     * <p>Cada ubicación se repara en su propia transacción: primero se bloquea, igual que al reservar capacidad, y
+     * después se suma la cantidad de sus existencias en una sentencia aparte. Así la suma incluye las existencias de
+     * las operaciones que tenían la ubicación bloqueada, y las que esperan al bloqueo aplican su cambio sobre el valor
+     * ya reparado.</p>
+     *
+     * @return El número de ubicaciones actualizadas.
+     */
+    @Scheduled(cron = "${ubicaciones.ocupacion.reparacion-cron:0 0 4 * * *}")
+    public int recalcularOcupacion() {
+        int actualizadas = 0;
+        for (Long id : ubicacionRepository.listarIds()) {
+            Integer actualizada = transactionTemplate.execute(estado -> {
+                if (ubicacionRepository.findConBloqueoByIdIn(List.of(id)).isEmpty()) {
+                    return 0;
+                }
+                return ubicacionRepository.recalcularOcupacion(id);
+            });
+            actualizadas += actualizada != null ? actualizada : 0;
+        }
+        return actualizadas;
+    }
 }
@@ -1,6 +1,9 @@
 package daw2a.gestion_alimentos_api_rest.services;
 
 import daw2a.gestion_alimentos_api_rest.enums.Rol;
+import daw2a.gestion_alimentos_api_rest.enums.ModoTotal;
+import daw2a.gestion_alimentos_api_rest.dto.PaginaCursorDTO;
+import daw2a.gestion_alimentos_api_rest.dto.PaginaDTO;
 import daw2a.gestion_alimentos_api_rest.dto.usuario.CrearUsuarioDTO;
 import daw2a.gestion_alimentos_api_rest.dto.usuario.ModificarUsuarioDTO;
 import daw2a.gestion_alimentos_api_rest.dto.usuario.UsuarioDTO;
@@ -8,11 +11,16 @@ import daw2a.gestion_alimentos_api_rest.dto.usuario.UsuarioDetallesDTO;
 import daw2a.gestion_alimentos_api_rest.entities.Usuario;
 import daw2a.gestion_alimentos_api_rest.exceptions.RecursoDuplicadoException;
 import daw2a.gestion_alimentos_api_rest.exceptions.RecursoNoEncontradoException;
+import daw2a.gestion_alimentos_api_rest.repositories.EstadisticasRepository;
 import daw2a.gestion_alimentos_api_rest.repositories.UsuarioRepository;
+import daw2a.gestion_alimentos_api_rest.security.user.CustomUserDetailsService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * Servicio para gestionar operaciones relacionadas con los usuarios.
@@ -22,35 +30,89 @@ import org.springframework.stereotype.Service;
 public class UsuarioService {
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CustomUserDetailsService customUserDetailsService;
+    private final TokenVersionService tokenVersionService;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final RefreshTokenService refreshTokenService;
+    private final EstadisticasRepository estadisticasRepository;
 
     /**
      * Constructor para inyección de dependencias.
      *
      * @param usuarioRepository Repositorio de usuarios.
      * @param passwordEncoder Codificador de contraseñas.
+     * @param customUserDetailsService Servicio de detalles de usuario, cuya caché se invalida al modificar usuarios.
+     * @param tokenVersionService Servicio de versiones de token, que se actualiza al modificar o eliminar usuarios.
+     * @param tokenBlacklistService Servicio de la lista negra, que propaga a las demás instancias la revocación de
+     *                              los tokens de un usuario.
+     * @param refreshTokenService Servicio de tokens de refresco, que se revocan al modificar o eliminar usuarios.
+     * @param estadisticasRepository Repositorio de estadísticas, para estimar el total de usuarios.
      */
-    public UsuarioService(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder) {
+    public UsuarioService(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder,
+                          CustomUserDetailsService customUserDetailsService, TokenVersionService tokenVersionService,
+                          TokenBlacklistService tokenBlacklistService, RefreshTokenService refreshTokenService, EstadisticasRepository estadisticasRepository) {
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
+        this.customUserDetailsService = customUserDetailsService;
+        this.tokenVersionService = tokenVersionService;
+        this.tokenBlacklistService = tokenBlacklistService;
+        this.refreshTokenService = refreshTokenService;
+        this.estadisticasRepository = estadisticasRepository;
     }
 
     /**
      * Listar usuarios con soporte de paginación y filtrado opcional por nombre.
+     * <p>Solo se seleccionan las columnas del DTO de listado, de modo que no se lee el hash de la contraseña.</p>
      *
      * @param nombre Filtrado opcional por nombre del usuario.
      * @param pageable Configuración de paginación.
      * @return Página de usuarios en formato DTO de listado.
      */
+    @Transactional(readOnly = true)
     public Page<UsuarioDTO> listarUsuarios(String nombre, Pageable pageable) {
-        Page<Usuario> usuarios;
-
         if (nombre != null && !nombre.isEmpty()) {
-            usuarios = usuarioRepository.findByNombreContainingIgnoreCase(nombre, pageable);
-        } else {
-            usuarios = usuarioRepository.findAll(pageable);
+            return usuarioRepository.listarPorNombre(nombre, pageable);
         }
+        return usuarioRepository.listarUsuarios(pageable);
+    }
 
-        return usuarios.map(this::convertirAUsuarioDTO);
+    /**
+     * Lista los usuarios, opcionalmente filtrando por nombre, sin calcular el total exacto.
+     * <p>No se ejecuta la consulta de recuento. Si se solicita el total aproximado y no se filtra por nombre, se
+     * incluye el número de filas estimado por la base de datos.</p>
+     *
+     * @param nombre Nombre del usuario (opcional).
+     * @param total Modo de cálculo del total ({@code NINGUNO} o {@code APROXIMADO}).
+     * @param pageable Configuración de paginación.
+     * @return Una página compacta de usuarios.
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<UsuarioDTO> listarUsuariosSinTotal(String nombre, ModoTotal total, Pageable pageable) {
+        boolean filtrado = nombre != null && !nombre.isEmpty();
+        Long totalAproximado = total == ModoTotal.APROXIMADO && !filtrado
+                ? estadisticasRepository.filasAproximadas("usuario") : null;
+
+        return PaginaDTO.desde(usuarioRepository.listarSinTotal(filtrado ? nombre : "", pageable), totalAproximado);
+    }
+
+    /**
+     * Lista los usuarios mediante paginación por cursor, opcionalmente filtrando por nombre.
+     * <p>Cada página continúa a partir del último usuario de la anterior, ordenando por {@code id}.</p>
+     *
+     * @param nombre Nombre del usuario (opcional).
+     * @param after Cursor de la página anterior, o vacío para obtener la primera página.
+     * @param pageable Tamaño de página y orden; el número de página se ignora.
+     * @return La página de usuarios y el cursor de la siguiente.
+     * @throws IllegalArgumentException Si el cursor no es válido o el orden no está admitido.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<UsuarioDTO> listarUsuariosPorCursor(String nombre, String after, Pageable pageable) {
+        String orden = Cursor.ordenSolicitado(pageable, Cursor.ORDEN_ID);
+        Cursor cursor = Cursor.leer(after, orden);
+
+        List<UsuarioDTO> usuarios = usuarioRepository.listarPorCursorId(nombre == null ? "" : nombre,
+                Cursor.id(cursor), Cursor.limite(pageable));
+        return Cursor.pagina(usuarios, pageable, u -> Cursor.crear(orden, u.getId(), null));
     }
 
     /**
@@ -126,6 +188,9 @@ public class UsuarioService {
 
     /**
      * Actualiza un usuario existente.
+     * <p>Si cambia el email, la contraseña o el rol, se incrementa la versión de tokens del usuario y se revocan
+     * sus tokens de refresco, de modo que los tokens emitidos anteriormente dejan de ser válidos, también en las
+     * demás instancias.</p>
      *
      * @param id Identificador del usuario.
      * @param modificarUsuarioDTO Detalles para modificar el usuario.
@@ -135,25 +200,44 @@ public class UsuarioService {
     public UsuarioDetallesDTO editarUsuario(Long id, ModificarUsuarioDTO modificarUsuarioDTO) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("El usuario con el id " + id + " no existe."));
+        String emailAnterior = usuario.getEmail();
+        boolean revocarTokens = false;
 
         if (modificarUsuarioDTO.getNombre() != null && !modificarUsuarioDTO.getNombre().isEmpty()) {
             usuario.setNombre(modificarUsuarioDTO.getNombre());
         }
         if (modificarUsuarioDTO.getEmail() != null && !modificarUsuarioDTO.getEmail().isEmpty()) {
+            revocarTokens |= !modificarUsuarioDTO.getEmail().equals(emailAnterior);
             usuario.setEmail(modificarUsuarioDTO.getEmail());
         }
         if (modificarUsuarioDTO.getPassword() != null && !modificarUsuarioDTO.getPassword().isEmpty()) {
+            revocarTokens = true;
             usuario.setPassword(passwordEncoder.encode(modificarUsuarioDTO.getPassword()));
         }
         if (modificarUsuarioDTO.getRol() != null && !modificarUsuarioDTO.getRol().isEmpty()) {
-            usuario.setRol(Rol.valueOf(modificarUsuarioDTO.getRol().toUpperCase()));
+            Rol rol = Rol.valueOf(modificarUsuarioDTO.getRol().toUpperCase());
+            revocarTokens |= rol != usuario.getRol();
+            usuario.setRol(rol);
+        }
+        if (revocarTokens) {
+            usuario.setVersionToken(usuario.getVersionToken() + 1);
         }
 
-        return convertirAUsuarioDetallesDTO(usuarioRepository.save(usuario));
+        Usuario usuarioActualizado = usuarioRepository.save(usuario);
+        customUserDetailsService.invalidarUsuario(emailAnterior);
+        customUserDetailsService.invalidarUsuario(usuarioActualizado.getEmail());
+        tokenVersionService.actualizarVersion(usuarioActualizado.getId(), usuarioActualizado.getVersionToken());
+        if (revocarTokens) {
+            refreshTokenService.revocarUsuario(usuarioActualizado.getId());
+            tokenBlacklistService.revocarTokensUsuario(usuarioActualizado.getId());
+        }
+
+        return convertirAUsuarioDetallesDTO(usuarioActualizado);
     }
 
     /**
      * Elimina un usuario existente.
+     * <p>Los tokens emitidos para el usuario dejan de ser válidos, también en las demás instancias.</p>
      *
      * @param id Identificador del usuario.
      * @throws RecursoNoEncontradoException Si el usuario con el id proporcionado no existe.
@@ -162,22 +246,11 @@ public class UsuarioService {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("El usuario con el id " + id + " no existe."));
 
+        refreshTokenService.eliminarUsuario(usuario.getId());
         usuarioRepository.delete(usuario);
-    }
-
-    /**
-     * Convierte una entidad usuario a un DTO con los datos básicos.
-     *
-     * @param usuario Entidad de usuario.
-     * @return DTO con detalles básicos del usuario.
-     */
-    private UsuarioDTO convertirAUsuarioDTO(Usuario usuario) {
-        UsuarioDTO usuarioDTO = new UsuarioDTO();
-        usuarioDTO.setId(usuario.getId());
-        usuarioDTO.setNombre(usuario.getNombre());
-        usuarioDTO.setEmail(usuario.getEmail());
-
-        return usuarioDTO;
+        customUserDetailsService.invalidarUsuario(usuario.getEmail());
+        tokenVersionService.marcarEliminado(usuario.getId());
+        tokenBlacklistService.revocarTokensUsuario(usuario.getId());
     }
 
     /**
@@ -0,0 +1,71 @@
+-- Esquema inicial de la base de datos.
+-- Los indices cubren las consultas de los repositorios:
+--   * idx_existencia_alimento_ubicacion_fecha_entrada: existencias de un alimento en una ubicacion en orden de
+--     entrada (consumo FIFO) y, por su primera columna, las existencias de un alimento.
+--   * idx_existencia_ubicacion: existencias de una ubicacion y recalculo de su capacidad ocupada.
+--   * idx_existencia_fecha_entrada_id: paginacion por cursor ordenada por fecha de entrada.
+--   * idx_alimento_fecha_caducidad: alimentos y existencias proximos a caducar.
+--   * idx_alimento_nombre_id: paginacion por cursor ordenada por nombre.
+--   * idx_ubicacion_tipo_ubicacion: filtros por tipo de ubicacion.
+
+CREATE SEQUENCE existencia_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE usuario (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre        VARCHAR(255) NOT NULL,
+    email         VARCHAR(255) NOT NULL UNIQUE,
+    password      VARCHAR(255) NOT NULL,
+    rol           VARCHAR(255) NOT NULL CHECK (rol IN ('USUARIO', 'ADMINISTRADOR')),
+    version_token BIGINT       NOT NULL
+);
+
+CREATE TABLE alimento (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre          VARCHAR(255) NOT NULL,
+    tipo            VARCHAR(16)  NOT NULL CHECK (tipo IN ('PERECEDERO', 'NO_PERECEDERO')),
+    estado          VARCHAR(16)  NOT NULL CHECK (estado IN ('CERRADO', 'ABIERTO', 'CONGELADO')),
+    fecha_caducidad DATE         NOT NULL
+);
+
+CREATE TABLE ubicacion (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    descripcion    VARCHAR(255) NOT NULL,
+    tipo_ubicacion VARCHAR(16)  NOT NULL CHECK (tipo_ubicacion IN ('ALACENA', 'NEVERA', 'CONGELADOR')),
+    capacidad      BIGINT       NOT NULL,
+    ocupado        BIGINT       DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE existencia (
+    id            BIGINT NOT NULL PRIMARY KEY,
+    alimento_id   BIGINT CONSTRAINT fk_existencia_alimento REFERENCES alimento,
+    ubicacion_id  BIGINT CONSTRAINT fk_existencia_ubicacion REFERENCES ubicacion,
+    cantidad      BIGINT NOT NULL,
+    fecha_entrada DATE   NOT NULL
+);
+
+CREATE TABLE refresh_token (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    hash       VARCHAR(44)                 NOT NULL UNIQUE,
+    usuario_id BIGINT                      NOT NULL CONSTRAINT fk_refresh_token_usuario REFERENCES usuario,
+    familia    VARCHAR(36)                 NOT NULL,
+    expiracion TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    usado      BOOLEAN                     NOT NULL,
+    revocado   BOOLEAN                     NOT NULL
+);
+
+CREATE TABLE token_revocado (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    jti         UUID                        NOT NULL UNIQUE,
+    expiracion  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    revocado_en TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_alimento_nombre_id ON alimento (nombre, id);
+CREATE INDEX idx_alimento_fecha_caducidad ON alimento (fecha_caducidad);
+CREATE INDEX idx_ubicacion_tipo_ubicacion ON ubicacion (tipo_ubicacion);
+CREATE INDEX idx_existencia_alimento_ubicacion_fecha_entrada ON existencia (alimento_id, ubicacion_id, fecha_entrada);
+CREATE INDEX idx_existencia_ubicacion ON existencia (ubicacion_id);
+CREATE INDEX idx_existencia_fecha_entrada_id ON existencia (fecha_entrada, id);
+CREATE INDEX idx_refresh_token_familia ON refresh_token (familia);
+CREATE INDEX idx_refresh_token_usuario ON refresh_token (usuario_id);
+CREATE INDEX idx_token_revocado_expiracion ON token_revocado (expiracion);
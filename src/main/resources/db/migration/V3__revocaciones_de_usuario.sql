@@ -0,0 +1,5 @@
+-- Revocaciones de todos los tokens de un usuario (cambio de rol, de credenciales o baja), propagadas a todas las
+-- instancias por la misma tabla que las revocaciones de tokens sueltos. Cada fila revoca un jti o un usuario.
+ALTER TABLE token_revocado ALTER COLUMN jti DROP NOT NULL;
+ALTER TABLE token_revocado ADD COLUMN usuario_id BIGINT;
+ALTER TABLE token_revocado ADD CONSTRAINT ck_token_revocado_objetivo CHECK ((jti IS NULL) <> (usuario_id IS NULL));
@@ -0,0 +1,2 @@
+-- Cada sondeo de revocaciones busca la primera registrada dentro de la ventana de confirmacion
+CREATE INDEX idx_token_revocado_revocado_en ON token_revocado (revocado_en);
@@ -0,0 +1,49 @@
+package daw2a.gestion_alimentos_api_rest.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.callback.Callback;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comprueba que una misma base de datos se puede migrar con y sin los datos de ejemplo, y que estos solo se cargan
+ * una vez y en una base de datos vacía.
+ */
+class DatosDemoConfigTest {
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:demo;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final Callback datosDemo = new DatosDemoConfig().datosDemo();
+
+    @Test
+    void datosDeEjemploSeCarganUnaVezSinCambiarElHistorialDeMigraciones() {
+        Flyway sinDatos = Flyway.configure().dataSource(dataSource).load();
+        Flyway conDatos = Flyway.configure().dataSource(dataSource).callbacks(datosDemo).load();
+
+        sinDatos.migrate();
+        assertThat(contar("alimento")).isZero();
+
+        conDatos.migrate();
+        long alimentos = contar("alimento");
+        long existencias = contar("existencia");
+        assertThat(alimentos).isPositive();
+        assertThat(existencias).isPositive();
+        assertThat(jdbcTemplate.queryForObject("select sum(ocupado) from ubicacion", Long.class))
+                .isEqualTo(jdbcTemplate.queryForObject("select sum(cantidad) from existencia", Long.class));
+
+        // Volver a arrancar con o sin el perfil no repite los datos ni invalida el historial
+        conDatos.migrate();
+        assertThat(contar("alimento")).isEqualTo(alimentos);
+        assertThat(contar("existencia")).isEqualTo(existencias);
+        sinDatos.validate();
+        conDatos.validate();
+    }
+
+    private long contar(String tabla) {
+        return jdbcTemplate.queryForObject("select count(*) from " + tabla, Long.class);
+    }
+}
@@ -0,0 +1,118 @@
+package daw2a.gestion_alimentos_api_rest.controllers;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que los listados de existencias se resuelven con un número fijo de sentencias SQL,
+ * independiente del tamaño de la página.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:existencias;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Las tareas periódicas no deben ejecutar consultas mientras se cuentan las sentencias
+        "jwt.revocaciones.intervalo-sondeo-ms=3600000",
+        "jwt.blacklist.intervalo-limpieza-ms=3600000"
+})
+@AutoConfigureMockMvc
+// Las consultas se miden sobre los datos de ejemplo
+@ActiveProfiles("dev")
+@WithMockUser(roles = "USUARIO")
+class ExistenciaControllerConsultasTest {
+
+    // Consulta de la página y, si hace falta, consulta de recuento
+    private static final long SENTENCIAS_POR_PAGINA = 2;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 50})
+    void listarExistenciasNoDependeDelTamanoDePagina(int size) throws Exception {
+        assertThat(sentencias("/existencias?size=" + size)).isLessThanOrEqualTo(SENTENCIAS_POR_PAGINA);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"?idAlimento=1", "?idUbicacion=1", "?idAlimento=1&idUbicacion=1"})
+    void listarExistenciasFiltradas(String filtro) throws Exception {
+        assertThat(sentencias("/existencias" + filtro + "&size=50")).isLessThanOrEqualTo(SENTENCIAS_POR_PAGINA);
+    }
+
+    @Test
+    void listarExistenciasQueCaducan() throws Exception {
+        assertThat(sentencias("/existencias/caducan/50"))
+                .isLessThanOrEqualTo(SENTENCIAS_POR_PAGINA);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"?total=NINGUNO", "?total=APROXIMADO", "?total=NINGUNO&idAlimento=1"})
+    void listarExistenciasSinTotalNoCuenta(String modo) throws Exception {
+        assertThat(sentencias("/existencias" + modo + "&size=1")).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "&idAlimento=1", "&idUbicacion=1", "&idAlimento=1&idUbicacion=1",
+            "&sort=fechaEntrada", "&sort=fechaEntrada&idAlimento=1", "&sort=fechaEntrada&idUbicacion=1",
+            "&sort=fechaEntrada&idAlimento=1&idUbicacion=1"})
+    void listarExistenciasPorCursorNoCuenta(String filtro) throws Exception {
+        assertThat(sentencias("/existencias?after=&size=1" + filtro)).isEqualTo(1);
+    }
+
+    @Test
+    void listarExistenciasPorCursorAplicaLosFiltros() throws Exception {
+        mockMvc.perform(get("/existencias?after=&sort=fechaEntrada&idUbicacion=1&size=50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contenido", hasSize(4)))
+                .andExpect(jsonPath("$.contenido[*].idUbicacion", everyItem(is(1))));
+        mockMvc.perform(get("/existencias?after=&idAlimento=1&size=50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contenido[*].idAlimento", everyItem(is(1))));
+    }
+
+    @Test
+    void informeCaducidadPorUbicacionEnUnaConsulta() throws Exception {
+        assertThat(sentencias("/existencias/caducan/por-ubicacion?limite=3")).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void consultarExistencia() throws Exception {
+        assertThat(sentencias("/existencias/1")).isEqualTo(1);
+    }
+
+    private long sentencias(String url) throws Exception {
+        estadisticas.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return estadisticas.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,202 @@
+package daw2a.gestion_alimentos_api_rest.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import daw2a.gestion_alimentos_api_rest.dto.existencia.LoteOperacionesDTO;
+import daw2a.gestion_alimentos_api_rest.dto.existencia.OperacionExistenciaDTO;
+import daw2a.gestion_alimentos_api_rest.entities.Alimento;
+import daw2a.gestion_alimentos_api_rest.enums.EstadoAlimento;
+import daw2a.gestion_alimentos_api_rest.enums.ModoLote;
+import daw2a.gestion_alimentos_api_rest.enums.TipoAlimento;
+import daw2a.gestion_alimentos_api_rest.enums.TipoOperacionExistencia;
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
+import daw2a.gestion_alimentos_api_rest.repositories.AlimentoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba los dos modos de aplicación de los lotes de operaciones sobre existencias y que un lote se aplica con
+ * un número fijo de sentencias SQL, enviando las inserciones en lotes JDBC.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lotes;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Las tareas periódicas no deben ejecutar consultas mientras se cuentan las sentencias
+        "jwt.revocaciones.intervalo-sondeo-ms=3600000",
+        "jwt.blacklist.intervalo-limpieza-ms=3600000"
+})
+@AutoConfigureMockMvc
+@WithMockUser(roles = "USUARIO")
+class ExistenciaControllerLoteTest {
+
+    // Alimentos, bloqueo de ubicaciones, su ocupación, secuencia, inserciones y ajuste de la ocupación
+    private static final long SENTENCIAS_POR_LOTE = 6;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AlimentoRepository alimentoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void todoONadaRechazaElLoteEIndicaLaOperacionQueFalla() throws Exception {
+        Long alimento = alimento("Lentejas");
+        Long alacena = ubicacion(10);
+
+        enviar(ModoLote.TODO_O_NADA,
+                crear(alimento, alacena, 4),
+                crear(alimento, alacena, 5),
+                crear(alimento, alacena, 2))
+                .andExpect(status().isConflict())
+                .andExpect(content().string(containsString("Operación 2 rechazada")));
+
+        enviar(ModoLote.TODO_O_NADA,
+                crear(alimento, alacena, 4),
+                crear(alimento, -1L, 1))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string(containsString("Operación 1 rechazada")));
+
+        // Las operaciones anteriores a la que falla tampoco se aplican
+        assertThat(existencias(alacena)).isZero();
+        assertThat(ocupado(alacena)).isZero();
+    }
+
+    @Test
+    void porElementoInformaDeCadaOperacionYMantieneLaCapacidad() throws Exception {
+        Long alimento = alimento("Garbanzos");
+        Long alacena = ubicacion(10);
+
+        enviar(ModoLote.POR_ELEMENTO,
+                crear(alimento, alacena, 6),
+                crear(alimento, alacena, 6),
+                crear(alimento, alacena, 4),
+                eliminar(-1L),
+                crear(alimento, alacena, 0))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.aplicadas").value(2))
+                .andExpect(jsonPath("$.fallidas").value(3))
+                .andExpect(jsonPath("$.resultados[*].indice", contains(0, 1, 2, 3, 4)))
+                .andExpect(jsonPath("$.resultados[*].estado", contains(200, 409, 200, 404, 400)));
+
+        // La operación que no cabe no reserva capacidad, y la siguiente usa la que queda
+        assertThat(existencias(alacena)).isEqualTo(2);
+        assertThat(ocupado(alacena)).isEqualTo(sumaExistencias(alacena)).isEqualTo(10);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 40})
+    void loteSeAplicaConSentenciasFijasEnLotesJdbc(int operaciones) throws Exception {
+        Long alimento = alimento("Arroz");
+        Long alacena = ubicacion(1000);
+        List<OperacionExistenciaDTO> lote = new ArrayList<>();
+        for (int i = 0; i < operaciones; i++) {
+            lote.add(crear(alimento, alacena, 1));
+        }
+
+        estadisticas.clear();
+        enviar(ModoLote.TODO_O_NADA, lote.toArray(OperacionExistenciaDTO[]::new)).andExpect(status().isOk());
+
+        assertThat(estadisticas.getEntityInsertCount()).isEqualTo(operaciones);
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(SENTENCIAS_POR_LOTE);
+        assertThat(ocupado(alacena)).isEqualTo(operaciones);
+    }
+
+    private ResultActions enviar(ModoLote modo, OperacionExistenciaDTO... operaciones) throws Exception {
+        LoteOperacionesDTO lote = new LoteOperacionesDTO();
+        lote.setModo(modo);
+        lote.setOperaciones(List.of(operaciones));
+        return mockMvc.perform(post("/existencias/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(lote)));
+    }
+
+    private OperacionExistenciaDTO crear(Long idAlimento, Long idUbicacion, long cantidad) {
+        OperacionExistenciaDTO operacion = new OperacionExistenciaDTO();
+        operacion.setTipo(TipoOperacionExistencia.CREAR);
+        operacion.setIdAlimento(idAlimento);
+        operacion.setIdUbicacion(idUbicacion);
+        operacion.setCantidad(cantidad);
+        return operacion;
+    }
+
+    private OperacionExistenciaDTO eliminar(Long id) {
+        OperacionExistenciaDTO operacion = new OperacionExistenciaDTO();
+        operacion.setTipo(TipoOperacionExistencia.ELIMINAR);
+        operacion.setId(id);
+        return operacion;
+    }
+
+    private Long alimento(String nombre) {
+        return alimentoRepository.save(Alimento.builder()
+                .nombre(nombre)
+                .tipo(TipoAlimento.NO_PERECEDERO)
+                .estado(EstadoAlimento.CERRADO)
+                .fechaCaducidad(LocalDate.now().plusYears(1))
+                .build()).getId();
+    }
+
+    /**
+     * Crea una ubicación vacía y devuelve su id. Se inserta directamente porque la validación de la entidad no
+     * admite la capacidad numérica.
+     */
+    private Long ubicacion(long capacidad) {
+        jdbcTemplate.update("insert into ubicacion (descripcion, tipo_ubicacion, capacidad, ocupado) values (?, ?, ?, 0)",
+                "Ubicación de prueba", TipoUbicacion.ALACENA.name(), capacidad);
+        return jdbcTemplate.queryForObject("select max(id) from ubicacion", Long.class);
+    }
+
+    private long existencias(Long idUbicacion) {
+        return jdbcTemplate.queryForObject("select count(*) from existencia where ubicacion_id = ?", Long.class, idUbicacion);
+    }
+
+    private long ocupado(Long idUbicacion) {
+        return jdbcTemplate.queryForObject("select ocupado from ubicacion where id = ?", Long.class, idUbicacion);
+    }
+
+    private long sumaExistencias(Long idUbicacion) {
+        return jdbcTemplate.queryForObject("select coalesce(sum(cantidad), 0) from existencia where ubicacion_id = ?",
+                Long.class, idUbicacion);
+    }
+}
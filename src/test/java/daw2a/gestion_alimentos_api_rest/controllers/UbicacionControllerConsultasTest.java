@@ -0,0 +1,94 @@
+package daw2a.gestion_alimentos_api_rest.controllers;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que los listados e informes de ubicaciones se resuelven con un número fijo de sentencias SQL,
+ * independiente del número de ubicaciones.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ubicaciones;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Las tareas periódicas no deben ejecutar consultas mientras se cuentan las sentencias
+        "jwt.revocaciones.intervalo-sondeo-ms=3600000",
+        "jwt.blacklist.intervalo-limpieza-ms=3600000"
+})
+@AutoConfigureMockMvc
+// Las consultas se miden sobre los datos de ejemplo
+@ActiveProfiles("dev")
+@WithMockUser(roles = "USUARIO")
+class UbicacionControllerConsultasTest {
+
+    // Consulta de la página y, si hace falta, consulta de recuento
+    private static final long SENTENCIAS_POR_PAGINA = 2;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"?ocupacion=true&size=1", "?ocupacion=true&size=50", "?ocupacion=true&tipoUbicacion=nevera&size=1",
+            "?ocupacion=true&total=NINGUNO&size=50"})
+    void listarUbicacionesConOcupacion(String filtro) throws Exception {
+        assertThat(sentencias("/ubicaciones" + filtro)).isLessThanOrEqualTo(SENTENCIAS_POR_PAGINA);
+    }
+
+    @Test
+    void ocupacionCuentaLasExistenciasDeCadaUbicacion() throws Exception {
+        mockMvc.perform(get("/ubicaciones?ocupacion=true&sort=id&size=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].numeroExistencias", contains(4, 3, 1, 1, 2)))
+                .andExpect(jsonPath("$.content[*].espacioOcupado", contains(52, 19, 15, 20, 10)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"?after=&size=1", "?after=&tipoUbicacion=nevera&size=1", "?total=NINGUNO&tipoUbicacion=nevera&size=1"})
+    void listarUbicacionesSinRecuento(String filtro) throws Exception {
+        assertThat(sentencias("/ubicaciones" + filtro)).isEqualTo(1);
+    }
+
+    @Test
+    void espacioDeTodosLosTiposEnUnaConsulta() throws Exception {
+        assertThat(sentencias("/ubicaciones/espacio")).isEqualTo(1);
+    }
+
+    @Test
+    void espacioDeUnTipoEnUnaConsulta() throws Exception {
+        assertThat(sentencias("/ubicaciones/espacio/nevera")).isEqualTo(1);
+    }
+
+    private long sentencias(String url) throws Exception {
+        estadisticas.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return estadisticas.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,148 @@
+package daw2a.gestion_alimentos_api_rest.security.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la rotación de los tokens de refresco y la revocación de la familia completa al reutilizar un token
+ * ya rotado.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:refresco;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "jwt.revocaciones.intervalo-sondeo-ms=3600000",
+        "jwt.blacklist.intervalo-limpieza-ms=3600000"
+})
+@AutoConfigureMockMvc
+class AuthControllerRefreshTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void rotarDevuelveUnTokenNuevoYMarcaElAnteriorComoUsado() throws Exception {
+        String email = "rotacion@alimentos.com";
+        String anterior = registrar(email);
+
+        String nuevo = campo(refrescar(anterior).andExpect(status().isOk()), "refreshToken");
+
+        assertThat(nuevo).isNotBlank().isNotEqualTo(anterior);
+        List<Map<String, Object>> tokens = tokensDe(email);
+        assertThat(tokens).hasSize(2);
+        assertThat(tokens).extracting(token -> token.get("familia")).containsOnly(tokens.get(0).get("familia"));
+        assertThat(tokens).extracting(token -> token.get("usado")).containsExactly(true, false);
+        assertThat(tokens).extracting(token -> token.get("revocado")).containsOnly(false);
+
+        // El token nuevo sigue siendo válido
+        refrescar(nuevo).andExpect(status().isOk());
+    }
+
+    @Test
+    void reutilizarUnTokenRotadoRevocaLaFamilia() throws Exception {
+        String email = "reutilizacion@alimentos.com";
+        String anterior = registrar(email);
+        String nuevo = campo(refrescar(anterior).andExpect(status().isOk()), "refreshToken");
+
+        refrescar(anterior).andExpect(status().isUnauthorized());
+
+        // La revocación se confirma aunque la petición falle, y alcanza al token emitido en la rotación
+        assertThat(tokensDe(email)).extracting(token -> token.get("revocado")).containsOnly(true);
+        refrescar(nuevo).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void rotacionesSimultaneasDelMismoTokenSoloTienenExitoUnaVez() throws Exception {
+        String email = "simultaneo@alimentos.com";
+        String token = registrar(email);
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> estados = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                estados.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return refrescar(token).andReturn().getResponse().getStatus();
+                }));
+            }
+            salida.countDown();
+
+            List<Integer> resultado = new ArrayList<>();
+            for (Future<Integer> estado : estados) {
+                resultado.add(estado.get(30, TimeUnit.SECONDS));
+            }
+            // La actualización condicional solo marca el token una vez; la otra petición se trata como reutilización
+            assertThat(resultado).containsExactlyInAnyOrder(200, 401);
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void tokenExpiradoSeRechaza() throws Exception {
+        String email = "expirado@alimentos.com";
+        String token = registrar(email);
+        jdbcTemplate.update("update refresh_token set expiracion = ? where usuario_id = (select id from usuario where email = ?)",
+                Timestamp.from(Instant.now().minusSeconds(1)), email);
+
+        refrescar(token).andExpect(status().isUnauthorized());
+
+        assertThat(tokensDe(email)).extracting(fila -> fila.get("usado")).containsOnly(false);
+    }
+
+    @Test
+    void tokenDesconocidoSeRechaza() throws Exception {
+        refrescar("token-que-no-existe").andExpect(status().isUnauthorized());
+    }
+
+    private String registrar(String email) throws Exception {
+        return campo(mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nombre\":\"Prueba\",\"email\":\"" + email + "\",\"password\":\"contrasena\"}"))
+                .andExpect(status().isOk()), "refreshToken");
+    }
+
+    private ResultActions refrescar(String token) throws Exception {
+        return mockMvc.perform(post("/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"" + token + "\"}"));
+    }
+
+    private List<Map<String, Object>> tokensDe(String email) {
+        return jdbcTemplate.queryForList("select r.familia, r.usado, r.revocado from refresh_token r "
+                + "join usuario u on u.id = r.usuario_id where u.email = ? order by r.id", email);
+    }
+
+    private String campo(ResultActions resultado, String nombre) throws Exception {
+        JsonNode cuerpo = objectMapper.readTree(resultado.andReturn().getResponse().getContentAsString());
+        return cuerpo.get(nombre).asText();
+    }
+}
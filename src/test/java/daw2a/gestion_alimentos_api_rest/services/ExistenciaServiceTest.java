@@ -0,0 +1,218 @@
+package daw2a.gestion_alimentos_api_rest.services;
+
+import daw2a.gestion_alimentos_api_rest.dto.existencia.ConsumoDTO;
+import daw2a.gestion_alimentos_api_rest.dto.existencia.LoteConsumidoDTO;
+import daw2a.gestion_alimentos_api_rest.dto.existencia.MoverExistenciaDTO;
+import daw2a.gestion_alimentos_api_rest.entities.Alimento;
+import daw2a.gestion_alimentos_api_rest.entities.Existencia;
+import daw2a.gestion_alimentos_api_rest.enums.EstadoAlimento;
+import daw2a.gestion_alimentos_api_rest.enums.PoliticaConsumo;
+import daw2a.gestion_alimentos_api_rest.enums.TipoAlimento;
+import daw2a.gestion_alimentos_api_rest.enums.TipoUbicacion;
+import daw2a.gestion_alimentos_api_rest.exceptions.CantidadInsuficienteException;
+import daw2a.gestion_alimentos_api_rest.repositories.AlimentoRepository;
+import daw2a.gestion_alimentos_api_rest.repositories.ExistenciaRepository;
+import daw2a.gestion_alimentos_api_rest.repositories.UbicacionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Comprueba que las operaciones sobre existencias mantienen la capacidad ocupada de las ubicaciones igual a la suma
+ * de sus existencias, también con operaciones simultáneas.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:servicio-existencias;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "jwt.revocaciones.intervalo-sondeo-ms=3600000",
+        "jwt.blacklist.intervalo-limpieza-ms=3600000"
+})
+class ExistenciaServiceTest {
+
+    @Autowired
+    private ExistenciaService existenciaService;
+
+    @Autowired
+    private UbicacionService ubicacionService;
+
+    @Autowired
+    private AlimentoRepository alimentoRepository;
+
+    @Autowired
+    private UbicacionRepository ubicacionRepository;
+
+    @Autowired
+    private ExistenciaRepository existenciaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void movimientosEnSentidosOpuestosNoSeBloqueanMutuamente() throws Exception {
+        Alimento alimento = alimento("Lentejas", LocalDate.now().plusYears(1));
+        Long alacena = ubicacion(1000);
+        Long nevera = ubicacion(1000);
+        Long deAlacena = existencia(alimento, alacena, 5, LocalDate.now());
+        Long deNevera = existencia(alimento, nevera, 7, LocalDate.now());
+
+        int movimientos = 40;
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            tareas.add(ejecutor.submit(() -> mover(salida, deAlacena, nevera, alacena, movimientos)));
+            tareas.add(ejecutor.submit(() -> mover(salida, deNevera, alacena, nevera, movimientos)));
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        assertThat(ocupado(alacena)).isEqualTo(sumaExistencias(alacena)).isEqualTo(5);
+        assertThat(ocupado(nevera)).isEqualTo(sumaExistencias(nevera)).isEqualTo(7);
+    }
+
+    @Test
+    void recalcularOcupacionCorrigeElContadorDeCadaUbicacion() {
+        Alimento alimento = alimento("Garbanzos", LocalDate.now().plusYears(1));
+        Long alacena = ubicacion(100);
+        Long vacia = ubicacion(100);
+        existencia(alimento, alacena, 4, LocalDate.now());
+        existencia(alimento, alacena, 6, LocalDate.now());
+        jdbcTemplate.update("update ubicacion set ocupado = 99 where id in (?, ?)", alacena, vacia);
+
+        ubicacionService.recalcularOcupacion();
+
+        assertThat(ocupado(alacena)).isEqualTo(10);
+        assertThat(ocupado(vacia)).isZero();
+    }
+
+    @Test
+    void consumirFifoRecorreLosLotesPorFechaDeEntrada() {
+        Alimento alimento = alimento("Arroz integral", LocalDate.now().plusYears(1));
+        Long alacena = ubicacion(100);
+        LocalDate hoy = LocalDate.now();
+        Long reciente = existencia(alimento, alacena, 5, hoy);
+        Long antiguo = existencia(alimento, alacena, 3, hoy.minusDays(10));
+        Long intermedio = existencia(alimento, alacena, 4, hoy.minusDays(5));
+
+        ConsumoDTO consumo = existenciaService.consumirExistencia(alimento.getId(), alacena, 5L, PoliticaConsumo.FIFO);
+
+        assertThat(consumo.getLotes()).extracting(LoteConsumidoDTO::getIdExistencia).containsExactly(antiguo, intermedio);
+        assertThat(consumo.getLotes()).extracting(LoteConsumidoDTO::getCantidadConsumida).containsExactly(3L, 2L);
+        assertThat(consumo.getLotes()).extracting(LoteConsumidoDTO::getCantidadRestante).containsExactly(0L, 2L);
+        // El lote agotado se elimina y la capacidad liberada se descuenta de la ubicación
+        assertThat(existenciaRepository.existsById(antiguo)).isFalse();
+        assertThat(cantidad(intermedio)).isEqualTo(2);
+        assertThat(cantidad(reciente)).isEqualTo(5);
+        assertThat(ocupado(alacena)).isEqualTo(sumaExistencias(alacena)).isEqualTo(7);
+    }
+
+    @Test
+    void consumirFefoDesempataPorFechaDeEntrada() {
+        // La fecha de caducidad es la del alimento, igual para todos sus lotes: se consumen por fecha de entrada
+        Alimento alimento = alimento("Yogur natural", LocalDate.now().plusDays(20));
+        Long nevera = ubicacion(100);
+        LocalDate hoy = LocalDate.now();
+        Long reciente = existencia(alimento, nevera, 2, hoy);
+        Long antiguo = existencia(alimento, nevera, 2, hoy.minusDays(3));
+
+        ConsumoDTO consumo = existenciaService.consumirExistencia(alimento.getId(), nevera, 3L, PoliticaConsumo.FEFO);
+
+        assertThat(consumo.getLotes()).extracting(LoteConsumidoDTO::getIdExistencia).containsExactly(antiguo, reciente);
+        assertThat(consumo.getLotes()).extracting(LoteConsumidoDTO::getFechaCaducidad).containsOnly(alimento.getFechaCaducidad());
+        assertThat(existenciaRepository.existsById(antiguo)).isFalse();
+        assertThat(cantidad(reciente)).isEqualTo(1);
+        assertThat(ocupado(nevera)).isEqualTo(1);
+    }
+
+    @Test
+    void consumirMasDeLoDisponibleNoModificaNada() {
+        Alimento alimento = alimento("Harina", LocalDate.now().plusYears(1));
+        Long alacena = ubicacion(100);
+        Long primero = existencia(alimento, alacena, 2, LocalDate.now().minusDays(1));
+        Long segundo = existencia(alimento, alacena, 3, LocalDate.now());
+
+        assertThatThrownBy(() -> existenciaService.consumirExistencia(alimento.getId(), alacena, 6L, PoliticaConsumo.FIFO))
+                .isInstanceOf(CantidadInsuficienteException.class);
+
+        assertThat(cantidad(primero)).isEqualTo(2);
+        assertThat(cantidad(segundo)).isEqualTo(3);
+        assertThat(ocupado(alacena)).isEqualTo(5);
+    }
+
+    /**
+     * Mueve una existencia alternativamente a la ubicación de destino y de vuelta a la de origen.
+     */
+    private Void mover(CountDownLatch salida, Long idExistencia, Long idDestino, Long idOrigen, int movimientos) throws Exception {
+        salida.await();
+        for (int i = 0; i < movimientos; i++) {
+            MoverExistenciaDTO mover = new MoverExistenciaDTO();
+            mover.setIdUbicacion(i % 2 == 0 ? idDestino : idOrigen);
+            existenciaService.moverExistencia(idExistencia, mover);
+        }
+        return null;
+    }
+
+    private Alimento alimento(String nombre, LocalDate fechaCaducidad) {
+        return alimentoRepository.save(Alimento.builder()
+                .nombre(nombre)
+                .tipo(TipoAlimento.NO_PERECEDERO)
+                .estado(EstadoAlimento.CERRADO)
+                .fechaCaducidad(fechaCaducidad)
+                .build());
+    }
+
+    /**
+     * Crea una ubicación vacía y devuelve su id. Se inserta directamente porque la validación de la entidad no
+     * admite la capacidad numérica.
+     */
+    private Long ubicacion(long capacidad) {
+        jdbcTemplate.update("insert into ubicacion (descripcion, tipo_ubicacion, capacidad, ocupado) values (?, ?, ?, 0)",
+                "Ubicación de prueba", TipoUbicacion.ALACENA.name(), capacidad);
+        return jdbcTemplate.queryForObject("select max(id) from ubicacion", Long.class);
+    }
+
+    /**
+     * Guarda una existencia con la fecha de entrada indicada y reserva su cantidad en la ubicación.
+     */
+    private Long existencia(Alimento alimento, Long idUbicacion, long cantidad, LocalDate fechaEntrada) {
+        Existencia existencia = existenciaRepository.save(Existencia.builder()
+                .alimento(alimento)
+                .ubicacion(ubicacionRepository.getReferenceById(idUbicacion))
+                .cantidad(cantidad)
+                .fechaEntrada(fechaEntrada)
+                .build());
+        jdbcTemplate.update("update ubicacion set ocupado = ocupado + ? where id = ?", cantidad, idUbicacion);
+        return existencia.getId();
+    }
+
+    private long ocupado(Long idUbicacion) {
+        return jdbcTemplate.queryForObject("select ocupado from ubicacion where id = ?", Long.class, idUbicacion);
+    }
+
+    private long cantidad(Long idExistencia) {
+        return jdbcTemplate.queryForObject("select cantidad from existencia where id = ?", Long.class, idExistencia);
+    }
+
+    private long sumaExistencias(Long idUbicacion) {
+        return jdbcTemplate.queryForObject("select coalesce(sum(cantidad), 0) from existencia where ubicacion_id = ?",
+                Long.class, idUbicacion);
+    }
+}
@@ -0,0 +1,150 @@
+package daw2a.gestion_alimentos_api_rest.services;
+
+import daw2a.gestion_alimentos_api_rest.dto.alimento.SugerenciaAlimentoDTO;
+import daw2a.gestion_alimentos_api_rest.repositories.AlimentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Comprueba la normalización de los nombres, el orden de las sugerencias y que el índice refleja las altas,
+ * modificaciones y bajas, también las que llegan mientras se reconstruye.
+ */
+class SugerenciasAlimentosTest {
+
+    private AlimentoRepository alimentoRepository;
+    private SugerenciasAlimentos sugerencias;
+
+    @BeforeEach
+    void setUp() {
+        alimentoRepository = mock(AlimentoRepository.class);
+        sugerencias = new SugerenciasAlimentos(alimentoRepository);
+    }
+
+    @Test
+    void normalizarQuitaTildesMayusculasYSignos() {
+        assertThat(SugerenciasAlimentos.normalizar("  Atún, EN-lata!! ")).isEqualTo("atun en lata");
+        assertThat(SugerenciasAlimentos.normalizar("Pan de MOLDE")).isEqualTo("pan de molde");
+        assertThat(SugerenciasAlimentos.normalizar("¿¡...!?")).isEmpty();
+        assertThat(SugerenciasAlimentos.normalizar(null)).isEmpty();
+    }
+
+    @Test
+    void trigramasCompletanCadaPalabraConEspacios() {
+        assertThat(SugerenciasAlimentos.trigramas("atun")).containsExactlyInAnyOrder("  a", " at", "atu", "tun", "un ");
+        assertThat(SugerenciasAlimentos.trigramas("te de")).containsExactlyInAnyOrder("  t", " te", "te ", "  d", " de", "de ");
+    }
+
+    @Test
+    void sugiereNombresPorPrefijoDespuesPorPalabraYDespuesPorFragmento() {
+        sugerencias.actualizar(1L, "Leche de arroz");
+        sugerencias.actualizar(2L, "Barra de pan");
+        sugerencias.actualizar(3L, "Arroz integral");
+        sugerencias.actualizar(4L, "Arroz");
+        sugerencias.actualizar(5L, "Queso");
+
+        assertThat(nombres("arr", 10)).containsExactly("Arroz", "Arroz integral", "Leche de arroz", "Barra de pan");
+        assertThat(nombres("arr", 2)).containsExactly("Arroz", "Arroz integral");
+    }
+
+    @Test
+    void sugiereNombresMalEscritos() {
+        sugerencias.actualizar(1L, "Arroz");
+        sugerencias.actualizar(2L, "Queso");
+
+        assertThat(nombres("arros", 10)).containsExactly("Arroz");
+        assertThat(nombres("qeso", 10)).containsExactly("Queso");
+    }
+
+    @Test
+    void comparaSinTildesNiMayusculas() {
+        sugerencias.actualizar(1L, "Atún enlatado");
+
+        assertThat(nombres("atun", 10)).containsExactly("Atún enlatado");
+        assertThat(nombres("ATÚN", 10)).containsExactly("Atún enlatado");
+        assertThat(nombres("enlatádo", 10)).containsExactly("Atún enlatado");
+    }
+
+    @Test
+    void renombrarYEliminarQuitanLasEntradasAnteriores() {
+        sugerencias.actualizar(1L, "Manzana");
+        sugerencias.actualizar(1L, "Pera");
+
+        assertThat(nombres("manz", 10)).isEmpty();
+        assertThat(nombres("anza", 10)).isEmpty();
+        assertThat(nombres("pera", 10)).containsExactly("Pera");
+
+        sugerencias.eliminar(1L);
+
+        assertThat(nombres("pera", 10)).isEmpty();
+        assertThat(nombres("era", 10)).isEmpty();
+
+        // La posición liberada se reutiliza sin mezclar los trigramas del alimento eliminado
+        sugerencias.actualizar(2L, "Melón");
+        assertThat(nombres("pera", 10)).isEmpty();
+        assertThat(nombres("melon", 10)).containsExactly("Melón");
+    }
+
+    @Test
+    void textoSinLetrasNiNumerosNoSugiereNada() {
+        sugerencias.actualizar(1L, "Arroz");
+
+        assertThat(sugerencias.sugerir("¿?!--", 10)).isEmpty();
+        assertThat(sugerencias.sugerir("   ", 10)).isEmpty();
+    }
+
+    @Test
+    void textosDeUnoYDosCaracteres() {
+        sugerencias.actualizar(1L, "Arroz");
+        sugerencias.actualizar(2L, "Leche de arroz");
+        sugerencias.actualizar(3L, "Queso");
+
+        assertThat(nombres("a", 10)).containsExactly("Arroz", "Leche de arroz");
+        assertThat(nombres("q", 10)).containsExactly("Queso");
+        assertThat(nombres("z", 10)).isEmpty();
+        assertThat(nombres("oz", 10)).containsExactly("Arroz", "Leche de arroz");
+    }
+
+    @Test
+    void cambiosDuranteLaReconstruccionNoSePierden() {
+        sugerencias.actualizar(1L, "Manzana");
+        // Mientras se leen los nombres, otra petición confirma un alta y una baja que la lectura no ve
+        when(alimentoRepository.listarNombres()).thenAnswer(invocacion -> {
+            sugerencias.actualizar(2L, "Pera");
+            sugerencias.eliminar(1L);
+            return List.of(nombre(1L, "Manzana"));
+        });
+
+        sugerencias.reconstruir();
+
+        assertThat(nombres("pera", 10)).containsExactly("Pera");
+        assertThat(nombres("manz", 10)).isEmpty();
+
+        // Fuera de la reconstrucción los cambios se aplican solo al índice vigente
+        sugerencias.actualizar(3L, "Melón");
+        assertThat(nombres("melon", 10)).containsExactly("Melón");
+    }
+
+    private List<String> nombres(String texto, int limite) {
+        return sugerencias.sugerir(texto, limite).stream().map(SugerenciaAlimentoDTO::getNombre).toList();
+    }
+
+    private static AlimentoRepository.NombreAlimento nombre(Long id, String nombre) {
+        return new AlimentoRepository.NombreAlimento() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getNombre() {
+                return nombre;
+            }
+        };
+    }
+}
@@ -0,0 +1,251 @@
+package daw2a.gestion_alimentos_api_rest.services;
+
+import daw2a.gestion_alimentos_api_rest.entities.Usuario;
+import daw2a.gestion_alimentos_api_rest.enums.Rol;
+import daw2a.gestion_alimentos_api_rest.repositories.UsuarioRepository;
+import daw2a.gestion_alimentos_api_rest.security.revocation.InMemoryRevocationStore;
+import daw2a.gestion_alimentos_api_rest.security.revocation.JpaRevocationStore;
+import daw2a.gestion_alimentos_api_rest.security.revocation.RevocationEntry;
+import daw2a.gestion_alimentos_api_rest.security.revocation.RevocationStore;
+import daw2a.gestion_alimentos_api_rest.security.user.CustomUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Comprueba que las revocaciones registradas por una instancia llegan a las demás al sondear el almacén
+ * compartido, incluidas las confirmadas fuera de orden y las leídas al reiniciar.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:revocaciones;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(JpaRevocationStore.class)
+class TokenBlacklistServiceTest {
+
+    private static final Duration VENTANA = Duration.ofSeconds(30);
+
+    @Autowired
+    private JpaRevocationStore jpaRevocationStore;
+
+    private UsuarioRepository usuarioRepository;
+
+    @BeforeEach
+    void setUp() {
+        usuarioRepository = mock(UsuarioRepository.class);
+    }
+
+    @Test
+    void revocacionEnUnaInstanciaLlegaALaOtraAlSondear() {
+        InMemoryRevocationStore almacen = new InMemoryRevocationStore();
+        SimpleMeterRegistry metricasB = new SimpleMeterRegistry();
+        TokenBlacklistService instanciaA = instancia(almacen, VENTANA, new SimpleMeterRegistry());
+        TokenBlacklistService instanciaB = instancia(almacen, VENTANA, metricasB);
+        String jti = UUID.randomUUID().toString();
+
+        instanciaA.addTokenToBlacklist(jti, Instant.now().plusSeconds(600));
+
+        assertThat(instanciaA.isTokenBlacklisted(jti)).isTrue();
+        assertThat(instanciaB.isTokenBlacklisted(jti)).isFalse();
+
+        instanciaB.sincronizarRevocaciones();
+
+        assertThat(instanciaB.isTokenBlacklisted(jti)).isTrue();
+        assertThat(metricasB.get("jwt.revocaciones.retraso").timer().count()).isEqualTo(1);
+
+        // Volver a leer la misma revocación no cuenta un nuevo retraso
+        instanciaB.sincronizarRevocaciones();
+        assertThat(metricasB.get("jwt.revocaciones.retraso").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void revocacionConfirmadaFueraDeOrdenSeLeeDentroDeLaVentana() {
+        AlmacenManual almacen = new AlmacenManual();
+        TokenBlacklistService conVentana = instancia(almacen, VENTANA, new SimpleMeterRegistry());
+        TokenBlacklistService sinVentana = instancia(almacen, Duration.ZERO, new SimpleMeterRegistry());
+        UUID primero = UUID.randomUUID();
+        UUID segundo = UUID.randomUUID();
+
+        // La secuencia 2 se confirma y se lee antes que la 1
+        almacen.confirmar(2, segundo);
+        conVentana.sincronizarRevocaciones();
+        sinVentana.sincronizarRevocaciones();
+        almacen.confirmar(1, primero);
+        conVentana.sincronizarRevocaciones();
+        sinVentana.sincronizarRevocaciones();
+
+        assertThat(conVentana.isTokenBlacklisted(primero.toString())).isTrue();
+        assertThat(conVentana.isTokenBlacklisted(segundo.toString())).isTrue();
+        assertThat(sinVentana.isTokenBlacklisted(primero.toString())).isFalse();
+    }
+
+    @Test
+    void revocacionConfirmadaFueraDeOrdenSeLeeAunqueSeHayanRegistradoMuchasDespues() {
+        AlmacenManual almacen = new AlmacenManual();
+        TokenBlacklistService instancia = instancia(almacen, VENTANA, new SimpleMeterRegistry());
+        UUID abierta = UUID.randomUUID();
+
+        // Mientras la transacción de la secuencia 1 sigue abierta se confirman y se leen otras 500
+        for (int secuencia = 2; secuencia <= 501; secuencia++) {
+            almacen.confirmar(secuencia, UUID.randomUUID());
+        }
+        instancia.sincronizarRevocaciones();
+        almacen.confirmar(1, abierta);
+        instancia.sincronizarRevocaciones();
+
+        assertThat(instancia.isTokenBlacklisted(abierta.toString())).isTrue();
+        assertThat(instancia.getTamano()).isEqualTo(501);
+    }
+
+    @Test
+    void instanciaReiniciadaRecuperaLasRevocacionesDelAlmacenJpa() {
+        TokenBlacklistService instanciaA = instancia(jpaRevocationStore, VENTANA, new SimpleMeterRegistry());
+        String vigente = UUID.randomUUID().toString();
+        String expirado = UUID.randomUUID().toString();
+        instanciaA.addTokenToBlacklist(vigente, Instant.now().plusSeconds(600));
+        jpaRevocationStore.registrar(UUID.fromString(expirado), Instant.now().minusSeconds(1), Instant.now());
+
+        TokenBlacklistService reiniciada = instancia(jpaRevocationStore, VENTANA, new SimpleMeterRegistry());
+        reiniciada.cargarRevocaciones();
+
+        assertThat(reiniciada.isTokenBlacklisted(vigente)).isTrue();
+        assertThat(reiniciada.isTokenBlacklisted(expirado)).isFalse();
+        assertThat(reiniciada.getTamano()).isEqualTo(1);
+    }
+
+    @Test
+    void almacenJpaDevuelveLaPrimeraRevocacionDeLaVentana() {
+        Instant ahora = Instant.now();
+        jpaRevocationStore.registrar(UUID.randomUUID(), ahora.plusSeconds(600), ahora.minusSeconds(60));
+        jpaRevocationStore.registrar(UUID.randomUUID(), ahora.plusSeconds(600), ahora.minusSeconds(5));
+        jpaRevocationStore.registrarUsuario(9L, ahora.plusSeconds(600), ahora.minusSeconds(1));
+        List<RevocationEntry> registradas = jpaRevocationStore.cambiosDesde(0, ahora, 10);
+
+        assertThat(jpaRevocationStore.primeraSecuenciaDesde(ahora.minusSeconds(10)))
+                .hasValue(registradas.get(registradas.size() - 2).secuencia());
+        assertThat(jpaRevocationStore.primeraSecuenciaDesde(ahora)).isEmpty();
+    }
+
+    @Test
+    void revocacionDeUsuarioInvalidaLasCachesDeLasDemasInstancias() {
+        InMemoryRevocationStore almacen = new InMemoryRevocationStore();
+        TokenVersionService versionesB = new TokenVersionService(usuarioRepository, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        CustomUserDetailsService detallesB = new CustomUserDetailsService(usuarioRepository, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        TokenBlacklistService instanciaA = instancia(almacen, VENTANA, new SimpleMeterRegistry());
+        TokenBlacklistService instanciaB = new TokenBlacklistService(almacen, versionesB, detallesB,
+                Duration.ofMinutes(15), 1000, VENTANA, new SimpleMeterRegistry());
+
+        Usuario usuario = Usuario.builder().id(7L).nombre("Ana").email("ana@alimentos.com").password("x").rol(Rol.ADMINISTRADOR).build();
+        when(usuarioRepository.findVersionTokenById(7L)).thenReturn(Optional.of(0L));
+        when(usuarioRepository.findUsuarioByEmail("ana@alimentos.com")).thenReturn(Optional.of(usuario));
+        assertThat(versionesB.esVersionVigente(7L, 0L)).isTrue();
+        detallesB.loadUserByUsername("ana@alimentos.com");
+
+        // Otra instancia cambia el rol del usuario e incrementa su versión de tokens
+        when(usuarioRepository.findVersionTokenById(7L)).thenReturn(Optional.of(1L));
+        instanciaA.revocarTokensUsuario(7L);
+        assertThat(versionesB.esVersionVigente(7L, 0L)).isTrue();
+
+        instanciaB.sincronizarRevocaciones();
+
+        assertThat(versionesB.esVersionVigente(7L, 0L)).isFalse();
+        detallesB.loadUserByUsername("ana@alimentos.com");
+        verify(usuarioRepository, times(2)).findUsuarioByEmail("ana@alimentos.com");
+        verify(usuarioRepository, times(2)).findVersionTokenById(7L);
+
+        // Volver a leer la misma revocación en los siguientes sondeos no vacía de nuevo las cachés
+        instanciaB.sincronizarRevocaciones();
+        instanciaB.sincronizarRevocaciones();
+        assertThat(versionesB.esVersionVigente(7L, 1L)).isTrue();
+        detallesB.loadUserByUsername("ana@alimentos.com");
+        verify(usuarioRepository, times(2)).findUsuarioByEmail("ana@alimentos.com");
+        verify(usuarioRepository, times(2)).findVersionTokenById(7L);
+    }
+
+    @Test
+    void invalidarPorIdDescartaElUsuarioAunqueHayaCambiadoDeEmail() {
+        CustomUserDetailsService detalles = new CustomUserDetailsService(usuarioRepository, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        Usuario antes = Usuario.builder().id(8L).nombre("Luis").email("luis@alimentos.com").password("x").rol(Rol.USUARIO).build();
+        Usuario despues = Usuario.builder().id(8L).nombre("Luis").email("luis.nuevo@alimentos.com").password("x").rol(Rol.USUARIO).build();
+        when(usuarioRepository.findUsuarioByEmail("luis@alimentos.com")).thenReturn(Optional.of(antes));
+        when(usuarioRepository.findUsuarioByEmail("luis.nuevo@alimentos.com")).thenReturn(Optional.of(despues));
+
+        detalles.loadUserByUsername("luis@alimentos.com");
+        detalles.loadUserByUsername("luis.nuevo@alimentos.com");
+        detalles.invalidarUsuario(8L);
+
+        // Ni el email anterior ni el nuevo siguen en la caché
+        detalles.loadUserByUsername("luis@alimentos.com");
+        detalles.loadUserByUsername("luis.nuevo@alimentos.com");
+        verify(usuarioRepository, times(2)).findUsuarioByEmail("luis@alimentos.com");
+        verify(usuarioRepository, times(2)).findUsuarioByEmail("luis.nuevo@alimentos.com");
+    }
+
+    private TokenBlacklistService instancia(RevocationStore almacen, Duration ventana, SimpleMeterRegistry metricas) {
+        return new TokenBlacklistService(almacen,
+                new TokenVersionService(usuarioRepository, 100, Duration.ofMinutes(5), metricas),
+                new CustomUserDetailsService(usuarioRepository, 100, Duration.ofMinutes(5), metricas),
+                Duration.ofMinutes(15), 1000, ventana, metricas);
+    }
+
+    /**
+     * Almacén en el que la prueba decide qué secuencias están confirmadas, para simular transacciones que se
+     * confirman en distinto orden del de sus números de secuencia.
+     */
+    private static final class AlmacenManual implements RevocationStore {
+        private final TreeMap<Long, RevocationEntry> confirmadas = new TreeMap<>();
+
+        void confirmar(long secuencia, UUID jti) {
+            // Registrada un momento antes de confirmarse
+            confirmadas.put(secuencia, new RevocationEntry(secuencia, jti, null, Instant.now().plusSeconds(600), Instant.now().minusSeconds(1)));
+        }
+
+        @Override
+        public void registrar(UUID jti, Instant expiracion, Instant revocadoEn) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void registrarUsuario(Long idUsuario, Instant expiracion, Instant revocadoEn) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<RevocationEntry> cambiosDesde(long secuencia, Instant ahora, int limite) {
+            return confirmadas.tailMap(secuencia, false).values().stream().limit(limite).toList();
+        }
+
+        @Override
+        public OptionalLong primeraSecuenciaDesde(Instant revocadoDesde) {
+            return confirmadas.values().stream()
+                    .filter(entrada -> !entrada.revocadoEn().isBefore(revocadoDesde))
+                    .mapToLong(RevocationEntry::secuencia)
+                    .min();
+        }
+
+        @Override
+        public int eliminarExpiradas(Instant ahora) {
+            return 0;
+        }
+    }
+}